@@ -0,0 +1,283 @@
+package cadastro.graph;
+
+import cadastro.importer.Cadastro;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.IntersectionMatrix;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.TopologyException;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.geom.util.GeometryFixer;
+import org.locationtech.jts.precision.GeometryPrecisionReducer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Predicado de adjacência física entre duas propriedades.
+ *
+ * Duas propriedades são adjacentes quando as formas se intersetam sem que
+ * nenhuma esteja contida na outra. O predicado original calcula esta relação
+ * com {@code touches}, {@code intersects} e dois {@code within}, o que pode
+ * implicar quatro cálculos completos da matriz DE-9IM por par. Este predicado
+ * obtém o mesmo resultado com:
+ * <ol>
+ *   <li>rejeição imediata quando os envelopes são disjuntos;</li>
+ *   <li>um {@code intersects} sobre a {@link PreparedGeometry} da primeira
+ *       propriedade, reutilizada em todas as suas comparações;</li>
+ *   <li>uma única chamada a {@code relate}, apenas quando o envelope de uma
+ *       forma cobre o da outra (única situação em que uma pode estar contida
+ *       na outra).</li>
+ * </ol>
+ *
+ * No modo {@link PropertyGraphConstants#PREDICATE_VERIFY} ambos os predicados
+ * são avaliados, prevalece o resultado do predicado original e as divergências
+ * são contabilizadas, permitindo validar a equivalência com dados reais.
+ *
+ * Nos modos {@link PropertyGraphConstants#PREDICATE_SEGMENT_HASH} e
+ * {@link PropertyGraphConstants#PREDICATE_SEGMENT_HASH_VERIFY} as adjacências
+ * são detetadas por {@link SegmentHashAdjacency}; o predicado de passagem
+ * única só é usado para verificar uma amostra no segundo modo.
+ *
+ * No modo {@link PropertyGraphConstants#PREDICATE_ROBUST}, um par cujo
+ * predicado de passagem única lança {@link TopologyException} é testado de
+ * novo com as formas corrigidas ({@link GeometryFixer}) e arredondadas para a
+ * grelha de {@link PropertyGraphConstants#ROBUST_PRECISION_SCALE} com
+ * {@link GeometryPrecisionReducer}, o que resolve anéis que se tocam, partes
+ * sobrepostas e vértices quase coincidentes. Os pares recuperados são
+ * contabilizados.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+class AdjacencyPredicate {
+    private final int mode;
+    private final AtomicLong mismatches;
+    private final AtomicLong recovered;
+    private final Function<MultiPolygon, Geometry> repair;
+
+    /**
+     * Constrói um predicado de adjacência no modo indicado.
+     *
+     * @param mode Um dos modos {@code PREDICATE_*} de {@link PropertyGraphConstants}
+     * @throws IllegalArgumentException se o modo for desconhecido
+     */
+    AdjacencyPredicate(int mode) {
+        this(mode, AdjacencyPredicate::reduce);
+    }
+
+    /**
+     * Constrói um predicado de adjacência no modo indicado, com outra
+     * correção das formas no modo {@link PropertyGraphConstants#PREDICATE_ROBUST},
+     * por exemplo para reproduzir um par que não pode ser recuperado.
+     *
+     * @param mode Um dos modos {@code PREDICATE_*} de {@link PropertyGraphConstants}
+     * @param repair A correção aplicada a cada forma de um par que falhou a
+     *               análise topológica; pode lançar
+     *               {@link IllegalArgumentException} se a forma não puder ser
+     *               corrigida
+     * @throws IllegalArgumentException se o modo for desconhecido
+     */
+    AdjacencyPredicate(int mode, Function<MultiPolygon, Geometry> repair) {
+        if (mode != PropertyGraphConstants.PREDICATE_DE9IM
+                && mode != PropertyGraphConstants.PREDICATE_LEGACY
+                && mode != PropertyGraphConstants.PREDICATE_VERIFY
+                && mode != PropertyGraphConstants.PREDICATE_SEGMENT_HASH
+                && mode != PropertyGraphConstants.PREDICATE_SEGMENT_HASH_VERIFY
+                && mode != PropertyGraphConstants.PREDICATE_ROBUST) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_PREDICATE_MODE_ERROR + mode);
+        }
+        this.mode = mode;
+        this.mismatches = new AtomicLong();
+        this.recovered = new AtomicLong();
+        this.repair = repair;
+    }
+
+    /**
+     * Prepara a forma de uma propriedade para ser comparada com várias outras.
+     *
+     * @param property A propriedade a preparar
+     * @return A geometria preparada, ou null se a propriedade não tiver forma
+     *         ou se o modo não utilizar geometrias preparadas
+     */
+    PreparedGeometry prepare(Cadastro property) {
+        return prepare(property.getShape());
+    }
+
+    /**
+     * Prepara uma forma para ser comparada com várias outras.
+     *
+     * @param shape A forma a preparar, possivelmente nula
+     * @return A geometria preparada, ou null se a forma for nula ou se o modo
+     *         não utilizar geometrias preparadas
+     */
+    PreparedGeometry prepare(MultiPolygon shape) {
+        if (shape == null || mode == PropertyGraphConstants.PREDICATE_LEGACY) {
+            return null;
+        }
+        return PreparedGeometryFactory.prepare(shape);
+    }
+
+    /**
+     * Verifica se duas propriedades são fisicamente adjacentes.
+     *
+     * @param prop1 Primeira propriedade
+     * @param prepared1 A forma preparada da primeira propriedade, obtida com
+     *                  {@link #prepare(Cadastro)}
+     * @param prop2 Segunda propriedade
+     * @return true se as propriedades são adjacentes, false caso contrário
+     * @throws IllegalArgumentException se alguma das propriedades for nula
+     * @throws IllegalStateException se ocorrer um erro durante a análise topológica
+     */
+    boolean test(Cadastro prop1, PreparedGeometry prepared1, Cadastro prop2) {
+        if (prop1 == null || prop2 == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
+        }
+        return test(prop1.getShape(), prepared1, prop2.getShape());
+    }
+
+    /**
+     * Verifica se duas formas são fisicamente adjacentes, para quem só tem as
+     * formas das propriedades.
+     *
+     * @param shape1 Primeira forma, possivelmente nula
+     * @param prepared1 A primeira forma preparada, obtida com
+     *                  {@link #prepare(MultiPolygon)}
+     * @param shape2 Segunda forma, possivelmente nula
+     * @return true se as formas são adjacentes, false caso contrário ou se
+     *         alguma for nula
+     * @throws IllegalStateException se ocorrer um erro durante a análise topológica
+     */
+    boolean test(MultiPolygon shape1, PreparedGeometry prepared1, MultiPolygon shape2) {
+        if (shape1 == null || shape2 == null) {
+            return false;
+        }
+
+        try {
+            switch (mode) {
+                case PropertyGraphConstants.PREDICATE_LEGACY:
+                    return testLegacy(shape1, shape2);
+                case PropertyGraphConstants.PREDICATE_VERIFY:
+                    boolean expected = testLegacy(shape1, shape2);
+                    if (testSinglePass(shape1, prepared1, shape2) != expected) {
+                        mismatches.incrementAndGet();
+                    }
+                    return expected;
+                case PropertyGraphConstants.PREDICATE_ROBUST:
+                    try {
+                        return testSinglePass(shape1, prepared1, shape2);
+                    } catch (TopologyException e) {
+                        boolean result;
+                        try {
+                            result = testSinglePass(repair.apply(shape1), null, repair.apply(shape2));
+                        } catch (IllegalArgumentException reduction) {
+                            throw new IllegalStateException(PropertyGraphConstants.ADJACENCY_ERROR + e.getMessage(), e);
+                        }
+                        recovered.incrementAndGet();
+                        return result;
+                    }
+                default:
+                    return testSinglePass(shape1, prepared1, shape2);
+            }
+        } catch (TopologyException e) {
+            throw new IllegalStateException(PropertyGraphConstants.ADJACENCY_ERROR + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Corrige uma forma inválida e arredonda as coordenadas para a grelha do
+     * modo robusto.
+     *
+     * @throws IllegalArgumentException se a redução de precisão falhar
+     */
+    private static Geometry reduce(MultiPolygon shape) {
+        return GeometryPrecisionReducer.reduce(GeometryFixer.fix(shape),
+                new PrecisionModel(PropertyGraphConstants.ROBUST_PRECISION_SCALE));
+    }
+
+    /**
+     * Retorna o modo do predicado.
+     *
+     * @return Um dos modos {@code PREDICATE_*} de {@link PropertyGraphConstants}
+     */
+    int getMode() {
+        return mode;
+    }
+
+    /**
+     * Indica se as adjacências são detetadas por vértices partilhados, com
+     * {@link SegmentHashAdjacency}, em vez de testar cada par candidato.
+     *
+     * @return true nos modos {@code PREDICATE_SEGMENT_HASH*}
+     */
+    boolean usesSegmentHash() {
+        return mode == PropertyGraphConstants.PREDICATE_SEGMENT_HASH
+                || mode == PropertyGraphConstants.PREDICATE_SEGMENT_HASH_VERIFY;
+    }
+
+    /**
+     * Contabiliza divergências encontradas fora do predicado, na verificação
+     * das adjacências detetadas por vértices partilhados.
+     *
+     * @param count Número de divergências
+     */
+    void addMismatches(long count) {
+        mismatches.addAndGet(count);
+    }
+
+    /**
+     * Retorna o número de pares que falharam a análise topológica e foram
+     * resolvidos com as formas corrigidas, no modo
+     * {@link PropertyGraphConstants#PREDICATE_ROBUST}.
+     *
+     * @return Número de pares recuperados
+     */
+    long getRecovered() {
+        return recovered.get();
+    }
+
+    /**
+     * Retorna o número de pares em que os dois predicados divergiram. Só é
+     * diferente de zero nos modos {@link PropertyGraphConstants#PREDICATE_VERIFY}
+     * e {@link PropertyGraphConstants#PREDICATE_SEGMENT_HASH_VERIFY}.
+     *
+     * @return Número de divergências encontradas
+     */
+    long getMismatches() {
+        return mismatches.get();
+    }
+
+    /**
+     * Predicado original, com até quatro cálculos topológicos por par.
+     */
+    private static boolean testLegacy(MultiPolygon shape1, MultiPolygon shape2) {
+        return shape1.touches(shape2) ||
+               (shape1.intersects(shape2) && !shape1.within(shape2) && !shape2.within(shape1));
+    }
+
+    /**
+     * Predicado de passagem única. Como {@code touches} implica que as formas
+     * se intersetam sem que nenhuma contenha a outra, o predicado original
+     * equivale a {@code intersects && !within && !contains}.
+     */
+    private static boolean testSinglePass(Geometry shape1, PreparedGeometry prepared1, Geometry shape2) {
+        Envelope envelope1 = shape1.getEnvelopeInternal();
+        Envelope envelope2 = shape2.getEnvelopeInternal();
+        if (!envelope1.intersects(envelope2)) {
+            return false;
+        }
+
+        boolean intersects = prepared1 != null ? prepared1.intersects(shape2) : shape1.intersects(shape2);
+        if (!intersects) {
+            return false;
+        }
+        if (!envelope1.covers(envelope2) && !envelope2.covers(envelope1)) {
+            return true;
+        }
+
+        IntersectionMatrix matrix = shape1.relate(shape2);
+        return !matrix.isWithin() && !matrix.isContains();
+    }
+}
@@ -0,0 +1,292 @@
+package cadastro.graph;
+
+import cadastro.importer.Cadastro;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Propriedades contíguas de cada proprietário: conjuntos de propriedades do
+ * mesmo proprietário ligadas por adjacências do {@link PropertyGraph}. Cada
+ * conjunto é um cluster, com a área total das suas propriedades, que pode ser
+ * usada como a área "efetiva" de uma exploração.
+ *
+ * Os clusters são calculados com union-find sobre os identificadores dos
+ * vértices, com compressão de caminho e união por ordem, juntando apenas as
+ * arestas cujos extremos têm o mesmo proprietário. Como essas arestas nunca
+ * ligam proprietários diferentes, os vértices de cada proprietário formam uma
+ * partição independente; os proprietários são divididos em blocos processados
+ * em paralelo, sem sincronização, porque cada bloco só altera as posições dos
+ * seus vértices.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public class ContiguousHoldings {
+    private final PropertyGraph graph;
+    private final int[] clusterOf;
+    private final int[] clusterOwners;
+    private final int[] clusterSizes;
+    private final double[] clusterAreas;
+
+    /**
+     * Calcula os clusters de forma sequencial.
+     *
+     * @param graph O grafo de propriedades
+     * @throws IllegalArgumentException Se o grafo for nulo
+     */
+    public ContiguousHoldings(PropertyGraph graph) {
+        this(graph, 1);
+    }
+
+    /**
+     * Calcula os clusters utilizando várias threads.
+     *
+     * @param graph O grafo de propriedades
+     * @param parallelism Número de threads a utilizar (1 para sequencial)
+     * @throws IllegalArgumentException Se o grafo for nulo ou o paralelismo
+     *                                  for menor que 1
+     */
+    public ContiguousHoldings(PropertyGraph graph, int parallelism) {
+        if (graph == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_GRAPH_ERROR);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_PARALLELISM_ERROR);
+        }
+        this.graph = graph;
+        int n = graph.getNumberOfProperties();
+
+        int[] owners = new int[n];
+        long[] byOwner = new long[n];
+        for (int v = 0; v < n; v++) {
+            owners[v] = graph.getProperty(v).getOwner();
+            byOwner[v] = (long) owners[v] << 32 | v;
+        }
+        Arrays.parallelSort(byOwner);
+        int[] vertices = new int[n];
+        for (int i = 0; i < n; i++) {
+            vertices[i] = (int) byOwner[i];
+        }
+
+        int[] parent = new int[n];
+        byte[] rank = new byte[n];
+        Arrays.setAll(parent, v -> v);
+        UnionTask task = new UnionTask(graph.getAdjacency(), owners, vertices, parent, rank, 0, n);
+        if (parallelism == 1) {
+            task.compute();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        // Identificadores densos, pela ordem do primeiro vértice de cada cluster
+        this.clusterOf = new int[n];
+        int[] clusterOfRoot = new int[n];
+        Arrays.fill(clusterOfRoot, -1);
+        int clusters = 0;
+        for (int v = 0; v < n; v++) {
+            int root = find(parent, v);
+            if (clusterOfRoot[root] < 0) {
+                clusterOfRoot[root] = clusters++;
+            }
+            clusterOf[v] = clusterOfRoot[root];
+        }
+
+        this.clusterOwners = new int[clusters];
+        this.clusterSizes = new int[clusters];
+        this.clusterAreas = new double[clusters];
+        for (int v = 0; v < n; v++) {
+            int cluster = clusterOf[v];
+            clusterOwners[cluster] = owners[v];
+            clusterSizes[cluster]++;
+            clusterAreas[cluster] += graph.getProperty(v).getArea();
+        }
+    }
+
+    /**
+     * Procura a raiz do conjunto de um vértice, reduzindo para metade o
+     * caminho percorrido (cada vértice passa a apontar para o avô).
+     */
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Junta os conjuntos de dois vértices, pendurando a árvore de menor ordem
+     * na de maior ordem.
+     */
+    private static void union(int[] parent, byte[] rank, int u, int v) {
+        int rootU = find(parent, u);
+        int rootV = find(parent, v);
+        if (rootU == rootV) {
+            return;
+        }
+        if (rank[rootU] < rank[rootV]) {
+            parent[rootU] = rootV;
+        } else if (rank[rootU] > rank[rootV]) {
+            parent[rootV] = rootU;
+        } else {
+            parent[rootV] = rootU;
+            rank[rootU]++;
+        }
+    }
+
+    /**
+     * Tarefa que junta as arestas entre vértices do mesmo proprietário num
+     * intervalo de vértices ordenados por proprietário. O intervalo é dividido
+     * ao meio, com o ponto de divisão deslocado para o início de um
+     * proprietário, até ter no máximo
+     * {@link PropertyGraphConstants#PARALLEL_BUILD_THRESHOLD} vértices ou um
+     * único proprietário.
+     */
+    private static class UnionTask extends RecursiveAction {
+        private final CsrAdjacency adjacency;
+        private final int[] owners;
+        private final int[] vertices;
+        private final int[] parent;
+        private final byte[] rank;
+        private final int from;
+        private final int to;
+
+        UnionTask(CsrAdjacency adjacency, int[] owners, int[] vertices, int[] parent, byte[] rank, int from, int to) {
+            this.adjacency = adjacency;
+            this.owners = owners;
+            this.vertices = vertices;
+            this.parent = parent;
+            this.rank = rank;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PropertyGraphConstants.PARALLEL_BUILD_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                int owner = owners[vertices[middle]];
+                while (middle > from && owners[vertices[middle - 1]] == owner) {
+                    middle--;
+                }
+                if (middle == from) {
+                    middle = (from + to) >>> 1;
+                    while (middle < to && owners[vertices[middle]] == owner) {
+                        middle++;
+                    }
+                }
+                if (middle > from && middle < to) {
+                    invokeAll(new UnionTask(adjacency, owners, vertices, parent, rank, from, middle),
+                            new UnionTask(adjacency, owners, vertices, parent, rank, middle, to));
+                    return;
+                }
+            }
+
+            for (int i = from; i < to; i++) {
+                int v = vertices[i];
+                for (int position = adjacency.start(v); position < adjacency.end(v); position++) {
+                    int u = adjacency.neighbourAt(position);
+                    if (u > v && owners[u] == owners[v]) {
+                        union(parent, rank, u, v);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna o cluster de uma propriedade.
+     *
+     * @param property A propriedade
+     * @return O identificador do cluster, ou -1 se a propriedade não pertencer
+     *         ao grafo
+     * @throws IllegalArgumentException Se a propriedade for nula
+     */
+    public int getClusterId(Cadastro property) {
+        int vertex = graph.getVertexId(property);
+        return vertex < 0 ? -1 : clusterOf[vertex];
+    }
+
+    /**
+     * Retorna o cluster de um vértice do grafo.
+     *
+     * @param vertexId O identificador do vértice
+     * @return O identificador do cluster
+     */
+    public int getClusterOf(int vertexId) {
+        return clusterOf[vertexId];
+    }
+
+    /**
+     * Retorna o número de clusters.
+     *
+     * @return Número de clusters
+     */
+    public int getNumberOfClusters() {
+        return clusterAreas.length;
+    }
+
+    /**
+     * Retorna o proprietário de um cluster.
+     *
+     * @param cluster O identificador do cluster
+     * @return O ID do proprietário
+     */
+    public int getClusterOwner(int cluster) {
+        return clusterOwners[cluster];
+    }
+
+    /**
+     * Retorna o número de propriedades de um cluster.
+     *
+     * @param cluster O identificador do cluster
+     * @return Número de propriedades
+     */
+    public int getClusterSize(int cluster) {
+        return clusterSizes[cluster];
+    }
+
+    /**
+     * Retorna a área total das propriedades de um cluster.
+     *
+     * @param cluster O identificador do cluster
+     * @return A área do cluster
+     */
+    public double getClusterArea(int cluster) {
+        return clusterAreas[cluster];
+    }
+
+    /**
+     * Retorna a área média dos clusters com pelo menos uma propriedade num
+     * conjunto de vértices, como as linhas de uma freguesia de um
+     * {@code CadastroIndex}. Cada cluster conta uma única vez, com a sua área
+     * total, mesmo que tenha propriedades fora do conjunto.
+     *
+     * @param vertices Os identificadores dos vértices
+     * @return A área média dos clusters, ou 0 se o conjunto estiver vazio
+     */
+    public double getAverageClusterArea(int[] vertices) {
+        int[] clusters = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            clusters[i] = clusterOf[vertices[i]];
+        }
+        Arrays.sort(clusters);
+
+        double total = 0.0;
+        int count = 0;
+        for (int i = 0; i < clusters.length; i++) {
+            if (i == 0 || clusters[i] != clusters[i - 1]) {
+                total += clusterAreas[clusters[i]];
+                count++;
+            }
+        }
+        return count == 0 ? 0.0 : total / count;
+    }
+}
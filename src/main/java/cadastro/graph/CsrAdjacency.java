@@ -0,0 +1,434 @@
+package cadastro.graph;
+
+import java.util.Arrays;
+
+/**
+ * Representação imutável das adjacências de um grafo não orientado no formato
+ * CSR (compressed sparse row). Os vizinhos do vértice {@code v} ocupam as
+ * posições {@code offsets[v]} a {@code offsets[v + 1] - 1} do array
+ * {@code neighbours}, por ordem crescente e sem repetições. Cada aresta surge
+ * assim duas vezes, uma em cada extremo.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class CsrAdjacency {
+    /** Bytes estimados do cabeçalho de um objeto (com compressed oops) */
+    private static final int OBJECT_HEADER_BYTES = 12;
+    /** Bytes estimados do cabeçalho de um array */
+    private static final int ARRAY_HEADER_BYTES = 16;
+    /** Bytes estimados de uma referência (com compressed oops) */
+    private static final int REFERENCE_BYTES = 4;
+    /** Bytes estimados de um nó de HashMap (hash, key, value, next) */
+    private static final int HASH_NODE_BYTES = 32;
+    /** Bytes estimados de um HashMap vazio, sem a tabela */
+    private static final int HASH_MAP_BYTES = 48;
+    /** Bytes estimados de um HashSet vazio com o HashMap interno */
+    private static final int HASH_SET_BYTES = 16 + HASH_MAP_BYTES;
+
+    private final int[] offsets;
+    private final int[] neighbours;
+
+    private CsrAdjacency(int[] offsets, int[] neighbours) {
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Constrói a representação CSR a partir de uma lista de arestas. Arestas
+     * repetidas e lacetes são ignorados.
+     *
+     * @param edges As arestas do grafo
+     * @param vertexCount O número de vértices do grafo
+     * @return A representação CSR das arestas
+     */
+    static CsrAdjacency fromEdges(EdgeList edges, int vertexCount) {
+        int[] degrees = new int[vertexCount + 1];
+        for (int k = 0; k < edges.size(); k++) {
+            if (edges.first(k) != edges.second(k)) {
+                degrees[edges.first(k) + 1]++;
+                degrees[edges.second(k) + 1]++;
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            degrees[v + 1] += degrees[v];
+        }
+
+        int[] next = Arrays.copyOf(degrees, vertexCount);
+        int[] neighbours = new int[degrees[vertexCount]];
+        for (int k = 0; k < edges.size(); k++) {
+            int u = edges.first(k);
+            int v = edges.second(k);
+            if (u != v) {
+                neighbours[next[u]++] = v;
+                neighbours[next[v]++] = u;
+            }
+        }
+
+        return compact(degrees, neighbours, vertexCount);
+    }
+
+    /**
+     * Ordena os vizinhos de cada vértice e remove repetições, deslocando as
+     * listas para que fiquem contíguas.
+     */
+    private static CsrAdjacency compact(int[] offsets, int[] neighbours, int vertexCount) {
+        int write = 0;
+        int start = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            int end = offsets[v + 1];
+            Arrays.sort(neighbours, start, end);
+            offsets[v] = write;
+            for (int k = start; k < end; k++) {
+                if (k == start || neighbours[k] != neighbours[k - 1]) {
+                    neighbours[write++] = neighbours[k];
+                }
+            }
+            start = end;
+        }
+        offsets[vertexCount] = write;
+        return new CsrAdjacency(offsets, write == neighbours.length ? neighbours : Arrays.copyOf(neighbours, write));
+    }
+
+    /**
+     * Retorna o número de vértices.
+     *
+     * @return Número de vértices
+     */
+    int vertexCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Retorna o número de arestas não orientadas.
+     *
+     * @return Número de arestas
+     */
+    int edgeCount() {
+        return neighbours.length / 2;
+    }
+
+    /**
+     * Retorna o grau de um vértice.
+     *
+     * @param v O vértice
+     * @return Número de vizinhos do vértice
+     */
+    int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Retorna a posição, no array de vizinhos, do primeiro vizinho de um vértice.
+     *
+     * @param v O vértice
+     * @return Posição inicial dos vizinhos do vértice
+     */
+    int start(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Retorna a posição, no array de vizinhos, a seguir ao último vizinho de
+     * um vértice.
+     *
+     * @param v O vértice
+     * @return Posição final (exclusiva) dos vizinhos do vértice
+     */
+    int end(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * Retorna o vizinho guardado numa posição do array de vizinhos.
+     *
+     * @param position A posição no array de vizinhos
+     * @return O vértice vizinho
+     */
+    int neighbourAt(int position) {
+        return neighbours[position];
+    }
+
+    /**
+     * Procura, por pesquisa binária, a posição de {@code v} entre os vizinhos
+     * de {@code u}.
+     *
+     * @param u O vértice cujos vizinhos são pesquisados
+     * @param v O vizinho procurado
+     * @return A posição no array de vizinhos, ou um valor negativo se os
+     *         vértices não forem adjacentes
+     */
+    int indexOf(int u, int v) {
+        int position = Arrays.binarySearch(neighbours, offsets[u], offsets[u + 1], v);
+        return position >= 0 ? position : -1;
+    }
+
+    /**
+     * Verifica se dois vértices são adjacentes.
+     *
+     * @param u Primeiro vértice
+     * @param v Segundo vértice
+     * @return true se os vértices forem adjacentes
+     */
+    boolean contains(int u, int v) {
+        return indexOf(u, v) >= 0;
+    }
+
+    /**
+     * Retorna uma cópia destas adjacências em que os vizinhos de um vértice
+     * são substituídos, acrescentando ou removendo também esse vértice das
+     * listas dos vizinhos novos ou antigos. As listas dos restantes vértices
+     * são copiadas em blocos contíguos, pelo que o custo, além da cópia dos
+     * arrays, só depende dos vértices afetados.
+     *
+     * O número de vértices pode crescer, com os novos vértices sem vizinhos
+     * além dos indicados, ou diminuir, desde que os vértices eliminados
+     * fiquem sem vizinhos.
+     *
+     * @param v O vértice cujos vizinhos são substituídos
+     * @param replacement Os novos vizinhos, por ordem crescente, sem repetições
+     *                    e sem o próprio vértice
+     * @param vertexCount O número de vértices da cópia
+     * @return As adjacências alteradas
+     */
+    CsrAdjacency withNeighbours(int v, int[] replacement, int vertexCount) {
+        int oldCount = vertexCount();
+        int[] previous = v < oldCount ? Arrays.copyOfRange(neighbours, offsets[v], offsets[v + 1]) : new int[0];
+
+        // Vértices afetados, por ordem crescente: o próprio vértice e os que
+        // ganham ou perdem a aresta com ele
+        int[] affected = new int[previous.length + replacement.length + 1];
+        int[] delta = new int[affected.length];
+        int count = 0;
+        boolean placed = false;
+        int p = 0;
+        int r = 0;
+        while (p < previous.length || r < replacement.length) {
+            int next;
+            int change;
+            if (r == replacement.length || p < previous.length && previous[p] < replacement[r]) {
+                next = previous[p++];
+                change = -1;
+            } else if (p == previous.length || replacement[r] < previous[p]) {
+                next = replacement[r++];
+                change = 1;
+            } else {
+                p++;
+                r++;
+                continue;
+            }
+            if (!placed && v < next) {
+                affected[count++] = v;
+                placed = true;
+            }
+            affected[count] = next;
+            delta[count++] = change;
+        }
+        if (!placed) {
+            affected[count++] = v;
+        }
+
+        int[] newOffsets = new int[vertexCount + 1];
+        for (int u = 0, k = 0; u < vertexCount; u++) {
+            int degree = u < oldCount ? degree(u) : 0;
+            if (k < count && affected[k] == u) {
+                degree = u == v ? replacement.length : degree + delta[k];
+                k++;
+            }
+            newOffsets[u + 1] = newOffsets[u] + degree;
+        }
+
+        int[] newNeighbours = new int[newOffsets[vertexCount]];
+        int from = 0;
+        for (int k = 0; k < count && affected[k] < vertexCount; k++) {
+            int u = affected[k];
+            copyBlock(from, Math.min(u, oldCount), newOffsets, newNeighbours);
+            int write = newOffsets[u];
+            if (u == v) {
+                System.arraycopy(replacement, 0, newNeighbours, write, replacement.length);
+            } else if (delta[k] < 0) {
+                for (int position = offsets[u]; position < offsets[u + 1]; position++) {
+                    if (neighbours[position] != v) {
+                        newNeighbours[write++] = neighbours[position];
+                    }
+                }
+            } else {
+                int position = u < oldCount ? offsets[u] : 0;
+                int end = u < oldCount ? offsets[u + 1] : 0;
+                while (position < end && neighbours[position] < v) {
+                    newNeighbours[write++] = neighbours[position++];
+                }
+                newNeighbours[write++] = v;
+                System.arraycopy(neighbours, position, newNeighbours, write, end - position);
+            }
+            from = u + 1;
+        }
+        copyBlock(from, Math.min(vertexCount, oldCount), newOffsets, newNeighbours);
+        return new CsrAdjacency(newOffsets, newNeighbours);
+    }
+
+    /**
+     * Retorna uma cópia destas adjacências sem um vértice e as suas arestas.
+     * Para manter os vértices contíguos, o último vértice passa a ter o
+     * identificador do removido, com os mesmos vizinhos. Todas as listas
+     * afetadas (as dos vizinhos do removido e do último) são alteradas numa
+     * única cópia dos arrays; as restantes são copiadas em blocos contíguos.
+     *
+     * @param v O vértice a remover
+     * @return As adjacências com um vértice a menos
+     */
+    CsrAdjacency withoutVertex(int v) {
+        int last = vertexCount() - 1;
+        int source = offsets[last];
+
+        // Vértices afetados, por ordem crescente: os vizinhos do removido, que
+        // perdem a aresta, os do último, que passam a apontar para v, e o
+        // próprio v, que recebe a lista do último
+        int[] affected = new int[degree(v) + degree(last) + 1];
+        int count = 0;
+        int p = offsets[v];
+        int q = source;
+        boolean placed = v == last;
+        while (p < offsets[v + 1] || q < offsets[last + 1]) {
+            int next;
+            if (q == offsets[last + 1] || p < offsets[v + 1] && neighbours[p] <= neighbours[q]) {
+                next = neighbours[p++];
+                if (q < offsets[last + 1] && neighbours[q] == next) {
+                    q++;
+                }
+            } else {
+                next = neighbours[q++];
+            }
+            if (next == last || next == v) {
+                continue;
+            }
+            if (!placed && v < next) {
+                affected[count++] = v;
+                placed = true;
+            }
+            affected[count++] = next;
+        }
+        if (!placed) {
+            affected[count++] = v;
+        }
+
+        int[] newOffsets = new int[last + 1];
+        for (int u = 0, k = 0; u < last; u++) {
+            int degree = degree(u);
+            if (k < count && affected[k] == u) {
+                degree = splicedRow(v, u, null, 0);
+                k++;
+            }
+            newOffsets[u + 1] = newOffsets[u] + degree;
+        }
+
+        int[] newNeighbours = new int[newOffsets[last]];
+        int from = 0;
+        for (int k = 0; k < count; k++) {
+            int u = affected[k];
+            copyBlock(from, u, newOffsets, newNeighbours);
+            splicedRow(v, u, newNeighbours, newOffsets[u]);
+            from = u + 1;
+        }
+        copyBlock(from, last, newOffsets, newNeighbours);
+        return new CsrAdjacency(newOffsets, newNeighbours);
+    }
+
+    /**
+     * Escreve a lista de vizinhos do vértice {@code u} depois da remoção de
+     * {@code v}: sem {@code v} e com o último vértice renomeado para
+     * {@code v}, que é reposto na posição ordenada. A lista de {@code v} é a
+     * do último vértice. Com {@code target} nulo, só conta os vizinhos.
+     *
+     * @return O número de vizinhos da nova lista
+     */
+    private int splicedRow(int v, int u, int[] target, int write) {
+        int last = vertexCount() - 1;
+        int row = u == v ? last : u;
+        int end = offsets[row + 1];
+        boolean renamed = v != last && end > offsets[row] && neighbours[end - 1] == last;
+        if (renamed) {
+            end--;
+        }
+        int start = write;
+        for (int position = offsets[row]; position < end; position++) {
+            int w = neighbours[position];
+            if (w == v) {
+                continue;
+            }
+            if (renamed && v < w) {
+                if (target != null) {
+                    target[write] = v;
+                }
+                write++;
+                renamed = false;
+            }
+            if (target != null) {
+                target[write] = w;
+            }
+            write++;
+        }
+        if (renamed) {
+            if (target != null) {
+                target[write] = v;
+            }
+            write++;
+        }
+        return write - start;
+    }
+
+    /**
+     * Copia as listas de vizinhos de um intervalo de vértices não afetados,
+     * contíguas tanto no array original como no novo.
+     */
+    private void copyBlock(int from, int to, int[] newOffsets, int[] newNeighbours) {
+        if (from < to) {
+            System.arraycopy(neighbours, offsets[from], newNeighbours, newOffsets[from], offsets[to] - offsets[from]);
+        }
+    }
+
+    /**
+     * Estima os bytes ocupados por esta representação.
+     *
+     * @return Bytes estimados
+     */
+    long estimateBytes() {
+        return OBJECT_HEADER_BYTES + 2L * REFERENCE_BYTES
+                + ARRAY_HEADER_BYTES + 4L * offsets.length
+                + ARRAY_HEADER_BYTES + 4L * neighbours.length;
+    }
+
+    /**
+     * Estima os bytes que as mesmas adjacências ocupariam num
+     * {@code HashMap<Cadastro, Set<Cadastro>>} de {@code HashSet}s, a
+     * representação utilizada anteriormente pelo grafo.
+     *
+     * @return Bytes estimados
+     */
+    long estimateHashMapBytes() {
+        int keys = 0;
+        long bytes = 0;
+        for (int v = 0; v < vertexCount(); v++) {
+            int degree = degree(v);
+            if (degree > 0) {
+                keys++;
+                bytes += HASH_NODE_BYTES + HASH_SET_BYTES
+                        + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * tableSize(degree)
+                        + (long) HASH_NODE_BYTES * degree;
+            }
+        }
+        return bytes + HASH_MAP_BYTES + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * tableSize(keys);
+    }
+
+    /**
+     * Calcula a dimensão da tabela de um HashMap com o fator de carga por
+     * omissão (0,75) após inserir {@code entries} elementos.
+     */
+    private static int tableSize(int entries) {
+        int size = 16;
+        while (size * 3L / 4 < entries) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,119 @@
+package cadastro.graph;
+
+import cadastro.importer.Cadastro;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Hash do conteúdo de uma lista de cadastros, usado para saber se as
+ * adjacências gravadas num ficheiro de arestas ainda correspondem aos dados.
+ *
+ * O hash (SHA-256) cobre, por ordem, o ID, comprimento, área, proprietário e
+ * todas as coordenadas de cada cadastro, pelo que depende também da posição
+ * de cada cadastro na lista, que é o identificador do vértice no grafo. Os
+ * cadastros podem ser acrescentados um a um, o que permite calcular o hash
+ * enquanto os dados são lidos em streaming.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class DatasetHash {
+    private final MessageDigest digest;
+    private final ByteBuffer buffer;
+    private int count;
+
+    /**
+     * Constrói um hash vazio.
+     */
+    DatasetHash() {
+        try {
+            this.digest = MessageDigest.getInstance(PropertyGraphConstants.DATASET_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.buffer = ByteBuffer.allocate(PropertyGraphConstants.DATASET_HASH_BUFFER_SIZE);
+        this.count = 0;
+    }
+
+    /**
+     * Calcula o hash de uma lista de cadastros.
+     *
+     * @param cadastros A lista de cadastros
+     * @return O hash do conteúdo da lista
+     */
+    static byte[] of(List<Cadastro> cadastros) {
+        DatasetHash hash = new DatasetHash();
+        for (Cadastro cadastro : cadastros) {
+            hash.add(cadastro);
+        }
+        return hash.digest();
+    }
+
+    /**
+     * Acrescenta um cadastro ao hash.
+     *
+     * @param cadastro O cadastro a acrescentar
+     */
+    void add(Cadastro cadastro) {
+        ensureRemaining(Integer.BYTES * 2 + Double.BYTES * 2 + Integer.BYTES);
+        buffer.putInt(cadastro.getId());
+        buffer.putDouble(cadastro.getLength());
+        buffer.putDouble(cadastro.getArea());
+        buffer.putInt(cadastro.getOwner());
+
+        MultiPolygon shape = cadastro.getShape();
+        buffer.putInt(shape == null ? 0 : shape.getNumPoints());
+        if (shape != null) {
+            for (int p = 0; p < shape.getNumGeometries(); p++) {
+                Polygon polygon = (Polygon) shape.getGeometryN(p);
+                addRing(polygon.getExteriorRing().getCoordinateSequence());
+                for (int r = 0; r < polygon.getNumInteriorRing(); r++) {
+                    addRing(polygon.getInteriorRingN(r).getCoordinateSequence());
+                }
+            }
+        }
+        count++;
+    }
+
+    /**
+     * Acrescenta as coordenadas de um anel, lidas diretamente da sequência
+     * para não materializar objetos {@code Coordinate}.
+     */
+    private void addRing(CoordinateSequence sequence) {
+        for (int i = 0; i < sequence.size(); i++) {
+            ensureRemaining(Double.BYTES * 2);
+            buffer.putDouble(sequence.getX(i));
+            buffer.putDouble(sequence.getY(i));
+        }
+    }
+
+    /**
+     * Termina o cálculo e retorna o hash. Inclui o número de cadastros.
+     *
+     * @return O hash do conteúdo acrescentado
+     */
+    byte[] digest() {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(count);
+        flush();
+        return digest.digest();
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,134 @@
+package cadastro.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Ficheiro binário com as arestas de um grafo de propriedades.
+ *
+ * Formato (big-endian), versão {@link PropertyGraphConstants#EDGE_FILE_VERSION}:
+ * <pre>
+ * int     magic, int versão
+ * byte[]  hash do conjunto de cadastros ({@link DatasetHash}), precedido do tamanho em int
+ * int     n.º de vértices, int n.º de arestas
+ * long[]  arestas por ordem crescente, cada uma com u nos 32 bits mais
+ *         significativos e v nos restantes (u &lt; v)
+ * </pre>
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class EdgeFile {
+    private EdgeFile() {
+    }
+
+    /**
+     * Grava as arestas de uma representação CSR.
+     *
+     * @param path O caminho do ficheiro
+     * @param hash O hash do conjunto de cadastros
+     * @param adjacency As adjacências a gravar
+     * @throws IOException Se houver erro ao escrever o ficheiro
+     */
+    static void write(Path path, byte[] hash, CsrAdjacency adjacency) throws IOException {
+        EdgeList edges = new EdgeList();
+        for (int u = 0; u < adjacency.vertexCount(); u++) {
+            for (int k = adjacency.start(u); k < adjacency.end(u); k++) {
+                int v = adjacency.neighbourAt(k);
+                if (u < v) {
+                    edges.add(u, v);
+                }
+            }
+        }
+        write(path, hash, adjacency.vertexCount(), edges);
+    }
+
+    /**
+     * Grava uma lista de arestas. O ficheiro é escrito com um nome temporário
+     * e depois movido, para que um ficheiro incompleto nunca fique visível.
+     *
+     * @param path O caminho do ficheiro
+     * @param hash O hash do conjunto de cadastros
+     * @param vertexCount O número de vértices do grafo
+     * @param edges As arestas a gravar, sem repetições
+     * @throws IOException Se houver erro ao escrever o ficheiro
+     */
+    static void write(Path path, byte[] hash, int vertexCount, EdgeList edges) throws IOException {
+        long[] sorted = new long[edges.size()];
+        for (int k = 0; k < edges.size(); k++) {
+            sorted[k] = EdgeList.pack(edges.first(k), edges.second(k));
+        }
+        Arrays.sort(sorted);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(PropertyGraphConstants.EDGE_FILE_MAGIC);
+            out.writeInt(PropertyGraphConstants.EDGE_FILE_VERSION);
+            out.writeInt(hash.length);
+            out.write(hash);
+            out.writeInt(vertexCount);
+            out.writeInt(sorted.length);
+            for (long edge : sorted) {
+                out.writeLong(edge);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê as arestas de um ficheiro, se este corresponder ao conjunto de
+     * cadastros indicado.
+     *
+     * @param path O caminho do ficheiro
+     * @param hash O hash esperado do conjunto de cadastros
+     * @param vertexCount O número de vértices esperado
+     * @return As adjacências lidas, ou null se o ficheiro não existir, não
+     *         corresponder ao hash ou não puder ser lido
+     */
+    static CsrAdjacency read(Path path, byte[] hash, int vertexCount) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != PropertyGraphConstants.EDGE_FILE_MAGIC
+                    || buffer.getInt() != PropertyGraphConstants.EDGE_FILE_VERSION) {
+                return null;
+            }
+            byte[] stored = new byte[buffer.getInt()];
+            buffer.get(stored);
+            if (!Arrays.equals(stored, hash) || buffer.getInt() != vertexCount) {
+                return null;
+            }
+
+            int edgeCount = buffer.getInt();
+            EdgeList edges = new EdgeList();
+            for (int k = 0; k < edgeCount; k++) {
+                long edge = buffer.getLong();
+                int u = (int) (edge >>> 32);
+                int v = (int) edge;
+                if (u < 0 || v >= vertexCount || u >= v) {
+                    return null;
+                }
+                edges.add(u, v);
+            }
+            return CsrAdjacency.fromEdges(edges, vertexCount);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cadastro.graph;
+
+import java.util.Arrays;
+
+/**
+ * Lista compacta de arestas não orientadas entre vértices identificados por
+ * inteiros. Cada aresta é guardada num único {@code long}, com o vértice
+ * menor nos 32 bits mais significativos e o maior nos restantes, evitando a
+ * criação de um objeto por aresta.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+class EdgeList {
+    private long[] edges;
+    private int size;
+
+    /**
+     * Constrói uma lista de arestas vazia.
+     */
+    EdgeList() {
+        this.edges = new long[16];
+        this.size = 0;
+    }
+
+    /**
+     * Adiciona uma aresta entre dois vértices.
+     *
+     * @param u Primeiro vértice
+     * @param v Segundo vértice
+     */
+    void add(int u, int v) {
+        if (size == edges.length) {
+            edges = Arrays.copyOf(edges, size * 2);
+        }
+        edges[size++] = pack(u, v);
+    }
+
+    /**
+     * Adiciona todas as arestas de outra lista a esta lista.
+     *
+     * @param other A lista cujas arestas serão adicionadas
+     */
+    void addAll(EdgeList other) {
+        if (size + other.size > edges.length) {
+            edges = Arrays.copyOf(edges, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.edges, 0, edges, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Retorna o número de arestas na lista.
+     *
+     * @return Número de arestas
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retorna o vértice menor da aresta na posição indicada.
+     *
+     * @param index Posição da aresta
+     * @return O vértice menor da aresta
+     */
+    int first(int index) {
+        return (int) (edges[index] >>> 32);
+    }
+
+    /**
+     * Retorna o vértice maior da aresta na posição indicada.
+     *
+     * @param index Posição da aresta
+     * @return O vértice maior da aresta
+     */
+    int second(int index) {
+        return (int) edges[index];
+    }
+
+    /**
+     * Codifica uma aresta num {@code long}, com o vértice menor primeiro.
+     *
+     * @param u Primeiro vértice
+     * @param v Segundo vértice
+     * @return A aresta codificada
+     */
+    static long pack(int u, int v) {
+        int low = Math.min(u, v);
+        int high = Math.max(u, v);
+        return ((long) low << 32) | (high & 0xFFFFFFFFL);
+    }
+}
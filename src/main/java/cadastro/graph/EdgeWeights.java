@@ -0,0 +1,152 @@
+package cadastro.graph;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Comprimento da fronteira partilhada de cada aresta de um
+ * {@link PropertyGraph}, guardado num array de {@code double} alinhado com as
+ * posições do array de vizinhos da {@link CsrAdjacency}: o peso da aresta
+ * entre {@code u} e o vizinho na posição {@code p} está na posição {@code p},
+ * e é repetido na posição da mesma aresta na lista de vizinhos do outro
+ * extremo.
+ *
+ * Cada peso é calculado na primeira vez que é pedido e memorizado, ou todos
+ * de uma vez, em paralelo, com {@link #computeAll(int)}. As posições ainda por
+ * calcular têm o valor {@code NaN}; as leituras e escritas usam um
+ * {@link VarHandle} com semântica de aquisição e libertação, pelo que um peso
+ * calculado por uma thread é visto completo pelas outras. Duas threads podem
+ * calcular o mesmo peso ao mesmo tempo, com o mesmo resultado.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class EdgeWeights {
+    private static final VarHandle WEIGHTS = MethodHandles.arrayElementVarHandle(double[].class);
+
+    private final PropertyGraph graph;
+    private final CsrAdjacency adjacency;
+    private final double[] weights;
+    private volatile boolean complete;
+
+    /**
+     * Cria os pesos de um grafo, ainda por calcular.
+     *
+     * @param graph O grafo de propriedades
+     */
+    EdgeWeights(PropertyGraph graph) {
+        this.graph = graph;
+        this.adjacency = graph.getAdjacency();
+        this.weights = new double[2 * adjacency.edgeCount()];
+        Arrays.fill(weights, Double.NaN);
+    }
+
+    /**
+     * Retorna o peso de uma aresta, calculando-o se ainda não tiver sido
+     * calculado.
+     *
+     * @param u O vértice de origem
+     * @param position A posição do vizinho de {@code u} no array de vizinhos
+     * @return O comprimento da fronteira partilhada
+     * @throws IllegalStateException Se houver erro na análise topológica
+     */
+    double get(int u, int position) {
+        double weight = (double) WEIGHTS.getAcquire(weights, position);
+        if (Double.isNaN(weight)) {
+            int v = adjacency.neighbourAt(position);
+            weight = SharedBoundary.length(graph.getProperty(u).getShape(), graph.getProperty(v).getShape());
+            WEIGHTS.setRelease(weights, position, weight);
+            WEIGHTS.setRelease(weights, adjacency.indexOf(v, u), weight);
+        }
+        return weight;
+    }
+
+    /**
+     * Retorna o peso da aresta entre dois vértices.
+     *
+     * @param u O primeiro vértice
+     * @param v O segundo vértice
+     * @return O comprimento da fronteira partilhada, ou 0 se os vértices não
+     *         forem adjacentes
+     * @throws IllegalStateException Se houver erro na análise topológica
+     */
+    double getBetween(int u, int v) {
+        int position = adjacency.indexOf(u, v);
+        return position < 0 ? 0.0 : get(u, position);
+    }
+
+    /**
+     * Calcula todos os pesos ainda por calcular, dividindo os vértices por
+     * várias threads. Cada aresta é calculada a partir do extremo de menor
+     * identificador.
+     *
+     * @param parallelism Número de threads a utilizar (1 para sequencial)
+     * @throws IllegalStateException Se houver erro na análise topológica
+     */
+    void computeAll(int parallelism) {
+        if (complete) {
+            return;
+        }
+        WeightTask task = new WeightTask(0, adjacency.vertexCount());
+        if (parallelism == 1) {
+            task.compute();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        complete = true;
+    }
+
+    /**
+     * Retorna o número de posições com o peso já calculado.
+     *
+     * @return Número de posições calculadas, o dobro das arestas calculadas
+     */
+    int getComputedCount() {
+        int count = 0;
+        for (int position = 0; position < weights.length; position++) {
+            if (!Double.isNaN((double) WEIGHTS.getAcquire(weights, position))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tarefa que calcula os pesos das arestas de um intervalo de vértices,
+     * dividida ao meio enquanto o intervalo for maior que
+     * {@link PropertyGraphConstants#PARALLEL_BUILD_THRESHOLD}.
+     */
+    private class WeightTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        WeightTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PropertyGraphConstants.PARALLEL_BUILD_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new WeightTask(from, middle), new WeightTask(middle, to));
+                return;
+            }
+            for (int u = from; u < to; u++) {
+                for (int position = adjacency.start(u); position < adjacency.end(u); position++) {
+                    if (adjacency.neighbourAt(position) > u) {
+                        EdgeWeights.this.get(u, position);
+                    }
+                }
+            }
+        }
+    }
+}
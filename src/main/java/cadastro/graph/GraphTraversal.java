@@ -0,0 +1,385 @@
+package cadastro.graph;
+
+import cadastro.importer.Cadastro;
+import org.locationtech.jts.geom.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Percursos sobre um {@link PropertyGraph}: vizinhança a k saltos, distância
+ * em saltos entre duas propriedades e caminho mais curto com pesos nas
+ * arestas ({@link PropertyGraphConstants#WEIGHT_CENTROID_DISTANCE} ou
+ * {@link PropertyGraphConstants#WEIGHT_BOUNDARY_LENGTH}).
+ *
+ * Os percursos trabalham com os identificadores dos vértices e usam filas e
+ * heaps em arrays de primitivos. Cada thread tem os seus arrays de trabalho,
+ * criados na primeira consulta e reutilizados nas seguintes; os vértices
+ * visitados são marcados com o número da consulta, pelo que não é preciso
+ * limpar os arrays entre consultas. Uma consulta só aloca o resultado, e
+ * várias threads podem fazer consultas ao mesmo tempo.
+ *
+ * Os centróides das propriedades são calculados, em paralelo, na primeira
+ * consulta com a distância entre centróides. O comprimento da fronteira
+ * partilhada de cada aresta é calculado só quando a aresta é percorrida e
+ * fica memorizado no grafo ({@link PropertyGraph#getSharedBoundaryLength}).
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public class GraphTraversal {
+    private final PropertyGraph graph;
+    private final CsrAdjacency adjacency;
+    private final ThreadLocal<Scratch> scratch;
+    private volatile double[] centroids;
+
+    /**
+     * Caminho entre duas propriedades e o seu custo.
+     */
+    public static final class Path {
+        private final List<Cadastro> properties;
+        private final double cost;
+
+        private Path(List<Cadastro> properties, double cost) {
+            this.properties = properties;
+            this.cost = cost;
+        }
+
+        /**
+         * @return As propriedades do caminho, da origem ao destino, ou uma
+         *         lista vazia se o destino não for alcançável
+         */
+        public List<Cadastro> getProperties() {
+            return properties;
+        }
+
+        /**
+         * @return A soma dos pesos das arestas do caminho, ou
+         *         {@link Double#POSITIVE_INFINITY} se o destino não for
+         *         alcançável
+         */
+        public double getCost() {
+            return cost;
+        }
+    }
+
+    /**
+     * Arrays de trabalho de uma thread.
+     */
+    private static final class Scratch {
+        final int[] marks;
+        final int[] settled;
+        final int[] queue;
+        final int[] hops;
+        final int[] previous;
+        final double[] costs;
+        int[] heapVertices;
+        double[] heapCosts;
+        int mark;
+
+        Scratch(int n) {
+            this.marks = new int[n];
+            this.settled = new int[n];
+            this.queue = new int[n];
+            this.hops = new int[n];
+            this.previous = new int[n];
+            this.costs = new double[n];
+            this.heapVertices = new int[Math.max(16, n)];
+            this.heapCosts = new double[heapVertices.length];
+        }
+
+        /**
+         * Começa uma consulta: os vértices com a marca anterior passam a não
+         * visitados.
+         */
+        int next() {
+            if (++mark == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                Arrays.fill(settled, 0);
+                mark = 1;
+            }
+            return mark;
+        }
+    }
+
+    /**
+     * Prepara os percursos sobre um grafo.
+     *
+     * @param graph O grafo de propriedades
+     * @throws IllegalArgumentException Se o grafo for nulo
+     */
+    public GraphTraversal(PropertyGraph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_GRAPH_ERROR);
+        }
+        this.graph = graph;
+        this.adjacency = graph.getAdjacency();
+        int n = graph.getNumberOfProperties();
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+    }
+
+    private int vertexOf(Cadastro property) {
+        int vertex = graph.getVertexId(property);
+        if (vertex < 0) {
+            throw new IllegalArgumentException(PropertyGraphConstants.PROPERTY_NOT_IN_GRAPH_ERROR);
+        }
+        return vertex;
+    }
+
+    /**
+     * Retorna as propriedades a no máximo {@code hops} saltos de uma
+     * propriedade, sem a própria, por ordem de distância.
+     *
+     * @param property A propriedade de origem
+     * @param hops O número máximo de saltos
+     * @return As propriedades da vizinhança
+     * @throws IllegalArgumentException Se a propriedade for nula ou não
+     *                                  pertencer ao grafo, ou se o número de
+     *                                  saltos for negativo
+     */
+    public List<Cadastro> getNeighbourhood(Cadastro property, int hops) {
+        int[] vertices = getNeighbourhood(vertexOf(property), hops);
+        List<Cadastro> neighbourhood = new ArrayList<>(vertices.length);
+        for (int vertex : vertices) {
+            neighbourhood.add(graph.getProperty(vertex));
+        }
+        return neighbourhood;
+    }
+
+    /**
+     * Retorna os vértices a no máximo {@code hops} saltos de um vértice, sem
+     * o próprio, por ordem de distância.
+     *
+     * @param vertex O vértice de origem
+     * @param hops O número máximo de saltos
+     * @return Os identificadores dos vértices da vizinhança
+     * @throws IllegalArgumentException Se o vértice não pertencer ao grafo ou
+     *                                  se o número de saltos for negativo
+     */
+    public int[] getNeighbourhood(int vertex, int hops) {
+        if (vertex < 0 || vertex >= adjacency.vertexCount()) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_VERTEX_ERROR + vertex);
+        }
+        if (hops < 0) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_HOPS_ERROR);
+        }
+        Scratch s = scratch.get();
+        int mark = s.next();
+        s.marks[vertex] = mark;
+        s.hops[vertex] = 0;
+        s.queue[0] = vertex;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int v = s.queue[head++];
+            if (s.hops[v] == hops) {
+                continue;
+            }
+            for (int position = adjacency.start(v); position < adjacency.end(v); position++) {
+                int u = adjacency.neighbourAt(position);
+                if (s.marks[u] != mark) {
+                    s.marks[u] = mark;
+                    s.hops[u] = s.hops[v] + 1;
+                    s.queue[tail++] = u;
+                }
+            }
+        }
+        return Arrays.copyOfRange(s.queue, 1, tail);
+    }
+
+    /**
+     * Retorna o número mínimo de saltos entre duas propriedades, por pesquisa
+     * em largura a partir da origem até encontrar o destino.
+     *
+     * @param from A propriedade de origem
+     * @param to A propriedade de destino
+     * @return O número de saltos, ou -1 se o destino não for alcançável
+     * @throws IllegalArgumentException Se alguma propriedade for nula ou não
+     *                                  pertencer ao grafo
+     */
+    public int getDistance(Cadastro from, Cadastro to) {
+        int source = vertexOf(from);
+        int target = vertexOf(to);
+        if (source == target) {
+            return 0;
+        }
+        Scratch s = scratch.get();
+        int mark = s.next();
+        s.marks[source] = mark;
+        s.hops[source] = 0;
+        s.queue[0] = source;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int v = s.queue[head++];
+            for (int position = adjacency.start(v); position < adjacency.end(v); position++) {
+                int u = adjacency.neighbourAt(position);
+                if (s.marks[u] != mark) {
+                    if (u == target) {
+                        return s.hops[v] + 1;
+                    }
+                    s.marks[u] = mark;
+                    s.hops[u] = s.hops[v] + 1;
+                    s.queue[tail++] = u;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retorna o caminho de menor custo entre duas propriedades, pelo algoritmo
+     * de Dijkstra, parando quando o destino é fixado.
+     *
+     * @param from A propriedade de origem
+     * @param to A propriedade de destino
+     * @param weightMode {@link PropertyGraphConstants#WEIGHT_CENTROID_DISTANCE}
+     *                   ou {@link PropertyGraphConstants#WEIGHT_BOUNDARY_LENGTH}
+     * @return O caminho e o seu custo
+     * @throws IllegalArgumentException Se alguma propriedade for nula ou não
+     *                                  pertencer ao grafo, ou se o modo dos
+     *                                  pesos for desconhecido
+     * @throws IllegalStateException Se houver erro no cálculo das fronteiras
+     */
+    public Path getShortestPath(Cadastro from, Cadastro to, int weightMode) {
+        int source = vertexOf(from);
+        int target = vertexOf(to);
+        double[] points = null;
+        EdgeWeights lengths = null;
+        if (weightMode == PropertyGraphConstants.WEIGHT_CENTROID_DISTANCE) {
+            points = centroids();
+        } else if (weightMode == PropertyGraphConstants.WEIGHT_BOUNDARY_LENGTH) {
+            lengths = graph.getEdgeWeights();
+        } else {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_WEIGHT_MODE_ERROR + weightMode);
+        }
+
+        Scratch s = scratch.get();
+        int mark = s.next();
+        s.marks[source] = mark;
+        s.costs[source] = 0.0;
+        s.previous[source] = -1;
+        int heapSize = push(s, 0, source, 0.0);
+        while (heapSize > 0) {
+            int v = s.heapVertices[0];
+            double cost = s.heapCosts[0];
+            heapSize = pop(s, heapSize);
+            if (s.settled[v] == mark) {
+                continue;
+            }
+            s.settled[v] = mark;
+            if (v == target) {
+                break;
+            }
+            for (int position = adjacency.start(v); position < adjacency.end(v); position++) {
+                int u = adjacency.neighbourAt(position);
+                if (s.settled[u] == mark) {
+                    continue;
+                }
+                double weight = points != null
+                        ? Math.hypot(points[2 * u] - points[2 * v], points[2 * u + 1] - points[2 * v + 1])
+                        : lengths.get(v, position);
+                double candidate = cost + weight;
+                if (s.marks[u] != mark || candidate < s.costs[u]) {
+                    s.marks[u] = mark;
+                    s.costs[u] = candidate;
+                    s.previous[u] = v;
+                    heapSize = push(s, heapSize, u, candidate);
+                }
+            }
+        }
+
+        if (s.settled[target] != mark) {
+            return new Path(Collections.emptyList(), Double.POSITIVE_INFINITY);
+        }
+        List<Cadastro> path = new ArrayList<>();
+        for (int v = target; v >= 0; v = s.previous[v]) {
+            path.add(graph.getProperty(v));
+        }
+        Collections.reverse(path);
+        return new Path(Collections.unmodifiableList(path), s.costs[target]);
+    }
+
+    /**
+     * Insere um vértice no heap binário de custos mínimos da thread. Um
+     * vértice pode ficar várias vezes no heap; as entradas de vértices já
+     * fixados são ignoradas ao sair.
+     *
+     * @return O novo tamanho do heap
+     */
+    private static int push(Scratch s, int size, int vertex, double cost) {
+        if (size == s.heapVertices.length) {
+            s.heapVertices = Arrays.copyOf(s.heapVertices, size * 2);
+            s.heapCosts = Arrays.copyOf(s.heapCosts, size * 2);
+        }
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (s.heapCosts[parent] <= cost) {
+                break;
+            }
+            s.heapVertices[i] = s.heapVertices[parent];
+            s.heapCosts[i] = s.heapCosts[parent];
+            i = parent;
+        }
+        s.heapVertices[i] = vertex;
+        s.heapCosts[i] = cost;
+        return size + 1;
+    }
+
+    /**
+     * Remove o topo do heap binário da thread.
+     *
+     * @return O novo tamanho do heap
+     */
+    private static int pop(Scratch s, int size) {
+        int last = --size;
+        int vertex = s.heapVertices[last];
+        double cost = s.heapCosts[last];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && s.heapCosts[child + 1] < s.heapCosts[child]) {
+                child++;
+            }
+            if (s.heapCosts[child] >= cost) {
+                break;
+            }
+            s.heapVertices[i] = s.heapVertices[child];
+            s.heapCosts[i] = s.heapCosts[child];
+            i = child;
+        }
+        s.heapVertices[i] = vertex;
+        s.heapCosts[i] = cost;
+        return size;
+    }
+
+    /**
+     * Retorna as coordenadas dos centróides das propriedades, calculadas na
+     * primeira chamada.
+     */
+    private double[] centroids() {
+        double[] points = centroids;
+        if (points == null) {
+            synchronized (this) {
+                points = centroids;
+                if (points == null) {
+                    double[] computed = new double[2 * graph.getNumberOfProperties()];
+                    IntStream.range(0, graph.getNumberOfProperties()).parallel().forEach(v -> {
+                        Point centroid = graph.getProperty(v).getShape().getCentroid();
+                        computed[2 * v] = centroid.getX();
+                        computed[2 * v + 1] = centroid.getY();
+                    });
+                    centroids = points = computed;
+                }
+            }
+        }
+        return points;
+    }
+}
@@ -23,8 +23,13 @@ public class Main {
     public static void main(String[] args) throws Exception {
         String filePath = "Dados/Madeira-Moodle-1.1.csv";
         
-        List<Cadastro> cadastros = Cadastro.getCadastros(filePath);
+        int parallelism = Runtime.getRuntime().availableProcessors();
         
-        new PropertyGraph(cadastros);
+        List<Cadastro> cadastros = Cadastro.getCadastros(filePath, parallelism);
+        System.out.println(Cadastro.getMemoryReport(cadastros));
+        
+        PropertyGraph graph = PropertyGraph.load(cadastros, filePath + PropertyGraphConstants.EDGE_FILE_EXTENSION,
+                parallelism);
+        System.out.println(graph.getMemoryReport());
     }
 }
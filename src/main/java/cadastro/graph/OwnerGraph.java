@@ -0,0 +1,270 @@
+package cadastro.graph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Grafo de adjacência entre proprietários, derivado de um {@link PropertyGraph}.
+ * Dois proprietários são adjacentes quando têm pelo menos um par de
+ * propriedades adjacentes.
+ *
+ * O grafo é construído numa única passagem pelas arestas do grafo de
+ * propriedades: cada aresta entre proprietários diferentes é convertida num
+ * {@code long} com os índices dos dois proprietários, os valores são
+ * ordenados e as repetições contadas. O resultado fica em arrays primitivos
+ * no formato CSR, com o peso de cada aresta (o número de fronteiras
+ * partilhadas e, opcionalmente, o comprimento total dessas fronteiras)
+ * alinhado com a posição do vizinho.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public class OwnerGraph {
+    private final int[] owners;
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final int[] sharedBorders;
+    private final double[] boundaryLengths;
+
+    /**
+     * Constrói o grafo de proprietários, sem calcular o comprimento das
+     * fronteiras.
+     *
+     * @param graph O grafo de propriedades
+     * @throws IllegalArgumentException Se o grafo for nulo
+     */
+    public OwnerGraph(PropertyGraph graph) {
+        this(graph, false);
+    }
+
+    /**
+     * Constrói o grafo de proprietários.
+     *
+     * @param graph O grafo de propriedades
+     * @param boundaryLength Se deve ser calculado o comprimento das fronteiras
+     *                       partilhadas, o que exige uma operação geométrica
+     *                       por cada par de propriedades adjacentes de
+     *                       proprietários diferentes ainda não calculado no
+     *                       grafo ({@link PropertyGraph#getSharedBoundaryLength})
+     * @throws IllegalArgumentException Se o grafo for nulo
+     * @throws IllegalStateException Se houver erro no cálculo das fronteiras
+     */
+    public OwnerGraph(PropertyGraph graph, boolean boundaryLength) {
+        if (graph == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_GRAPH_ERROR);
+        }
+        CsrAdjacency adjacency = graph.getAdjacency();
+        int n = graph.getNumberOfProperties();
+
+        int[] ownerOf = new int[n];
+        for (int v = 0; v < n; v++) {
+            ownerOf[v] = graph.getProperty(v).getOwner();
+        }
+        this.owners = distinct(ownerOf);
+        for (int v = 0; v < n; v++) {
+            ownerOf[v] = Arrays.binarySearch(owners, ownerOf[v]);
+        }
+
+        // Arestas entre proprietários diferentes, com os índices dos proprietários
+        int count = 0;
+        long[] ownerPairs = new long[adjacency.edgeCount()];
+        int[] edgeSources = boundaryLength ? new int[adjacency.edgeCount()] : null;
+        int[] edgePositions = boundaryLength ? new int[adjacency.edgeCount()] : null;
+        for (int v = 0; v < n; v++) {
+            for (int position = adjacency.start(v); position < adjacency.end(v); position++) {
+                int u = adjacency.neighbourAt(position);
+                if (u > v && ownerOf[u] != ownerOf[v]) {
+                    ownerPairs[count] = EdgeList.pack(ownerOf[u], ownerOf[v]);
+                    if (edgePositions != null) {
+                        edgeSources[count] = v;
+                        edgePositions[count] = position;
+                    }
+                    count++;
+                }
+            }
+        }
+
+        double[] edgeLengths = null;
+        if (edgePositions != null) {
+            EdgeWeights weights = graph.getEdgeWeights();
+            edgeLengths = new double[count];
+            double[] lengths = edgeLengths;
+            IntStream.range(0, count).parallel().forEach(k -> lengths[k] = weights.get(edgeSources[k], edgePositions[k]));
+        }
+
+        long[] pairs = Arrays.copyOf(ownerPairs, count);
+        Arrays.parallelSort(pairs);
+        int distinctPairs = 0;
+        for (int k = 0; k < count; k++) {
+            if (k == 0 || pairs[k] != pairs[k - 1]) {
+                pairs[distinctPairs++] = pairs[k];
+            }
+        }
+
+        int[] pairBorders = new int[distinctPairs];
+        double[] pairLengths = edgeLengths != null ? new double[distinctPairs] : null;
+        for (int k = 0; k < count; k++) {
+            int pair = Arrays.binarySearch(pairs, 0, distinctPairs, ownerPairs[k]);
+            pairBorders[pair]++;
+            if (pairLengths != null) {
+                pairLengths[pair] += edgeLengths[k];
+            }
+        }
+
+        // CSR com cada par nos dois sentidos; como os pares estão ordenados, os
+        // vizinhos de cada proprietário ficam por ordem crescente
+        this.offsets = new int[owners.length + 1];
+        for (int k = 0; k < distinctPairs; k++) {
+            offsets[(int) (pairs[k] >>> 32) + 1]++;
+            offsets[(int) pairs[k] + 1]++;
+        }
+        for (int o = 0; o < owners.length; o++) {
+            offsets[o + 1] += offsets[o];
+        }
+        this.neighbours = new int[2 * distinctPairs];
+        this.sharedBorders = new int[2 * distinctPairs];
+        this.boundaryLengths = pairLengths != null ? new double[2 * distinctPairs] : null;
+        int[] next = Arrays.copyOf(offsets, owners.length);
+        for (int k = 0; k < distinctPairs; k++) {
+            int a = (int) (pairs[k] >>> 32);
+            int b = (int) pairs[k];
+            place(next[a]++, b, pairBorders[k], pairLengths, k);
+            place(next[b]++, a, pairBorders[k], pairLengths, k);
+        }
+    }
+
+    private void place(int position, int neighbour, int borders, double[] pairLengths, int pair) {
+        neighbours[position] = neighbour;
+        sharedBorders[position] = borders;
+        if (boundaryLengths != null) {
+            boundaryLengths[position] = pairLengths[pair];
+        }
+    }
+
+    /**
+     * Retorna os valores distintos de um array, por ordem crescente.
+     */
+    private static int[] distinct(int[] values) {
+        int[] sorted = values.clone();
+        Arrays.parallelSort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Retorna a posição da aresta entre dois proprietários no array de
+     * vizinhos.
+     *
+     * @return A posição, ou -1 se os proprietários não forem adjacentes
+     */
+    private int edge(int owner1, int owner2) {
+        int u = Arrays.binarySearch(owners, owner1);
+        int v = Arrays.binarySearch(owners, owner2);
+        if (u < 0 || v < 0) {
+            return -1;
+        }
+        int position = Arrays.binarySearch(neighbours, offsets[u], offsets[u + 1], v);
+        return position >= 0 ? position : -1;
+    }
+
+    /**
+     * Retorna os proprietários adjacentes a um proprietário.
+     *
+     * @param owner O ID do proprietário
+     * @return Os IDs dos proprietários adjacentes, por ordem crescente, ou um
+     *         array vazio se o proprietário não existir
+     */
+    public int[] getAdjacentOwners(int owner) {
+        int u = Arrays.binarySearch(owners, owner);
+        if (u < 0) {
+            return new int[0];
+        }
+        int[] adjacent = new int[offsets[u + 1] - offsets[u]];
+        for (int i = 0; i < adjacent.length; i++) {
+            adjacent[i] = owners[neighbours[offsets[u] + i]];
+        }
+        return adjacent;
+    }
+
+    /**
+     * Verifica se dois proprietários são adjacentes.
+     *
+     * @param owner1 O ID do primeiro proprietário
+     * @param owner2 O ID do segundo proprietário
+     * @return true se os proprietários tiverem propriedades adjacentes
+     */
+    public boolean areAdjacent(int owner1, int owner2) {
+        return edge(owner1, owner2) >= 0;
+    }
+
+    /**
+     * Retorna o número de pares de propriedades adjacentes entre dois
+     * proprietários.
+     *
+     * @param owner1 O ID do primeiro proprietário
+     * @param owner2 O ID do segundo proprietário
+     * @return O número de fronteiras partilhadas, 0 se não forem adjacentes
+     */
+    public int getSharedBorders(int owner1, int owner2) {
+        int position = edge(owner1, owner2);
+        return position < 0 ? 0 : sharedBorders[position];
+    }
+
+    /**
+     * Retorna o comprimento total das fronteiras partilhadas por dois
+     * proprietários.
+     *
+     * @param owner1 O ID do primeiro proprietário
+     * @param owner2 O ID do segundo proprietário
+     * @return O comprimento das fronteiras, 0 se não forem adjacentes
+     * @throws IllegalStateException Se o grafo foi construído sem o
+     *                               comprimento das fronteiras
+     */
+    public double getSharedBoundaryLength(int owner1, int owner2) {
+        if (boundaryLengths == null) {
+            throw new IllegalStateException(PropertyGraphConstants.BOUNDARY_LENGTH_NOT_COMPUTED_ERROR);
+        }
+        int position = edge(owner1, owner2);
+        return position < 0 ? 0.0 : boundaryLengths[position];
+    }
+
+    /**
+     * Retorna os proprietários do grafo.
+     *
+     * @return Os IDs dos proprietários, por ordem crescente
+     */
+    public int[] getOwners() {
+        return owners.clone();
+    }
+
+    /**
+     * Retorna o número total de proprietários no grafo.
+     *
+     * @return Número de proprietários
+     */
+    public int getNumberOfOwners() {
+        return owners.length;
+    }
+
+    /**
+     * Retorna o número total de adjacências entre proprietários.
+     *
+     * @return Número de pares de proprietários adjacentes
+     */
+    public int getNumberOfAdjacencies() {
+        return neighbours.length / 2;
+    }
+
+    /**
+     * @return String contendo o número de proprietários e de adjacências
+     */
+    @Override
+    public String toString() {
+        return String.format(PropertyGraphConstants.OWNER_GRAPH_STRING_FORMAT, owners.length, getNumberOfAdjacencies());
+    }
+}
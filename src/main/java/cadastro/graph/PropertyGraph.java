@@ -1,29 +1,276 @@
 package cadastro.graph;
 
 import cadastro.importer.Cadastro;
+import cadastro.importer.CadastroReader;
 import org.locationtech.jts.geom.MultiPolygon;
-import org.locationtech.jts.geom.TopologyException;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.locationtech.jts.index.strtree.STRtree;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Classe que representa um grafo de propriedades, onde os vértices são cadastros
  * e as arestas representam adjacências físicas entre as propriedades.
  * 
+ * Cada cadastro recebe como identificador a sua posição na lista e as
+ * adjacências ficam guardadas em formato CSR ({@link CsrAdjacency}), com dois
+ * arrays de inteiros em vez de um conjunto de objetos por propriedade. O grafo
+ * pode ser alterado depois de construído com {@link #addProperty(Cadastro)},
+ * {@link #removeProperty(Cadastro)} e
+ * {@link #replaceProperty(Cadastro, Cadastro)}, que só voltam a testar as
+ * propriedades vizinhas da alterada; as alterações não podem ser feitas ao
+ * mesmo tempo que outras operações sobre o grafo.
+ * 
  * @author [Lei-G]
  * @version 1.0
  */
 public class PropertyGraph {
-    private final List<Cadastro> cadastros;
-    private final Map<Cadastro, Set<Cadastro>> adjacencyList;
+    private List<Cadastro> cadastros;
+    private final Map<Cadastro, Integer> vertexIds;
+    private final AdjacencyPredicate predicate;
+    private final double snapTolerance;
+    private CsrAdjacency adjacency;
+    private volatile GraphTraversal traversal;
+    private volatile EdgeWeights edgeWeights;
+    private Quadtree updateIndex;
+    private final List<FailedPair> failedPairs = new ArrayList<>();
 
     /**
-     * Constrói um grafo de propriedades a partir de uma lista de cadastros.
+     * Constrói um grafo de propriedades a partir de uma lista de cadastros,
+     * utilizando uma única thread.
      * 
      * @param cadastros Lista de cadastros que serão os vértices do grafo
      * @throws IllegalArgumentException se a lista de cadastros for nula ou vazia
      */
     public PropertyGraph(List<Cadastro> cadastros) {
+        this(cadastros, 1);
+    }
+
+    /**
+     * Constrói um grafo de propriedades a partir de uma lista de cadastros,
+     * distribuindo os testes de adjacência por várias threads.
+     * 
+     * @param cadastros Lista de cadastros que serão os vértices do grafo
+     * @param parallelism Número de threads a utilizar na construção (1 para
+     *                    construção sequencial)
+     * @throws IllegalArgumentException se a lista de cadastros for nula ou vazia,
+     *                                  ou se o paralelismo for inferior a 1
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica
+     */
+    public PropertyGraph(List<Cadastro> cadastros, int parallelism) {
+        this(cadastros, parallelism, PropertyGraphConstants.PREDICATE_DE9IM);
+    }
+
+    /**
+     * Constrói um grafo de propriedades escolhendo o predicado de adjacência.
+     * O modo {@link PropertyGraphConstants#PREDICATE_VERIFY} avalia o predicado
+     * de passagem única e o predicado original em todos os pares, mantém o
+     * resultado do original e contabiliza as divergências, disponíveis em
+     * {@link #getPredicateMismatches()}. Os modos
+     * {@code PREDICATE_SEGMENT_HASH*} usam a tolerância
+     * {@link PropertyGraphConstants#SEGMENT_HASH_TOLERANCE}. O modo
+     * {@link PropertyGraphConstants#PREDICATE_ROBUST} não interrompe a
+     * construção quando um par falha a análise topológica: o par é testado de
+     * novo com as formas corrigidas e com precisão reduzida e, se voltar a
+     * falhar, é considerado não adjacente e registado em
+     * {@link #getFailedPairs()}.
+     * 
+     * @param cadastros Lista de cadastros que serão os vértices do grafo
+     * @param parallelism Número de threads a utilizar na construção (1 para
+     *                    construção sequencial)
+     * @param predicateMode Um dos modos {@code PREDICATE_*} de
+     *                      {@link PropertyGraphConstants}
+     * @throws IllegalArgumentException se a lista de cadastros for nula ou vazia,
+     *                                  se o paralelismo for inferior a 1 ou se o
+     *                                  modo do predicado for desconhecido
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica
+     */
+    public PropertyGraph(List<Cadastro> cadastros, int parallelism, int predicateMode) {
+        this(cadastros, parallelism, predicateMode, PropertyGraphConstants.SEGMENT_HASH_TOLERANCE);
+    }
+
+    /**
+     * Constrói um grafo de propriedades escolhendo o predicado de adjacência e
+     * a tolerância dos modos {@link PropertyGraphConstants#PREDICATE_SEGMENT_HASH}
+     * e {@link PropertyGraphConstants#PREDICATE_SEGMENT_HASH_VERIFY}, que
+     * detetam as adjacências por vértices partilhados ({@link SegmentHashAdjacency})
+     * numa passagem linear, sem predicados topológicos. O segundo verifica com
+     * o predicado DE-9IM os vizinhos de uma em cada
+     * {@link PropertyGraphConstants#SEGMENT_HASH_VERIFY_STRIDE} propriedades e
+     * contabiliza as divergências em {@link #getPredicateMismatches()}.
+     * 
+     * @param cadastros Lista de cadastros que serão os vértices do grafo
+     * @param parallelism Número de threads a utilizar na construção (1 para
+     *                    construção sequencial)
+     * @param predicateMode Um dos modos {@code PREDICATE_*} de
+     *                      {@link PropertyGraphConstants}
+     * @param snapTolerance Distância máxima, em cada eixo, entre vértices
+     *                      considerados iguais nos modos
+     *                      {@code PREDICATE_SEGMENT_HASH*}
+     * @throws IllegalArgumentException se a lista de cadastros for nula ou vazia,
+     *                                  se o paralelismo for inferior a 1, se o
+     *                                  modo do predicado for desconhecido ou se a
+     *                                  tolerância não for positiva
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica
+     */
+    public PropertyGraph(List<Cadastro> cadastros, int parallelism, int predicateMode, double snapTolerance) {
+        this(cadastros, parallelism, new AdjacencyPredicate(predicateMode), snapTolerance);
+    }
+
+    /**
+     * Constrói um grafo de propriedades com um predicado já criado, por
+     * exemplo um predicado robusto com outra correção das formas.
+     * 
+     * @param cadastros Lista de cadastros que serão os vértices do grafo
+     * @param parallelism Número de threads a utilizar na construção
+     * @param predicate O predicado de adjacência
+     * @throws IllegalArgumentException se a lista de cadastros for nula ou vazia,
+     *                                  ou se o paralelismo for inferior a 1
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica fora do modo robusto
+     */
+    PropertyGraph(List<Cadastro> cadastros, int parallelism, AdjacencyPredicate predicate) {
+        this(cadastros, parallelism, predicate, PropertyGraphConstants.SEGMENT_HASH_TOLERANCE);
+    }
+
+    private PropertyGraph(List<Cadastro> cadastros, int parallelism, AdjacencyPredicate predicate,
+            double snapTolerance) {
+        validate(cadastros);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_PARALLELISM_ERROR);
+        }
+        if (!(snapTolerance > 0) || Double.isInfinite(snapTolerance)) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_TOLERANCE_ERROR + snapTolerance);
+        }
+
+        this.cadastros = cadastros;
+        this.vertexIds = indexVertices(cadastros);
+        this.predicate = predicate;
+        this.snapTolerance = snapTolerance;
+        buildGraph(parallelism);
+    }
+
+    /**
+     * Constrói um grafo de propriedades com adjacências já conhecidas.
+     * 
+     * @param cadastros Lista de cadastros que serão os vértices do grafo
+     * @param adjacency As adjacências entre as posições da lista
+     */
+    private PropertyGraph(List<Cadastro> cadastros, CsrAdjacency adjacency) {
+        this.cadastros = cadastros;
+        this.vertexIds = indexVertices(cadastros);
+        this.predicate = new AdjacencyPredicate(PropertyGraphConstants.PREDICATE_DE9IM);
+        this.snapTolerance = PropertyGraphConstants.SEGMENT_HASH_TOLERANCE;
+        this.adjacency = adjacency;
+    }
+
+    /**
+     * Carrega o grafo de uma lista de cadastros a partir de um ficheiro de
+     * arestas gravado com {@link #save(String)}. O ficheiro só é usado se o
+     * hash do conteúdo da lista coincidir com o registado; caso contrário o
+     * grafo é construído de raiz e o ficheiro é regravado.
+     * 
+     * @param cadastros Lista de cadastros que serão os vértices do grafo
+     * @param path O caminho do ficheiro de arestas
+     * @param parallelism Número de threads a utilizar se for preciso construir
+     *                    o grafo
+     * @return O grafo de propriedades
+     * @throws IllegalArgumentException se a lista de cadastros for nula ou vazia,
+     *                                  ou se o paralelismo for inferior a 1
+     * @throws IllegalStateException se for preciso construir o grafo e algum par
+     *                               de propriedades falhar a análise topológica
+     */
+    public static PropertyGraph load(List<Cadastro> cadastros, String path, int parallelism) {
+        validate(cadastros);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_PARALLELISM_ERROR);
+        }
+
+        byte[] hash = DatasetHash.of(cadastros);
+        CsrAdjacency adjacency = EdgeFile.read(Path.of(path), hash, cadastros.size());
+        if (adjacency != null) {
+            return new PropertyGraph(cadastros, adjacency);
+        }
+
+        PropertyGraph graph = new PropertyGraph(cadastros, parallelism);
+        try {
+            EdgeFile.write(Path.of(path), hash, graph.adjacency);
+        } catch (IOException e) {
+            // O ficheiro de arestas é apenas uma cache; o grafo construído é válido
+        }
+        return graph;
+    }
+
+    /**
+     * Constrói as adjacências dos cadastros de um ficheiro CSV sem os manter
+     * todos em memória e grava-as num ficheiro de arestas, que pode depois ser
+     * carregado com {@link #load(List, String, int)} a partir da lista obtida
+     * com {@code Cadastro.getCadastros}. O modo {@code IMPORT_LAZY} também
+     * não mantém as formas em memória e ignora as mesmas linhas inválidas que
+     * a leitura em streaming, pelo que a ordem dos vértices é a mesma.
+     *
+     * Os cadastros são lidos em streaming e distribuídos por mosaicos
+     * quadrados gravados em ficheiros temporários; cada mosaico é processado
+     * sozinho, com as propriedades vizinhas que atravessam os seus limites
+     * ({@link TiledGraphBuilder}). As adjacências são as mesmas da construção
+     * em memória com o predicado DE-9IM.
+     *
+     * @param csvPath O caminho do ficheiro CSV
+     * @param edgePath O caminho do ficheiro de arestas
+     * @param tileSize O lado dos mosaicos, nas unidades das coordenadas
+     * @param parallelism Número de threads a utilizar (1 para construção
+     *                    sequencial), cada uma com um mosaico em memória
+     * @return Número de adjacências gravadas
+     * @throws IOException Se houver erro ao ler ou escrever ficheiros
+     * @throws IllegalArgumentException se o paralelismo for inferior a 1, se o
+     *                                  lado dos mosaicos não for positivo ou se
+     *                                  o ficheiro não tiver cadastros válidos
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica
+     */
+    public static int buildTiled(String csvPath, String edgePath, double tileSize, int parallelism)
+            throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_PARALLELISM_ERROR);
+        }
+        if (!(tileSize > 0) || Double.isInfinite(tileSize)) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_TILE_SIZE_ERROR + tileSize);
+        }
+
+        try (CadastroReader reader = new CadastroReader(csvPath)) {
+            return TiledGraphBuilder.build(reader, Path.of(edgePath), tileSize, parallelism);
+        }
+    }
+
+    /**
+     * Grava as arestas do grafo num ficheiro binário, identificado pelo hash
+     * do conteúdo da lista de cadastros, para ser carregado com
+     * {@link #load(List, String, int)}.
+     * 
+     * @param path O caminho do ficheiro de arestas
+     * @throws IOException Se houver erro ao escrever o ficheiro
+     */
+    public void save(String path) throws IOException {
+        EdgeFile.write(Path.of(path), DatasetHash.of(cadastros), adjacency);
+    }
+
+    /**
+     * Valida a lista de cadastros que servirá de vértices ao grafo.
+     * 
+     * @param cadastros Lista de cadastros a validar
+     * @throws IllegalArgumentException se a lista for nula, vazia ou contiver
+     *                                  elementos nulos
+     */
+    private static void validate(List<Cadastro> cadastros) {
         if (cadastros == null) {
             throw new IllegalArgumentException(PropertyGraphConstants.NULL_CADASTROS_ERROR);
         }
@@ -33,80 +280,494 @@ public class PropertyGraph {
         if (cadastros.contains(null)) {
             throw new IllegalArgumentException(PropertyGraphConstants.NULL_ELEMENTS_ERROR);
         }
+    }
 
-        this.cadastros = cadastros;
-        this.adjacencyList = new HashMap<>();
-        buildGraph();
+    /**
+     * Atribui a cada cadastro o identificador de vértice, que é a sua posição
+     * na lista (a primeira, se o cadastro surgir repetido).
+     * 
+     * @param cadastros Lista de cadastros
+     * @return Mapa de cada cadastro para o seu identificador
+     */
+    private static Map<Cadastro, Integer> indexVertices(List<Cadastro> cadastros) {
+        Map<Cadastro, Integer> vertexIds = new IdentityHashMap<>(cadastros.size());
+        for (int i = 0; i < cadastros.size(); i++) {
+            vertexIds.putIfAbsent(cadastros.get(i), i);
+        }
+        return vertexIds;
     }
 
     /**
-     * Constrói o grafo verificando adjacências entre todas as propriedades.
-     * @throws TopologyException se ocorrer um erro durante a análise topológica
+     * Constrói o grafo verificando adjacências entre as propriedades.
+     * Em vez de comparar todos os pares, utiliza um índice espacial (STRtree)
+     * sobre os envelopes das formas, testando apenas os pares cujos envelopes
+     * se intersetam ou tocam. Pares com envelopes disjuntos nunca podem ser
+     * adjacentes, pelo que o conjunto de adjacências é o mesmo da comparação
+     * exaustiva.
+     *
+     * Com mais de uma thread, as propriedades são distribuídas através de um
+     * {@link ForkJoinPool}. Cada tarefa testa os seus pares candidatos e
+     * acumula as adjacências encontradas numa lista própria; as listas são
+     * juntadas à medida que as tarefas terminam e só no fim são inseridas no
+     * grafo, pelo que não existe nenhum bloqueio partilhado durante os testes.
+     * O resultado é idêntico ao da construção sequencial.
+     *
+     * As formas são obtidas uma única vez, no início da construção, e
+     * reutilizadas em todos os testes. Com cadastros importados no modo
+     * {@code IMPORT_LAZY}, cada forma é assim lida e descodificada uma só vez,
+     * em vez de a cada par candidato, e a construção não depende da cache
+     * limitada das formas.
+     *
+     * @param parallelism Número de threads a utilizar
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica, com os restantes erros anexados
+     *                               como suprimidos, exceto no modo
+     *                               {@link PropertyGraphConstants#PREDICATE_ROBUST}
      */
-    private void buildGraph() {
-        try {
-            for (int i = 0; i < cadastros.size(); i++) {
-                for (int j = i + 1; j < cadastros.size(); j++) {
-                    Cadastro prop1 = cadastros.get(i);
-                    Cadastro prop2 = cadastros.get(j);
-                    
-                    if (arePropertiesPhysicallyAdjacent(prop1, prop2)) {
-                        addAdjacency(prop1, prop2);
+    private void buildGraph(int parallelism) {
+        MultiPolygon[] shapes = new MultiPolygon[cadastros.size()];
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = cadastros.get(i).getShape();
+        }
+
+        if (predicate.usesSegmentHash()) {
+            EdgeList edges = new SegmentHashAdjacency(shapes, snapTolerance).build(parallelism);
+            if (predicate.getMode() == PropertyGraphConstants.PREDICATE_SEGMENT_HASH_VERIFY) {
+                verifySample(shapes, edges);
+            }
+            adjacency = CsrAdjacency.fromEdges(canonicalize(edges), cadastros.size());
+            return;
+        }
+
+        STRtree index = buildSpatialIndex(shapes);
+        ConcurrentLinkedQueue<FailedPair> failures = new ConcurrentLinkedQueue<>();
+        BuildTask task = new BuildTask(shapes, index, 0, cadastros.size(), failures);
+
+        EdgeList edges;
+        if (parallelism == 1) {
+            edges = task.compute();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                edges = pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        if (predicate.getMode() == PropertyGraphConstants.PREDICATE_ROBUST) {
+            failedPairs.addAll(failures);
+            failedPairs.sort(Comparator.comparing(FailedPair::getMessage));
+        } else if (!failures.isEmpty()) {
+            IllegalStateException error = new IllegalStateException(
+                    PropertyGraphConstants.GRAPH_BUILD_ERROR + failures.size()
+                            + PropertyGraphConstants.FAILED_PAIRS_MESSAGE, failures.peek().error);
+            failures.stream().skip(1).forEach(failure -> error.addSuppressed(failure.error));
+            throw error;
+        }
+
+        adjacency = CsrAdjacency.fromEdges(canonicalize(edges), cadastros.size());
+    }
+
+    /**
+     * Compara as adjacências detetadas por vértices partilhados com o
+     * predicado DE-9IM, para uma em cada
+     * {@link PropertyGraphConstants#SEGMENT_HASH_VERIFY_STRIDE} propriedades:
+     * cada candidato do índice espacial e cada vizinho encontrado é testado e
+     * cada resultado diferente conta como uma divergência. Pares que falham a
+     * análise topológica também contam como divergências.
+     *
+     * @param shapes As formas das propriedades, pela ordem da lista
+     * @param edges As arestas entre posições da lista
+     */
+    private void verifySample(MultiPolygon[] shapes, EdgeList edges) {
+        STRtree index = buildSpatialIndex(shapes);
+        CsrAdjacency found = CsrAdjacency.fromEdges(edges, cadastros.size());
+        long mismatches = 0;
+        for (int i = 0; i < cadastros.size(); i += PropertyGraphConstants.SEGMENT_HASH_VERIFY_STRIDE) {
+            MultiPolygon shape = shapes[i];
+            if (shape == null) {
+                continue;
+            }
+            PreparedGeometry prepared1 = predicate.prepare(shape);
+            Set<Integer> candidates = new TreeSet<>();
+            for (Object hit : index.query(shape.getEnvelopeInternal())) {
+                candidates.add((Integer) hit);
+            }
+            for (int position = found.start(i); position < found.end(i); position++) {
+                candidates.add(found.neighbourAt(position));
+            }
+            for (int j : candidates) {
+                if (j == i) {
+                    continue;
+                }
+                try {
+                    if (predicate.test(shape, prepared1, shapes[j]) != found.contains(i, j)) {
+                        mismatches++;
                     }
+                } catch (IllegalStateException e) {
+                    mismatches++;
                 }
             }
-        } catch (TopologyException e) {
-            throw new IllegalStateException(PropertyGraphConstants.GRAPH_BUILD_ERROR + e.getMessage(), e);
         }
+        predicate.addMismatches(mismatches);
     }
 
     /**
-     * Verifica se duas propriedades são fisicamente adjacentes.
-     * 
-     * @param prop1 Primeira propriedade
-     * @param prop2 Segunda propriedade
-     * @return true se as propriedades são adjacentes, false caso contrário
-     * @throws IllegalArgumentException se alguma das propriedades for nula
-     * @throws TopologyException se ocorrer um erro durante a análise topológica
+     * Substitui cada extremo das arestas pelo identificador do respetivo
+     * cadastro, que só difere da posição quando o mesmo cadastro surge
+     * repetido na lista.
+     *
+     * @param edges As arestas entre posições da lista
+     * @return As arestas entre identificadores de vértices
+     */
+    private EdgeList canonicalize(EdgeList edges) {
+        if (vertexIds.size() == cadastros.size()) {
+            return edges;
+        }
+        EdgeList canonical = new EdgeList();
+        for (int k = 0; k < edges.size(); k++) {
+            canonical.add(vertexIds.get(cadastros.get(edges.first(k))), vertexIds.get(cadastros.get(edges.second(k))));
+        }
+        return canonical;
+    }
+
+    /**
+     * Tarefa que testa as adjacências das propriedades num intervalo de
+     * posições, dividindo-se ao meio enquanto o intervalo for maior que
+     * {@link PropertyGraphConstants#PARALLEL_BUILD_THRESHOLD}. A forma de cada
+     * propriedade é preparada uma única vez e reutilizada em todas as
+     * comparações com os seus candidatos.
      */
-    private boolean arePropertiesPhysicallyAdjacent(Cadastro prop1, Cadastro prop2) {
-        if (prop1 == null || prop2 == null) {
+    private class BuildTask extends RecursiveTask<EdgeList> {
+        private final MultiPolygon[] shapes;
+        private final STRtree index;
+        private final int from;
+        private final int to;
+        private final Queue<FailedPair> failures;
+
+        BuildTask(MultiPolygon[] shapes, STRtree index, int from, int to, Queue<FailedPair> failures) {
+            this.shapes = shapes;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.failures = failures;
+        }
+
+        @Override
+        protected EdgeList compute() {
+            if (to - from > PropertyGraphConstants.PARALLEL_BUILD_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                BuildTask left = new BuildTask(shapes, index, from, middle, failures);
+                left.fork();
+                EdgeList edges = new BuildTask(shapes, index, middle, to, failures).compute();
+                EdgeList leftEdges = left.join();
+                leftEdges.addAll(edges);
+                return leftEdges;
+            }
+
+            EdgeList edges = new EdgeList();
+            for (int i = from; i < to; i++) {
+                PreparedGeometry prepared1 = predicate.prepare(shapes[i]);
+                for (int j : findCandidates(shapes, index, i)) {
+                    try {
+                        if (predicate.test(shapes[i], prepared1, shapes[j])) {
+                            edges.add(i, j);
+                        }
+                    } catch (IllegalStateException e) {
+                        failures.add(new FailedPair(cadastros.get(i), cadastros.get(j), e));
+                    }
+                }
+            }
+            return edges;
+        }
+    }
+
+    /**
+     * Cria um índice espacial com o envelope de cada propriedade, guardando
+     * como item a posição da propriedade na lista de cadastros. Propriedades
+     * sem forma não são indexadas, uma vez que nunca são adjacentes.
+     *
+     * @param shapes As formas das propriedades, pela ordem da lista
+     * @return O índice espacial construído
+     */
+    private STRtree buildSpatialIndex(MultiPolygon[] shapes) {
+        STRtree index = new STRtree(PropertyGraphConstants.SPATIAL_INDEX_NODE_CAPACITY);
+        for (int i = 0; i < shapes.length; i++) {
+            if (shapes[i] != null) {
+                index.insert(shapes[i].getEnvelopeInternal(), i);
+            }
+        }
+        index.build();
+        return index;
+    }
+
+    /**
+     * Devolve, por ordem crescente, as posições das propriedades com posição
+     * superior a {@code i} cujo envelope interseta ou toca o envelope da
+     * propriedade {@code i}. Cada par é assim considerado uma única vez.
+     *
+     * @param shapes As formas das propriedades, pela ordem da lista
+     * @param index O índice espacial das propriedades
+     * @param i A posição da propriedade na lista de cadastros
+     * @return Posições das propriedades candidatas a adjacentes
+     */
+    private static int[] findCandidates(MultiPolygon[] shapes, STRtree index, int i) {
+        MultiPolygon shape = shapes[i];
+        if (shape == null) {
+            return new int[0];
+        }
+
+        List<?> hits = index.query(shape.getEnvelopeInternal());
+        int[] candidates = new int[hits.size()];
+        int count = 0;
+        for (Object hit : hits) {
+            int j = (Integer) hit;
+            if (j > i) {
+                candidates[count++] = j;
+            }
+        }
+        Arrays.sort(candidates, 0, count);
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Acrescenta uma propriedade ao grafo, com o identificador de vértice
+     * seguinte ao último. Os candidatos a vizinhos são obtidos de um índice
+     * espacial dinâmico, criado na primeira alteração, e só esses pares são
+     * testados com o predicado DE-9IM (também nos modos
+     * {@code PREDICATE_SEGMENT_HASH*}).
+     *
+     * Os percursos ({@link #getTraversal()}), os comprimentos das fronteiras e
+     * os grafos derivados obtidos antes da alteração deixam de corresponder ao
+     * grafo e têm de ser obtidos de novo.
+     *
+     * @param property A propriedade a acrescentar
+     * @return O identificador do vértice da propriedade
+     * @throws IllegalArgumentException se a propriedade for nula ou já pertencer
+     *                                  ao grafo
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica fora do modo robusto, caso em que o
+     *                               grafo não é alterado
+     */
+    public int addProperty(Cadastro property) {
+        if (property == null) {
             throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
         }
+        if (vertexIds.containsKey(property)) {
+            throw new IllegalArgumentException(PropertyGraphConstants.PROPERTY_ALREADY_IN_GRAPH_ERROR);
+        }
+
+        prepareUpdate();
+        int[] neighbours = findAdjacent(property);
+        int id = cadastros.size();
+        cadastros.add(property);
+        vertexIds.put(property, id);
+        adjacency = adjacency.withNeighbours(id, neighbours, id + 1);
+        indexShape(property);
+        return id;
+    }
+
+    /**
+     * Remove uma propriedade do grafo. Para manter os identificadores
+     * contíguos, a propriedade do último vértice passa a ter o identificador
+     * da removida, tal como na lista de cadastros do grafo; os restantes
+     * identificadores não mudam.
+     *
+     * Os percursos, os comprimentos das fronteiras e os grafos derivados
+     * obtidos antes da alteração têm de ser obtidos de novo.
+     *
+     * @param property A propriedade a remover
+     * @throws IllegalArgumentException se a propriedade for nula, não pertencer
+     *                                  ao grafo ou for a única propriedade
+     */
+    public void removeProperty(Cadastro property) {
+        int id = requireVertex(property);
+        if (cadastros.size() == 1) {
+            throw new IllegalArgumentException(PropertyGraphConstants.EMPTY_CADASTROS_ERROR);
+        }
+
+        prepareUpdate();
+        int last = cadastros.size() - 1;
+        adjacency = adjacency.withoutVertex(id);
+        if (id != last) {
+            Cadastro moved = cadastros.get(last);
+            cadastros.set(id, moved);
+            vertexIds.replace(moved, last, id);
+        }
+        cadastros.remove(last);
+        vertexIds.remove(property);
+        failedPairs.removeIf(failure -> failure.involves(property));
+        MultiPolygon shape = property.getShape();
+        if (shape != null) {
+            updateIndex.remove(shape.getEnvelopeInternal(), property);
+        }
+    }
+
+    /**
+     * Substitui uma propriedade por outra, por exemplo depois de uma alteração
+     * de estrema, mantendo o identificador de vértice. Os vizinhos antigos
+     * deixam de o ser e os vizinhos da nova forma são procurados como em
+     * {@link #addProperty(Cadastro)}.
+     *
+     * Os percursos, os comprimentos das fronteiras e os grafos derivados
+     * obtidos antes da alteração têm de ser obtidos de novo.
+     *
+     * @param oldProperty A propriedade a substituir
+     * @param newProperty A nova propriedade
+     * @throws IllegalArgumentException se alguma das propriedades for nula, se a
+     *                                  antiga não pertencer ao grafo ou se a nova
+     *                                  já pertencer
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica fora do modo robusto, caso em que o
+     *                               grafo não é alterado
+     */
+    public void replaceProperty(Cadastro oldProperty, Cadastro newProperty) {
+        int id = requireVertex(oldProperty);
+        if (newProperty == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
+        }
+        if (newProperty != oldProperty && vertexIds.containsKey(newProperty)) {
+            throw new IllegalArgumentException(PropertyGraphConstants.PROPERTY_ALREADY_IN_GRAPH_ERROR);
+        }
 
+        prepareUpdate();
+        int failures = failedPairs.size();
+        MultiPolygon oldShape = oldProperty.getShape();
+        if (oldShape != null) {
+            updateIndex.remove(oldShape.getEnvelopeInternal(), oldProperty);
+        }
+        int[] neighbours;
         try {
-            MultiPolygon shape1 = prop1.getShape();
-            MultiPolygon shape2 = prop2.getShape();
-            
-            if (shape1 == null || shape2 == null) {
-                return false;
+            neighbours = findAdjacent(newProperty);
+        } catch (IllegalStateException e) {
+            if (oldShape != null) {
+                updateIndex.insert(oldShape.getEnvelopeInternal(), oldProperty);
             }
+            throw e;
+        }
+        cadastros.set(id, newProperty);
+        vertexIds.remove(oldProperty);
+        vertexIds.put(newProperty, id);
+        failedPairs.subList(0, failures).removeIf(failure -> failure.involves(oldProperty));
+        adjacency = adjacency.withNeighbours(id, neighbours, cadastros.size());
+        indexShape(newProperty);
+    }
 
-            return shape1.touches(shape2) || 
-                   (shape1.intersects(shape2) && !shape1.within(shape2) && !shape2.within(shape1));
-        } catch (TopologyException e) {
-            throw new IllegalStateException(PropertyGraphConstants.ADJACENCY_ERROR + e.getMessage(), e);
+    /**
+     * Compara as adjacências deste grafo, possivelmente alterado desde a
+     * construção, com as de um grafo construído de raiz com a mesma lista de
+     * cadastros e o predicado DE-9IM.
+     *
+     * @param parallelism Número de threads a utilizar na construção do grafo de
+     *                    comparação
+     * @return Número de arestas que só existem num dos grafos (0 se forem
+     *         iguais)
+     * @throws IllegalArgumentException se o paralelismo for inferior a 1
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica
+     */
+    public int countInconsistencies(int parallelism) {
+        CsrAdjacency fresh = new PropertyGraph(new ArrayList<>(cadastros), parallelism).adjacency;
+        int differences = 0;
+        for (int v = 0; v < cadastros.size(); v++) {
+            int p = adjacency.start(v);
+            int q = fresh.start(v);
+            while (p < adjacency.end(v) || q < fresh.end(v)) {
+                if (q == fresh.end(v) || p < adjacency.end(v) && adjacency.neighbourAt(p) < fresh.neighbourAt(q)) {
+                    p++;
+                    differences++;
+                } else if (p == adjacency.end(v) || fresh.neighbourAt(q) < adjacency.neighbourAt(p)) {
+                    q++;
+                    differences++;
+                } else {
+                    p++;
+                    q++;
+                }
+            }
         }
+        return differences / 2;
     }
-    
+
     /**
-     * Adiciona uma adjacência entre duas propriedades no grafo.
-     * 
-     * @param property1 Primeira propriedade
-     * @param property2 Segunda propriedade
-     * @throws IllegalArgumentException se alguma das propriedades for nula
+     * Prepara o grafo para uma alteração: passa a usar uma cópia própria da
+     * lista de cadastros, cria o índice espacial dinâmico na primeira
+     * alteração e descarta os percursos e os pesos das arestas, que
+     * correspondem às adjacências anteriores.
      */
-    private void addAdjacency(Cadastro property1, Cadastro property2) {
-        if (property1 == null || property2 == null) {
-            throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
+    private void prepareUpdate() {
+        if (updateIndex == null) {
+            cadastros = new ArrayList<>(cadastros);
+            updateIndex = new Quadtree();
+            for (Cadastro cadastro : vertexIds.keySet()) {
+                indexShape(cadastro);
+            }
+        }
+        traversal = null;
+        edgeWeights = null;
+    }
+
+    private void indexShape(Cadastro property) {
+        MultiPolygon shape = property.getShape();
+        if (shape != null) {
+            updateIndex.insert(shape.getEnvelopeInternal(), property);
+        }
+    }
+
+    /**
+     * Testa a propriedade contra as propriedades do grafo cujo envelope
+     * interseta ou toca o seu.
+     *
+     * @param property A propriedade
+     * @return Os vértices adjacentes, por ordem crescente
+     * @throws IllegalStateException se algum par de propriedades falhar a análise
+     *                               topológica
+     */
+    private int[] findAdjacent(Cadastro property) {
+        MultiPolygon shape = property.getShape();
+        if (shape == null) {
+            return new int[0];
         }
 
-        adjacencyList.computeIfAbsent(property1, k -> new HashSet<>()).add(property2);
-        adjacencyList.computeIfAbsent(property2, k -> new HashSet<>()).add(property1);
+        PreparedGeometry prepared = predicate.prepare(property);
+        List<?> hits = updateIndex.query(shape.getEnvelopeInternal());
+        int[] neighbours = new int[hits.size()];
+        int count = 0;
+        for (Object hit : hits) {
+            Cadastro candidate = (Cadastro) hit;
+            if (candidate != property
+                    && candidate.getShape().getEnvelopeInternal().intersects(shape.getEnvelopeInternal())) {
+                try {
+                    if (predicate.test(property, prepared, candidate)) {
+                        neighbours[count++] = vertexIds.get(candidate);
+                    }
+                } catch (IllegalStateException e) {
+                    FailedPair failure = new FailedPair(property, candidate, e);
+                    if (predicate.getMode() != PropertyGraphConstants.PREDICATE_ROBUST) {
+                        throw failure.error;
+                    }
+                    failedPairs.add(failure);
+                }
+            }
+        }
+        Arrays.sort(neighbours, 0, count);
+        return Arrays.copyOf(neighbours, count);
+    }
+
+    private int requireVertex(Cadastro property) {
+        if (property == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
+        }
+        Integer id = vertexIds.get(property);
+        if (id == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.PROPERTY_NOT_IN_GRAPH_ERROR);
+        }
+        return id;
     }
 
     /**
      * Retorna o conjunto de propriedades adjacentes a uma propriedade específica.
+     * O conjunto devolvido é uma vista imutável sobre as adjacências do grafo.
      * 
      * @param property A propriedade cujas adjacências serão retornadas
      * @return Conjunto de propriedades adjacentes
@@ -117,11 +778,16 @@ public class PropertyGraph {
             throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
         }
 
-        return Collections.unmodifiableSet(adjacencyList.getOrDefault(property, new HashSet<>()));
+        Integer id = vertexIds.get(property);
+        if (id == null) {
+            return Collections.emptySet();
+        }
+        return new NeighbourSet(id);
     }
     
     /**
-     * Verifica se duas propriedades são adjacentes no grafo.
+     * Verifica se duas propriedades são adjacentes no grafo, por pesquisa
+     * binária nos vizinhos da primeira.
      * 
      * @param property1 Primeira propriedade
      * @param property2 Segunda propriedade
@@ -133,9 +799,167 @@ public class PropertyGraph {
             throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
         }
 
-        return adjacencyList.containsKey(property1) && adjacencyList.get(property1).contains(property2);
+        Integer id1 = vertexIds.get(property1);
+        Integer id2 = vertexIds.get(property2);
+        return id1 != null && id2 != null && adjacency.contains(id1, id2);
     }
     
+    /**
+     * Retorna as propriedades adjacentes a uma propriedade, restritas a um
+     * conjunto de vértices, como as linhas de um proprietário ou de uma
+     * freguesia obtidas de um {@code CadastroIndex} construído com a mesma
+     * lista. Percorre o menor dos dois conjuntos e procura cada elemento no
+     * outro por pesquisa binária.
+     * 
+     * @param property A propriedade
+     * @param vertices Os identificadores dos vértices admitidos, por ordem
+     *                 crescente
+     * @return As propriedades adjacentes admitidas, por ordem de vértice
+     * @throws IllegalArgumentException Se a propriedade ou os vértices forem nulos
+     */
+    public List<Cadastro> getAdjacentProperties(Cadastro property, int[] vertices) {
+        if (property == null || vertices == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
+        }
+
+        Integer id = vertexIds.get(property);
+        if (id == null) {
+            return Collections.emptyList();
+        }
+        List<Cadastro> neighbours = new ArrayList<>();
+        if (vertices.length < adjacency.degree(id)) {
+            for (int vertex : vertices) {
+                if (adjacency.contains(id, vertex)) {
+                    neighbours.add(cadastros.get(vertex));
+                }
+            }
+        } else {
+            for (int position = adjacency.start(id); position < adjacency.end(id); position++) {
+                int neighbour = adjacency.neighbourAt(position);
+                if (Arrays.binarySearch(vertices, neighbour) >= 0) {
+                    neighbours.add(cadastros.get(neighbour));
+                }
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Retorna o identificador do vértice de uma propriedade, que é a sua
+     * posição na lista de cadastros do grafo.
+     * 
+     * @param property A propriedade
+     * @return O identificador do vértice, ou -1 se a propriedade não pertencer
+     *         ao grafo
+     * @throws IllegalArgumentException Se a propriedade for nula
+     */
+    public int getVertexId(Cadastro property) {
+        if (property == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
+        }
+        Integer id = vertexIds.get(property);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Retorna a propriedade de um vértice.
+     * 
+     * @param vertexId O identificador do vértice
+     * @return A propriedade
+     * @throws IndexOutOfBoundsException Se o vértice não existir
+     */
+    public Cadastro getProperty(int vertexId) {
+        return cadastros.get(vertexId);
+    }
+
+    /**
+     * Retorna os percursos sobre o grafo (vizinhança a k saltos, distância e
+     * caminho mais curto), criados na primeira chamada. Podem ser usados por
+     * várias threads ao mesmo tempo.
+     * 
+     * @return Os percursos sobre o grafo
+     */
+    public GraphTraversal getTraversal() {
+        GraphTraversal result = traversal;
+        if (result == null) {
+            synchronized (this) {
+                result = traversal;
+                if (result == null) {
+                    traversal = result = new GraphTraversal(this);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retorna o comprimento da fronteira partilhada por duas propriedades
+     * adjacentes. O valor é calculado na primeira vez que é pedido e
+     * memorizado no grafo, a não ser que já tenha sido calculado por
+     * {@link #computeSharedBoundaryLengths(int)}.
+     * 
+     * @param property1 Primeira propriedade
+     * @param property2 Segunda propriedade
+     * @return O comprimento da fronteira partilhada, ou 0 se as propriedades
+     *         não forem adjacentes ou não pertencerem ao grafo
+     * @throws IllegalArgumentException se alguma das propriedades for nula
+     * @throws IllegalStateException se houver erro na análise topológica
+     */
+    public double getSharedBoundaryLength(Cadastro property1, Cadastro property2) {
+        if (property1 == null || property2 == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
+        }
+
+        Integer id1 = vertexIds.get(property1);
+        Integer id2 = vertexIds.get(property2);
+        return id1 == null || id2 == null ? 0.0 : getEdgeWeights().getBetween(id1, id2);
+    }
+
+    /**
+     * Calcula, em paralelo, o comprimento da fronteira partilhada de todas as
+     * arestas do grafo que ainda não o tenham, para que as consultas
+     * seguintes não façam operações geométricas.
+     * 
+     * @param parallelism Número de threads a utilizar (1 para cálculo
+     *                    sequencial)
+     * @throws IllegalArgumentException se o paralelismo for inferior a 1
+     * @throws IllegalStateException se houver erro na análise topológica
+     */
+    public void computeSharedBoundaryLengths(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_PARALLELISM_ERROR);
+        }
+        getEdgeWeights().computeAll(parallelism);
+    }
+
+    /**
+     * Retorna os comprimentos das fronteiras partilhadas, alinhados com as
+     * adjacências, criados na primeira chamada.
+     * 
+     * @return Os pesos das arestas do grafo
+     */
+    EdgeWeights getEdgeWeights() {
+        EdgeWeights result = edgeWeights;
+        if (result == null) {
+            synchronized (this) {
+                result = edgeWeights;
+                if (result == null) {
+                    edgeWeights = result = new EdgeWeights(this);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retorna as adjacências em formato CSR, para os grafos derivados deste.
+     * 
+     * @return As adjacências do grafo
+     */
+    CsrAdjacency getAdjacency() {
+        return adjacency;
+    }
+
     /**
      * Retorna o número total de propriedades no grafo.
      * 
@@ -151,11 +975,126 @@ public class PropertyGraph {
      * @return Número de adjacências
      */
     public int getNumberOfAdjacencies() {
-        int count = 0;
-        for (Set<Cadastro> adjacents : adjacencyList.values()) {
-            count += adjacents.size();
+        return adjacency.edgeCount();
+    }
+
+    /**
+     * Retorna um relatório da memória estimada das adjacências, comparando a
+     * representação CSR com a representação anterior baseada em
+     * {@code HashMap<Cadastro, Set<Cadastro>>}.
+     * 
+     * @return Texto com a memória estimada de ambas as representações
+     */
+    public String getMemoryReport() {
+        long csrBytes = adjacency.estimateBytes();
+        long hashBytes = adjacency.estimateHashMapBytes();
+        return String.format(PropertyGraphConstants.MEMORY_REPORT_FORMAT,
+                cadastros.size(), adjacency.edgeCount(), hashBytes, csrBytes,
+                csrBytes == 0 ? 0.0 : (double) hashBytes / csrBytes);
+    }
+
+    /**
+     * Retorna o número de pares em que o predicado de passagem única divergiu
+     * do predicado original. Só é calculado no modo
+     * {@link PropertyGraphConstants#PREDICATE_VERIFY}.
+     * 
+     * @return Número de divergências entre os predicados
+     */
+    public long getPredicateMismatches() {
+        return predicate.getMismatches();
+    }
+
+    /**
+     * Retorna o número de pares que falharam a análise topológica e foram
+     * resolvidos com as formas corrigidas e com precisão reduzida. Só é
+     * calculado no modo {@link PropertyGraphConstants#PREDICATE_ROBUST}.
+     * 
+     * @return Número de pares recuperados
+     */
+    public long getRecoveredPairs() {
+        return predicate.getRecovered();
+    }
+
+    /**
+     * Retorna o relatório dos pares que continuaram a falhar a análise
+     * topológica depois de corrigidos e que foram considerados não adjacentes,
+     * no modo {@link PropertyGraphConstants#PREDICATE_ROBUST}, incluindo os das
+     * alterações incrementais. Os pares de propriedades removidas ou
+     * substituídas deixam de ser reportados.
+     * 
+     * @return Mensagens de erro de cada par, com os IDs das propriedades
+     */
+    public List<String> getFailedPairs() {
+        return failedPairs.stream().map(FailedPair::getMessage).toList();
+    }
+
+    /**
+     * Um par de propriedades que falhou a análise topológica, com o erro
+     * identificado pelos IDs das propriedades. As propriedades são mantidas
+     * para que o par deixe de ser reportado quando uma delas sai do grafo.
+     */
+    private static final class FailedPair {
+        private final Cadastro first;
+        private final Cadastro second;
+        private final IllegalStateException error;
+
+        FailedPair(Cadastro first, Cadastro second, IllegalStateException cause) {
+            this.first = first;
+            this.second = second;
+            this.error = new IllegalStateException(String.format(PropertyGraphConstants.PAIR_ERROR_FORMAT,
+                    first.getId(), second.getId(), cause.getMessage()), cause);
+        }
+
+        String getMessage() {
+            return error.getMessage();
+        }
+
+        boolean involves(Cadastro property) {
+            return first == property || second == property;
+        }
+    }
+
+    /**
+     * Vista imutável sobre os vizinhos de um vértice, lidos diretamente dos
+     * arrays CSR sem copiar as adjacências.
+     */
+    private class NeighbourSet extends AbstractSet<Cadastro> {
+        private final int vertex;
+
+        NeighbourSet(int vertex) {
+            this.vertex = vertex;
+        }
+
+        @Override
+        public Iterator<Cadastro> iterator() {
+            return new Iterator<>() {
+                private int position = adjacency.start(vertex);
+
+                @Override
+                public boolean hasNext() {
+                    return position < adjacency.end(vertex);
+                }
+
+                @Override
+                public Cadastro next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return cadastros.get(adjacency.neighbourAt(position++));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return adjacency.degree(vertex);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer id = o instanceof Cadastro cadastro ? vertexIds.get(cadastro) : null;
+            return id != null && adjacency.contains(vertex, id);
         }
-        return count / 2;
     }
 
     /**
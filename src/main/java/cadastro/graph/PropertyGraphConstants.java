@@ -16,8 +16,62 @@ public class PropertyGraphConstants {
     public static final String TOPOLOGY_ERROR = "Erro durante a análise topológica: ";
     public static final String GRAPH_BUILD_ERROR = "Erro durante a construção do grafo: ";
     public static final String ADJACENCY_ERROR = "Erro durante a análise de adjacência: ";
+    public static final String INVALID_PARALLELISM_ERROR = "O paralelismo deve ser pelo menos 1";
+    public static final String PAIR_ERROR_FORMAT = "Erro na análise das propriedades %d e %d: %s";
+    public static final String INVALID_PREDICATE_MODE_ERROR = "Modo de predicado de adjacência desconhecido: ";
+    public static final String FAILED_PAIRS_MESSAGE = " par(es) de propriedades falharam a análise topológica";
+    public static final String NULL_GRAPH_ERROR = "O grafo de propriedades não pode ser nulo";
+    public static final String BOUNDARY_LENGTH_NOT_COMPUTED_ERROR = "O comprimento das fronteiras não foi calculado";
+    public static final String PROPERTY_NOT_IN_GRAPH_ERROR = "A propriedade não pertence ao grafo";
+    public static final String PROPERTY_ALREADY_IN_GRAPH_ERROR = "A propriedade já pertence ao grafo";
+    public static final String INVALID_HOPS_ERROR = "O número de saltos não pode ser negativo";
+    public static final String INVALID_VERTEX_ERROR = "O vértice não pertence ao grafo: ";
+    public static final String INVALID_WEIGHT_MODE_ERROR = "Modo de peso das arestas desconhecido: ";
+    public static final String INVALID_TOLERANCE_ERROR = "A tolerância deve ser positiva e finita: ";
+    public static final String INVALID_TOP_K_ERROR = "O número de sugestões deve ser pelo menos 1";
+    public static final String INVALID_TILE_SIZE_ERROR = "O lado dos mosaicos deve ser positivo e finito: ";
+
+    // Constantes para construção do grafo
+    public static final int SPATIAL_INDEX_NODE_CAPACITY = 10;
+    public static final int PARALLEL_BUILD_THRESHOLD = 256;
+
+    // Constantes para o ficheiro de arestas
+    public static final String EDGE_FILE_EXTENSION = ".edges";
+    public static final int EDGE_FILE_MAGIC = 0x43444547;
+    public static final int EDGE_FILE_VERSION = 1;
+    public static final String DATASET_HASH_ALGORITHM = "SHA-256";
+    public static final int DATASET_HASH_BUFFER_SIZE = 8192;
+
+    // Modos do predicado de adjacência
+    public static final int PREDICATE_DE9IM = 0;
+    public static final int PREDICATE_LEGACY = 1;
+    public static final int PREDICATE_VERIFY = 2;
+    public static final int PREDICATE_SEGMENT_HASH = 3;
+    public static final int PREDICATE_SEGMENT_HASH_VERIFY = 4;
+    public static final int PREDICATE_ROBUST = 5;
+
+    // Constantes para a deteção de adjacências por vértices partilhados
+    public static final double SEGMENT_HASH_TOLERANCE = 0.01;
+    public static final int SEGMENT_HASH_VERIFY_STRIDE = 16;
+
+    // Constantes para o modo robusto
+    public static final double ROBUST_PRECISION_SCALE = 1000.0;
+
+    // Constantes para a construção por mosaicos
+    public static final String TILE_DIRECTORY_PREFIX = "tiles";
+    public static final String TILE_FILE_FORMAT = "tile_%d_%d.bin";
+    public static final int TILE_BUFFER_SIZE = 8192;
+    public static final long TILE_SPILL_BUDGET_BYTES = 16L * 1024 * 1024;
+
+    // Pesos das arestas nos caminhos mais curtos
+    public static final int WEIGHT_CENTROID_DISTANCE = 0;
+    public static final int WEIGHT_BOUNDARY_LENGTH = 1;
 
     // Constantes para formatação de strings
     public static final String GRAPH_STRING_FORMAT = "PropertyGraph{properties=[%s], adjacencies=[]}";
+    public static final String OWNER_GRAPH_STRING_FORMAT = "OwnerGraph{owners=%d, adjacencies=%d}";
+    public static final String SWAP_STRING_FORMAT = "Swap{first=%d, second=%d, gain=%d, similarity=%.3f}";
     public static final String PROPERTY_SEPARATOR = ", ";
+    public static final String MEMORY_REPORT_FORMAT =
+            "Adjacências de %d propriedades e %d arestas: HashMap/HashSet ~%d bytes, CSR ~%d bytes (%.1fx menos)";
 } 
\ No newline at end of file
@@ -0,0 +1,250 @@
+package cadastro.graph;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Deteção de adjacências por vértices partilhados, sem predicados
+ * topológicos.
+ *
+ * Propriedades vizinhas num cadastro partilham os vértices das fronteiras
+ * comuns. As coordenadas de todos os vértices são arredondadas para uma
+ * grelha com células com o dobro da tolerância e guardadas numa tabela de
+ * dispersão com endereçamento aberto, em arrays de primitivos, com os
+ * vértices de cada célula encadeados. Numa segunda passagem linear, cada
+ * vértice procura no bloco de 2x2 células mais próximo os vértices de outras
+ * propriedades a uma distância não superior à tolerância em cada eixo; cada
+ * par encontrado é uma adjacência. Um segmento partilhado implica dois
+ * vértices partilhados, pelo que basta guardar os vértices.
+ *
+ * O resultado coincide com o do predicado DE-9IM quando as propriedades
+ * adjacentes partilham pelo menos um vértice. Não são detetadas propriedades
+ * que só se tocam num vértice de uma que fica no interior de um segmento da
+ * outra, e são consideradas adjacentes propriedades contidas noutra que
+ * partilhem vértices com ela. O modo
+ * {@link PropertyGraphConstants#PREDICATE_SEGMENT_HASH_VERIFY} compara uma
+ * amostra com o predicado DE-9IM para medir estas divergências.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class SegmentHashAdjacency {
+    private final MultiPolygon[] shapes;
+    private final double tolerance;
+    private final int[] vertexOffsets;
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] propertyOf;
+    private final double cellSize;
+    private final long[] slots;
+    private final int[] next;
+    private final int mask;
+
+    /**
+     * Guarda os vértices de todas as propriedades na tabela de dispersão.
+     *
+     * @param shapes As formas das propriedades, pela ordem dos vértices,
+     *               possivelmente nulas
+     * @param tolerance A distância máxima, em cada eixo, entre vértices
+     *                  considerados iguais, nas unidades das coordenadas
+     * @throws IllegalArgumentException Se a tolerância não for positiva
+     */
+    SegmentHashAdjacency(MultiPolygon[] shapes, double tolerance) {
+        if (!(tolerance > 0) || Double.isInfinite(tolerance)) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_TOLERANCE_ERROR + tolerance);
+        }
+        this.shapes = shapes;
+        this.tolerance = tolerance;
+
+        int n = shapes.length;
+        this.vertexOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            vertexOffsets[i + 1] = vertexOffsets[i] + countVertices(shapes[i]);
+        }
+        int total = vertexOffsets[n];
+        this.xs = new double[total];
+        this.ys = new double[total];
+        this.propertyOf = new int[total];
+        for (int i = 0; i < n; i++) {
+            copyVertices(shapes[i], vertexOffsets[i]);
+            Arrays.fill(propertyOf, vertexOffsets[i], vertexOffsets[i + 1], i);
+        }
+
+        // Cada posição da tabela ocupa três longs seguidos (célula em x, célula
+        // em y e primeiro vértice da célula), pelo que cada sondagem lê 24 bytes
+        // contíguos, em uma ou duas linhas de cache, em vez de três arrays
+        this.cellSize = 2 * tolerance;
+        int capacity = Integer.highestOneBit(Math.max(16, total) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new long[3 * capacity];
+        this.next = new int[total];
+        for (int slot = 0; slot < capacity; slot++) {
+            slots[3 * slot + 2] = -1;
+        }
+        for (int e = 0; e < total; e++) {
+            long cellX = cell(xs[e]);
+            long cellY = cell(ys[e]);
+            int slot = find(cellX, cellY);
+            if (slots[3 * slot + 2] < 0) {
+                slots[3 * slot] = cellX;
+                slots[3 * slot + 1] = cellY;
+            }
+            next[e] = (int) slots[3 * slot + 2];
+            slots[3 * slot + 2] = e;
+        }
+    }
+
+    /**
+     * Conta os vértices distintos das fronteiras de uma forma, sem repetir o
+     * último vértice de cada anel, igual ao primeiro.
+     */
+    private static int countVertices(MultiPolygon shape) {
+        if (shape == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int p = 0; p < shape.getNumGeometries(); p++) {
+            Polygon polygon = (Polygon) shape.getGeometryN(p);
+            count += Math.max(0, polygon.getExteriorRing().getNumPoints() - 1);
+            for (int h = 0; h < polygon.getNumInteriorRing(); h++) {
+                count += Math.max(0, polygon.getInteriorRingN(h).getNumPoints() - 1);
+            }
+        }
+        return count;
+    }
+
+    private void copyVertices(MultiPolygon shape, int offset) {
+        if (shape == null) {
+            return;
+        }
+        for (int p = 0; p < shape.getNumGeometries(); p++) {
+            Polygon polygon = (Polygon) shape.getGeometryN(p);
+            offset = copyRing(polygon.getExteriorRing(), offset);
+            for (int h = 0; h < polygon.getNumInteriorRing(); h++) {
+                offset = copyRing(polygon.getInteriorRingN(h), offset);
+            }
+        }
+    }
+
+    private int copyRing(LinearRing ring, int offset) {
+        CoordinateSequence sequence = ring.getCoordinateSequence();
+        for (int k = 0; k + 1 < sequence.size(); k++) {
+            xs[offset] = sequence.getX(k);
+            ys[offset] = sequence.getY(k);
+            offset++;
+        }
+        return offset;
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Retorna a célula vizinha, na mesma linha ou coluna, que pode ter
+     * vértices a uma distância não superior à tolerância: como as células têm
+     * o dobro da tolerância, é a anterior na primeira metade da célula e a
+     * seguinte na segunda.
+     */
+    private long nearestNeighbourCell(double coordinate, long cell) {
+        return coordinate - cell * cellSize < tolerance ? cell - 1 : cell + 1;
+    }
+
+    /**
+     * Procura a posição de uma célula na tabela, por sondagem linear. As
+     * coordenadas das células são muitas vezes múltiplos de potências de 10,
+     * pelo que o hash mistura todos os bits (finalizador do MurmurHash3)
+     * antes de escolher a posição.
+     *
+     * @return A posição da célula, ou a posição livre onde deve ser inserida
+     */
+    private int find(long cellX, long cellY) {
+        long hash = cellX * 0x9E3779B97F4A7C15L ^ cellY;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        int slot = (int) (hash ^ (hash >>> 33)) & mask;
+        while (slots[3 * slot + 2] >= 0 && (slots[3 * slot] != cellX || slots[3 * slot + 1] != cellY)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Procura as adjacências de todas as propriedades.
+     *
+     * @param parallelism Número de threads a utilizar (1 para sequencial)
+     * @return As arestas entre posições da lista de propriedades, possivelmente
+     *         repetidas
+     */
+    EdgeList build(int parallelism) {
+        MatchTask task = new MatchTask(0, shapes.length);
+        if (parallelism == 1) {
+            return task.compute();
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tarefa que procura os vértices partilhados pelas propriedades de um
+     * intervalo de posições com propriedades de posição superior, dividida ao
+     * meio enquanto o intervalo for maior que
+     * {@link PropertyGraphConstants#PARALLEL_BUILD_THRESHOLD}.
+     */
+    private class MatchTask extends RecursiveTask<EdgeList> {
+        private final int from;
+        private final int to;
+
+        MatchTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected EdgeList compute() {
+            if (to - from > PropertyGraphConstants.PARALLEL_BUILD_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                MatchTask left = new MatchTask(from, middle);
+                left.fork();
+                EdgeList edges = new MatchTask(middle, to).compute();
+                EdgeList leftEdges = left.join();
+                leftEdges.addAll(edges);
+                return leftEdges;
+            }
+
+            EdgeList edges = new EdgeList();
+            for (int i = from; i < to; i++) {
+                int last = -1;
+                for (int e = vertexOffsets[i]; e < vertexOffsets[i + 1]; e++) {
+                    long cellX = cell(xs[e]);
+                    long cellY = cell(ys[e]);
+                    long otherX = nearestNeighbourCell(xs[e], cellX);
+                    long otherY = nearestNeighbourCell(ys[e], cellY);
+                    for (long x = Math.min(cellX, otherX); x <= Math.max(cellX, otherX); x++) {
+                        for (long y = Math.min(cellY, otherY); y <= Math.max(cellY, otherY); y++) {
+                            for (int f = (int) slots[3 * find(x, y) + 2]; f >= 0; f = next[f]) {
+                                int j = propertyOf[f];
+                                if (j > i && j != last
+                                        && Math.abs(xs[f] - xs[e]) <= tolerance && Math.abs(ys[f] - ys[e]) <= tolerance) {
+                                    edges.add(i, j);
+                                    last = j;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return edges;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package cadastro.graph;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.TopologyException;
+
+/**
+ * Cálculo do comprimento da fronteira partilhada por duas propriedades.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class SharedBoundary {
+    private SharedBoundary() {
+    }
+
+    /**
+     * Calcula o comprimento da interseção das fronteiras de duas formas.
+     * Propriedades que só se tocam num ponto partilham uma fronteira de
+     * comprimento zero.
+     *
+     * @param shape1 A primeira forma
+     * @param shape2 A segunda forma
+     * @return O comprimento da fronteira partilhada
+     * @throws IllegalStateException Se houver erro na análise topológica
+     */
+    static double length(MultiPolygon shape1, MultiPolygon shape2) {
+        if (shape1 == null || shape2 == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_SHAPE_ERROR);
+        }
+        if (!shape1.getEnvelopeInternal().intersects(shape2.getEnvelopeInternal())) {
+            return 0.0;
+        }
+        try {
+            Geometry shared = shape1.getBoundary().intersection(shape2.getBoundary());
+            return shared.getLength();
+        } catch (TopologyException e) {
+            throw new IllegalStateException(PropertyGraphConstants.TOPOLOGY_ERROR + e.getMessage(), e);
+        }
+    }
+}
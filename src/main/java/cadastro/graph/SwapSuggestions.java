@@ -0,0 +1,387 @@
+package cadastro.graph;
+
+import cadastro.importer.Cadastro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sugestões de trocas de propriedades entre proprietários vizinhos que
+ * aumentam a contiguidade das propriedades de cada um.
+ *
+ * Uma troca entre a propriedade {@code p}, do proprietário A, e a propriedade
+ * {@code q}, do proprietário B, passa {@code p} para B e {@code q} para A. Só
+ * são considerados pares em que cada propriedade faz fronteira com o outro
+ * proprietário: as propriedades de B na fronteira com A são guardadas em
+ * listas por par de proprietários, pelo que os candidatos de {@code p} são
+ * apenas as propriedades dessas listas para os proprietários vizinhos de
+ * {@code p}, e não todas as propriedades da freguesia.
+ *
+ * O ganho de contiguidade de cada proprietário é a variação do número de
+ * adjacências entre propriedades suas, calculada apenas com os vizinhos de
+ * {@code p} e {@code q}, sem recalcular o grafo. Só são sugeridas trocas que
+ * não diminuem a contiguidade de nenhum dos dois proprietários e aumentam a
+ * de pelo menos um. A pontuação é o ganho total multiplicado pela
+ * semelhança das áreas (a menor área a dividir pela maior), para favorecer
+ * trocas equilibradas. Os candidatos são avaliados em paralelo, cada tarefa
+ * com as suas melhores {@code k} trocas, juntas no fim.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public class SwapSuggestions {
+    private static final Comparator<Swap> BEST_FIRST = Comparator.comparingDouble(Swap::getScore).reversed()
+            .thenComparingInt(swap -> swap.first)
+            .thenComparingInt(swap -> swap.second);
+
+    private final PropertyGraph graph;
+    private final CsrAdjacency adjacency;
+    private final int parallelism;
+    private final int[] ownerOf;
+    private final double[] areas;
+    private final int[] sameOwnerDegree;
+    private final long[] frontierKeys;
+    private final int[] frontierOffsets;
+    private final int[] frontierVertices;
+
+    /**
+     * Troca sugerida entre duas propriedades.
+     */
+    public final class Swap {
+        private final int first;
+        private final int second;
+        private final int firstOwnerGain;
+        private final int secondOwnerGain;
+        private final double areaSimilarity;
+
+        private Swap(int first, int second, int firstOwnerGain, int secondOwnerGain, double areaSimilarity) {
+            this.first = first;
+            this.second = second;
+            this.firstOwnerGain = firstOwnerGain;
+            this.secondOwnerGain = secondOwnerGain;
+            this.areaSimilarity = areaSimilarity;
+        }
+
+        /**
+         * @return A propriedade com o menor identificador de vértice
+         */
+        public Cadastro getFirst() {
+            return graph.getProperty(first);
+        }
+
+        /**
+         * @return A outra propriedade da troca
+         */
+        public Cadastro getSecond() {
+            return graph.getProperty(second);
+        }
+
+        /**
+         * @return A variação das adjacências entre propriedades do
+         *         proprietário da primeira propriedade
+         */
+        public int getFirstOwnerGain() {
+            return firstOwnerGain;
+        }
+
+        /**
+         * @return A variação das adjacências entre propriedades do
+         *         proprietário da segunda propriedade
+         */
+        public int getSecondOwnerGain() {
+            return secondOwnerGain;
+        }
+
+        /**
+         * @return A soma dos ganhos de contiguidade dos dois proprietários
+         */
+        public int getContiguityGain() {
+            return firstOwnerGain + secondOwnerGain;
+        }
+
+        /**
+         * @return A menor área a dividir pela maior, entre 0 e 1
+         */
+        public double getAreaSimilarity() {
+            return areaSimilarity;
+        }
+
+        /**
+         * @return O ganho de contiguidade multiplicado pela semelhança das
+         *         áreas
+         */
+        public double getScore() {
+            return getContiguityGain() * areaSimilarity;
+        }
+
+        /**
+         * @return String com as duas propriedades, o ganho e a semelhança
+         */
+        @Override
+        public String toString() {
+            return String.format(PropertyGraphConstants.SWAP_STRING_FORMAT, getFirst().getId(), getSecond().getId(),
+                    getContiguityGain(), areaSimilarity);
+        }
+    }
+
+    /**
+     * Prepara as sugestões de trocas, avaliadas de forma sequencial.
+     *
+     * @param graph O grafo de propriedades
+     * @throws IllegalArgumentException Se o grafo for nulo
+     */
+    public SwapSuggestions(PropertyGraph graph) {
+        this(graph, 1);
+    }
+
+    /**
+     * Prepara as sugestões de trocas, com as listas de propriedades na
+     * fronteira de cada par de proprietários vizinhos.
+     *
+     * @param graph O grafo de propriedades
+     * @param parallelism Número de threads a utilizar na avaliação dos
+     *                    candidatos (1 para sequencial)
+     * @throws IllegalArgumentException Se o grafo for nulo ou o paralelismo
+     *                                  for menor que 1
+     */
+    public SwapSuggestions(PropertyGraph graph, int parallelism) {
+        if (graph == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_GRAPH_ERROR);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_PARALLELISM_ERROR);
+        }
+        this.graph = graph;
+        this.adjacency = graph.getAdjacency();
+        this.parallelism = parallelism;
+        int n = graph.getNumberOfProperties();
+
+        this.ownerOf = new int[n];
+        this.areas = new double[n];
+        for (int v = 0; v < n; v++) {
+            ownerOf[v] = graph.getProperty(v).getOwner();
+            areas[v] = graph.getProperty(v).getArea();
+        }
+
+        // Propriedades na fronteira de cada par (proprietário, vizinho), uma
+        // entrada por propriedade e proprietário vizinho
+        this.sameOwnerDegree = new int[n];
+        long[] pairKeys = new long[adjacency.edgeCount() * 2];
+        int[] pairVertices = new int[pairKeys.length];
+        int entries = 0;
+        for (int v = 0; v < n; v++) {
+            for (int position = adjacency.start(v); position < adjacency.end(v); position++) {
+                int owner = ownerOf[adjacency.neighbourAt(position)];
+                if (owner == ownerOf[v]) {
+                    sameOwnerDegree[v]++;
+                } else if (!seenBefore(v, position, owner)) {
+                    pairKeys[entries] = pairKey(ownerOf[v], owner);
+                    pairVertices[entries++] = v;
+                }
+            }
+        }
+
+        long[] keys = Arrays.copyOf(pairKeys, entries);
+        Arrays.parallelSort(keys);
+        int distinct = 0;
+        for (int i = 0; i < entries; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        this.frontierKeys = Arrays.copyOf(keys, distinct);
+        this.frontierOffsets = new int[distinct + 1];
+        int[] pairOf = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            pairOf[i] = Arrays.binarySearch(frontierKeys, pairKeys[i]);
+            frontierOffsets[pairOf[i] + 1]++;
+        }
+        for (int k = 0; k < distinct; k++) {
+            frontierOffsets[k + 1] += frontierOffsets[k];
+        }
+        // Os vértices são percorridos por ordem, pelo que cada lista fica ordenada
+        this.frontierVertices = new int[entries];
+        int[] next = Arrays.copyOf(frontierOffsets, distinct);
+        for (int i = 0; i < entries; i++) {
+            frontierVertices[next[pairOf[i]]++] = pairVertices[i];
+        }
+    }
+
+    private static long pairKey(int owner, int neighbourOwner) {
+        return (long) owner << 32 | (neighbourOwner & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Verifica se um proprietário já apareceu entre os vizinhos anteriores de
+     * um vértice.
+     */
+    private boolean seenBefore(int v, int position, int owner) {
+        for (int earlier = adjacency.start(v); earlier < position; earlier++) {
+            if (ownerOf[adjacency.neighbourAt(earlier)] == owner) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retorna as melhores trocas entre todas as propriedades do grafo.
+     *
+     * @param k O número máximo de trocas
+     * @return As trocas, da melhor para a pior
+     * @throws IllegalArgumentException Se k for menor que 1
+     */
+    public List<Swap> getTopSwaps(int k) {
+        int[] vertices = new int[graph.getNumberOfProperties()];
+        Arrays.setAll(vertices, v -> v);
+        return getTopSwaps(vertices, k);
+    }
+
+    /**
+     * Retorna as melhores trocas que envolvem pelo menos uma propriedade de
+     * uma área, como as linhas de uma freguesia de um {@code CadastroIndex}.
+     *
+     * @param vertices Os identificadores dos vértices da área
+     * @param k O número máximo de trocas
+     * @return As trocas, da melhor para a pior
+     * @throws IllegalArgumentException Se os vértices forem nulos ou k for
+     *                                  menor que 1
+     */
+    public List<Swap> getTopSwaps(int[] vertices, int k) {
+        if (vertices == null) {
+            throw new IllegalArgumentException(PropertyGraphConstants.NULL_PROPERTY_ERROR);
+        }
+        if (k < 1) {
+            throw new IllegalArgumentException(PropertyGraphConstants.INVALID_TOP_K_ERROR);
+        }
+        BitSet area = new BitSet(graph.getNumberOfProperties());
+        for (int v : vertices) {
+            area.set(v);
+        }
+        int[] sorted = area.stream().toArray();
+
+        EvaluationTask task = new EvaluationTask(sorted, area, k, 0, sorted.length);
+        PriorityQueue<Swap> best;
+        if (parallelism == 1) {
+            best = task.compute();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                best = pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        List<Swap> result = new ArrayList<>(best);
+        result.sort(BEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Tarefa que avalia as trocas de um intervalo de vértices da área,
+     * dividido ao meio até ter no máximo
+     * {@link PropertyGraphConstants#PARALLEL_BUILD_THRESHOLD} vértices. Cada
+     * tarefa devolve as suas melhores trocas numa fila com a pior à cabeça.
+     */
+    private class EvaluationTask extends RecursiveTask<PriorityQueue<Swap>> {
+        private final int[] vertices;
+        private final BitSet area;
+        private final int k;
+        private final int from;
+        private final int to;
+
+        EvaluationTask(int[] vertices, BitSet area, int k, int from, int to) {
+            this.vertices = vertices;
+            this.area = area;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PriorityQueue<Swap> compute() {
+            if (to - from > PropertyGraphConstants.PARALLEL_BUILD_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                EvaluationTask left = new EvaluationTask(vertices, area, k, from, middle);
+                EvaluationTask right = new EvaluationTask(vertices, area, k, middle, to);
+                left.fork();
+                PriorityQueue<Swap> best = right.compute();
+                for (Swap swap : left.join()) {
+                    offer(best, swap);
+                }
+                return best;
+            }
+
+            PriorityQueue<Swap> best = new PriorityQueue<>(BEST_FIRST.reversed());
+            for (int i = from; i < to; i++) {
+                evaluate(vertices[i], best);
+            }
+            return best;
+        }
+
+        /**
+         * Avalia as trocas de uma propriedade com as propriedades dos
+         * proprietários vizinhos que fazem fronteira com o seu proprietário.
+         * Uma troca entre duas propriedades da área só é avaliada a partir da
+         * de menor identificador.
+         */
+        private void evaluate(int p, PriorityQueue<Swap> best) {
+            int ownerP = ownerOf[p];
+            for (int position = adjacency.start(p); position < adjacency.end(p); position++) {
+                int ownerQ = ownerOf[adjacency.neighbourAt(position)];
+                if (ownerQ == ownerP || seenBefore(p, position, ownerQ)) {
+                    continue;
+                }
+                int pair = Arrays.binarySearch(frontierKeys, pairKey(ownerQ, ownerP));
+                for (int f = frontierOffsets[pair]; f < frontierOffsets[pair + 1]; f++) {
+                    int q = frontierVertices[f];
+                    if (q < p && area.get(q)) {
+                        continue;
+                    }
+                    // Adjacências do dono de p que q ganha e p perde, e vice-versa
+                    int ownerPGain = countOwned(q, ownerP, p) - sameOwnerDegree[p];
+                    int ownerQGain = countOwned(p, ownerQ, q) - sameOwnerDegree[q];
+                    if (ownerPGain < 0 || ownerQGain < 0 || ownerPGain + ownerQGain == 0) {
+                        continue;
+                    }
+                    double larger = Math.max(areas[p], areas[q]);
+                    double similarity = larger <= 0 ? 1.0 : Math.min(areas[p], areas[q]) / larger;
+                    Swap swap = p < q
+                            ? new Swap(p, q, ownerPGain, ownerQGain, similarity)
+                            : new Swap(q, p, ownerQGain, ownerPGain, similarity);
+                    offer(best, swap);
+                }
+            }
+        }
+
+        private void offer(PriorityQueue<Swap> best, Swap swap) {
+            if (best.size() < k) {
+                best.add(swap);
+            } else if (BEST_FIRST.compare(swap, best.peek()) < 0) {
+                best.poll();
+                best.add(swap);
+            }
+        }
+    }
+
+    /**
+     * Conta os vizinhos de um vértice de um proprietário, excluindo um
+     * vértice.
+     */
+    private int countOwned(int v, int owner, int excluded) {
+        int count = 0;
+        for (int position = adjacency.start(v); position < adjacency.end(v); position++) {
+            int u = adjacency.neighbourAt(position);
+            if (u != excluded && ownerOf[u] == owner) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,434 @@
+package cadastro.graph;
+
+import cadastro.importer.Cadastro;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Construção das adjacências de um conjunto de cadastros maior que a memória
+ * disponível, por mosaicos quadrados.
+ *
+ * Os cadastros são lidos em streaming e cada forma é gravada, em ficheiros
+ * temporários, em todos os mosaicos que o seu envelope cobre: no mosaico de
+ * origem e, para as propriedades que atravessam os limites, também nos
+ * mosaicos vizinhos, onde formam a orla. Cada mosaico é depois lido sozinho,
+ * com a sua orla, e os pares são testados com o predicado DE-9IM. Um par com
+ * envelopes que se intersetam só é testado no mosaico que contém o canto
+ * inferior esquerdo da interseção dos envelopes, ao qual ambas as
+ * propriedades pertencem; assim as arestas entre mosaicos são encontradas uma
+ * única vez, sem nenhum teste repetido, e só as propriedades da orla são lidas
+ * por mais de um mosaico.
+ *
+ * Durante a leitura, os registos de cada mosaico são acumulados em memória e
+ * acrescentados ao respetivo ficheiro quando o total acumulado atinge
+ * {@link PropertyGraphConstants#TILE_SPILL_BUDGET_BYTES}, abrindo e fechando
+ * um ficheiro de cada vez; a memória e os descritores de ficheiros utilizados
+ * não dependem assim do número de mosaicos. No processamento, só as formas de
+ * um mosaico por thread estão em memória ao mesmo tempo; as arestas, com 8
+ * bytes cada, e o hash do conjunto são mantidos até ao fim para gravar o
+ * ficheiro de arestas.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class TiledGraphBuilder {
+    private static final GeometryFactory GEOMETRY_FACTORY =
+            new GeometryFactory(new PrecisionModel(), 0, PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+    private final double tileSize;
+    private final long spillBudget;
+    private final Path directory;
+    private final AdjacencyPredicate predicate;
+    private final Map<Long, Tile> tiles;
+    private final List<Tile> pending;
+    private final DatasetHash hash;
+    private int vertexCount;
+    private long buffered;
+
+    /**
+     * Cria um construtor por mosaicos.
+     *
+     * @param tileSize O lado dos mosaicos, nas unidades das coordenadas
+     * @param spillBudget Os bytes acumulados em memória a partir dos quais os
+     *                    registos são gravados nos ficheiros dos mosaicos
+     * @param directory A diretoria, já existente, dos ficheiros temporários
+     */
+    TiledGraphBuilder(double tileSize, long spillBudget, Path directory) {
+        this.tileSize = tileSize;
+        this.spillBudget = spillBudget;
+        this.directory = directory;
+        this.predicate = new AdjacencyPredicate(PropertyGraphConstants.PREDICATE_DE9IM);
+        this.tiles = new HashMap<>();
+        this.pending = new ArrayList<>();
+        this.hash = new DatasetHash();
+    }
+
+    /**
+     * Constrói as adjacências dos cadastros lidos e grava-as num ficheiro de
+     * arestas, identificado pelo hash do conjunto tal como em
+     * {@link PropertyGraph#save(String)}. Os ficheiros temporários são criados
+     * numa diretoria ao lado do ficheiro de arestas e apagados no fim.
+     *
+     * @param cadastros Os cadastros, pela ordem que define os vértices
+     * @param edgePath O caminho do ficheiro de arestas
+     * @param tileSize O lado dos mosaicos, nas unidades das coordenadas
+     * @param parallelism Número de threads a utilizar (1 para sequencial)
+     * @return Número de arestas gravadas
+     * @throws IOException Se houver erro ao ler ou escrever ficheiros
+     * @throws IllegalArgumentException Se não houver cadastros
+     * @throws IllegalStateException Se algum par de propriedades falhar a
+     *                               análise topológica
+     */
+    static int build(Iterator<Cadastro> cadastros, Path edgePath, double tileSize, int parallelism)
+            throws IOException {
+        return build(cadastros, edgePath, tileSize, parallelism, PropertyGraphConstants.TILE_SPILL_BUDGET_BYTES);
+    }
+
+    /**
+     * Igual a {@link #build(Iterator, Path, double, int)}, com os bytes
+     * acumulados em memória antes de cada gravação nos ficheiros dos
+     * mosaicos indicados explicitamente.
+     *
+     * @param cadastros Os cadastros, pela ordem que define os vértices
+     * @param edgePath O caminho do ficheiro de arestas
+     * @param tileSize O lado dos mosaicos, nas unidades das coordenadas
+     * @param parallelism Número de threads a utilizar (1 para sequencial)
+     * @param spillBudget Os bytes acumulados em memória a partir dos quais os
+     *                    registos são gravados nos ficheiros dos mosaicos
+     * @return Número de arestas gravadas
+     * @throws IOException Se houver erro ao ler ou escrever ficheiros
+     */
+    static int build(Iterator<Cadastro> cadastros, Path edgePath, double tileSize, int parallelism,
+                     long spillBudget) throws IOException {
+        Path parent = edgePath.toAbsolutePath().getParent();
+        Path directory = Files.createTempDirectory(parent, PropertyGraphConstants.TILE_DIRECTORY_PREFIX);
+        TiledGraphBuilder builder = new TiledGraphBuilder(tileSize, spillBudget, directory);
+        try {
+            builder.spill(cadastros);
+            if (builder.vertexCount == 0) {
+                throw new IllegalArgumentException(PropertyGraphConstants.EMPTY_CADASTROS_ERROR);
+            }
+            EdgeList edges = builder.findEdges(parallelism);
+            EdgeFile.write(edgePath, builder.hash.digest(), builder.vertexCount, edges);
+            return edges.size();
+        } finally {
+            builder.deleteFiles();
+        }
+    }
+
+    /**
+     * Apaga os ficheiros dos mosaicos e a diretoria temporária.
+     */
+    void deleteFiles() throws IOException {
+        for (Tile tile : tiles.values()) {
+            Files.deleteIfExists(tile.path);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Lê os cadastros, acrescenta-os ao hash e grava cada forma nos mosaicos
+     * que o seu envelope cobre. Propriedades sem forma não são gravadas, mas
+     * contam como vértices.
+     */
+    void spill(Iterator<Cadastro> cadastros) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        try {
+            while (cadastros.hasNext()) {
+                Cadastro cadastro = cadastros.next();
+                hash.add(cadastro);
+                int vertex = vertexCount++;
+                MultiPolygon shape = cadastro.getShape();
+                if (shape == null) {
+                    continue;
+                }
+
+                bytes.reset();
+                record.writeInt(vertex);
+                record.writeInt(cadastro.getId());
+                writeShape(record, shape);
+                Envelope envelope = shape.getEnvelopeInternal();
+                for (int x = tileOf(envelope.getMinX()); x <= tileOf(envelope.getMaxX()); x++) {
+                    for (int y = tileOf(envelope.getMinY()); y <= tileOf(envelope.getMaxY()); y++) {
+                        Tile tile = tiles.get(key(x, y));
+                        if (tile == null) {
+                            tile = new Tile(x, y, directory.resolve(
+                                    String.format(PropertyGraphConstants.TILE_FILE_FORMAT, x, y)));
+                            tiles.put(key(x, y), tile);
+                        }
+                        if (tile.buffer == null) {
+                            tile.buffer = new ByteArrayOutputStream();
+                            pending.add(tile);
+                        }
+                        bytes.writeTo(tile.buffer);
+                        tile.count++;
+                        buffered += bytes.size();
+                    }
+                }
+                if (buffered >= spillBudget) {
+                    flushSpills();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        flushSpills();
+    }
+
+    /**
+     * Acrescenta os registos acumulados de cada mosaico pendente ao seu ficheiro, que
+     * é fechado logo a seguir, e descarta o buffer do mosaico. Reutilizar o
+     * buffer manteria em cada mosaico o maior tamanho que este já atingiu.
+     */
+    private void flushSpills() throws IOException {
+        for (Tile tile : pending) {
+            try (OutputStream out = Files.newOutputStream(tile.path,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                tile.buffer.writeTo(out);
+            }
+            tile.buffer = null;
+        }
+        pending.clear();
+        buffered = 0;
+    }
+
+    /**
+     * Retorna o número de mosaicos com registos em memória.
+     */
+    int bufferedTiles() {
+        int count = 0;
+        for (Tile tile : tiles.values()) {
+            if (tile.buffer != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int tileOf(double coordinate) {
+        return (int) Math.floor(coordinate / tileSize);
+    }
+
+    private static long key(int x, int y) {
+        return (long) x << 32 | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Testa os pares de todos os mosaicos, distribuídos por várias threads.
+     *
+     * @throws IllegalStateException se algum par de propriedades falhar a
+     *                               análise topológica, com os restantes erros
+     *                               anexados como suprimidos
+     */
+    private EdgeList findEdges(int parallelism) throws IOException {
+        Tile[] all = tiles.values().toArray(new Tile[0]);
+        ConcurrentLinkedQueue<IllegalStateException> failures = new ConcurrentLinkedQueue<>();
+        TileTask task = new TileTask(all, 0, all.length, failures);
+
+        EdgeList edges;
+        try {
+            if (parallelism == 1) {
+                edges = task.compute();
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    edges = pool.invoke(task);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (!failures.isEmpty()) {
+            IllegalStateException error = new IllegalStateException(
+                    PropertyGraphConstants.GRAPH_BUILD_ERROR + failures.size()
+                            + PropertyGraphConstants.FAILED_PAIRS_MESSAGE, failures.peek());
+            failures.stream().skip(1).forEach(error::addSuppressed);
+            throw error;
+        }
+        return edges;
+    }
+
+    /**
+     * Lê as propriedades de um mosaico e testa os pares cujo canto inferior
+     * esquerdo da interseção dos envelopes está no mosaico.
+     */
+    private EdgeList processTile(Tile tile, Queue<IllegalStateException> failures) {
+        int[] vertices = new int[tile.count];
+        int[] ids = new int[tile.count];
+        MultiPolygon[] shapes = new MultiPolygon[tile.count];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(tile.path), PropertyGraphConstants.TILE_BUFFER_SIZE))) {
+            for (int k = 0; k < tile.count; k++) {
+                vertices[k] = in.readInt();
+                ids[k] = in.readInt();
+                shapes[k] = readShape(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        STRtree index = new STRtree(PropertyGraphConstants.SPATIAL_INDEX_NODE_CAPACITY);
+        for (int k = 0; k < shapes.length; k++) {
+            index.insert(shapes[k].getEnvelopeInternal(), k);
+        }
+        index.build();
+
+        EdgeList edges = new EdgeList();
+        for (int i = 0; i < shapes.length; i++) {
+            Envelope envelope1 = shapes[i].getEnvelopeInternal();
+            PreparedGeometry prepared1 = null;
+            for (Object hit : index.query(envelope1)) {
+                int j = (Integer) hit;
+                Envelope envelope2 = shapes[j].getEnvelopeInternal();
+                if (vertices[j] <= vertices[i] || !envelope1.intersects(envelope2)
+                        || tileOf(Math.max(envelope1.getMinX(), envelope2.getMinX())) != tile.x
+                        || tileOf(Math.max(envelope1.getMinY(), envelope2.getMinY())) != tile.y) {
+                    continue;
+                }
+                if (prepared1 == null) {
+                    prepared1 = predicate.prepare(shapes[i]);
+                }
+                try {
+                    if (predicate.test(shapes[i], prepared1, shapes[j])) {
+                        edges.add(vertices[i], vertices[j]);
+                    }
+                } catch (IllegalStateException e) {
+                    failures.add(new IllegalStateException(String.format(
+                            PropertyGraphConstants.PAIR_ERROR_FORMAT, ids[i], ids[j], e.getMessage()), e));
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Escreve as coordenadas de um MultiPolygon, anel a anel.
+     */
+    private static void writeShape(DataOutputStream out, MultiPolygon shape) throws IOException {
+        out.writeInt(shape.getNumGeometries());
+        for (int p = 0; p < shape.getNumGeometries(); p++) {
+            Polygon polygon = (Polygon) shape.getGeometryN(p);
+            out.writeInt(1 + polygon.getNumInteriorRing());
+            writeRing(out, polygon.getExteriorRing());
+            for (int r = 0; r < polygon.getNumInteriorRing(); r++) {
+                writeRing(out, polygon.getInteriorRingN(r));
+            }
+        }
+    }
+
+    private static void writeRing(DataOutputStream out, LinearRing ring) throws IOException {
+        CoordinateSequence sequence = ring.getCoordinateSequence();
+        out.writeInt(sequence.size());
+        for (int i = 0; i < sequence.size(); i++) {
+            out.writeDouble(sequence.getX(i));
+            out.writeDouble(sequence.getY(i));
+        }
+    }
+
+    /**
+     * Reconstrói um MultiPolygon gravado por {@link #writeShape}, com
+     * sequências de coordenadas compactadas.
+     */
+    private static MultiPolygon readShape(DataInputStream in) throws IOException {
+        Polygon[] polygons = new Polygon[in.readInt()];
+        for (int p = 0; p < polygons.length; p++) {
+            LinearRing[] rings = new LinearRing[in.readInt()];
+            for (int r = 0; r < rings.length; r++) {
+                double[] coordinates = new double[2 * in.readInt()];
+                for (int k = 0; k < coordinates.length; k++) {
+                    coordinates[k] = in.readDouble();
+                }
+                rings[r] = GEOMETRY_FACTORY.createLinearRing(
+                        PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(coordinates, 2));
+            }
+            LinearRing[] holes = new LinearRing[rings.length - 1];
+            System.arraycopy(rings, 1, holes, 0, holes.length);
+            polygons[p] = GEOMETRY_FACTORY.createPolygon(rings[0], holes);
+        }
+        return GEOMETRY_FACTORY.createMultiPolygon(polygons);
+    }
+
+    /**
+     * Um mosaico, com o ficheiro temporário das suas propriedades e da orla e
+     * os registos ainda por gravar, cujo buffer só existe enquanto o mosaico
+     * está pendente.
+     */
+    private static final class Tile {
+        private final int x;
+        private final int y;
+        private final Path path;
+        private ByteArrayOutputStream buffer;
+        private int count;
+
+        Tile(int x, int y, Path path) {
+            this.x = x;
+            this.y = y;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Tarefa que processa um intervalo de mosaicos, dividida ao meio até
+     * restar um único mosaico, para que cada thread só tenha um mosaico em
+     * memória de cada vez.
+     */
+    private class TileTask extends RecursiveTask<EdgeList> {
+        private final Tile[] all;
+        private final int from;
+        private final int to;
+        private final Queue<IllegalStateException> failures;
+
+        TileTask(Tile[] all, int from, int to, Queue<IllegalStateException> failures) {
+            this.all = all;
+            this.from = from;
+            this.to = to;
+            this.failures = failures;
+        }
+
+        @Override
+        protected EdgeList compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                TileTask left = new TileTask(all, from, middle, failures);
+                left.fork();
+                EdgeList edges = new TileTask(all, middle, to, failures).compute();
+                EdgeList leftEdges = left.join();
+                leftEdges.addAll(edges);
+                return leftEdges;
+            }
+            return from < to ? processTile(all[from], failures) : new EdgeList();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package cadastro.gui;
 
 import cadastro.importer.Cadastro;
 import cadastro.importer.CadastroConstants;
+import cadastro.importer.CadastroSortIndex;
 
 import javax.swing.*;
 import java.awt.*;
@@ -28,6 +29,7 @@ public class GUI extends JFrame {
     private int cadastrosResultPointer;
     private final List<JButton> sortButtons = new ArrayList<>();
     private List<Cadastro> cadastros;
+    private CadastroSortIndex sortIndex;
 
     /**
      * Construtor da classe GUI.
@@ -123,11 +125,13 @@ public class GUI extends JFrame {
         }
 
         try {
-            cadastros = Cadastro.getCadastros(path);
+            cadastros = Cadastro.getCadastros(path, Runtime.getRuntime().availableProcessors(),
+                    CadastroConstants.IMPORT_LAZY);
             
             if (cadastros == null || cadastros.isEmpty()) {
                 throw new IllegalStateException(GUIConstants.EMPTY_FILE_ERROR);
             }
+            sortIndex = new CadastroSortIndex(cadastros);
 
             initializeSortButtons();
             displayResults();
@@ -164,7 +168,7 @@ public class GUI extends JFrame {
                 throw new IllegalStateException(GUIConstants.EMPTY_LIST_ERROR + "ordenar");
             }
 
-            cadastros = Cadastro.sortCadastros(cadastros, sortType);
+            cadastros = sortIndex.sort(sortType);
             displayResults();
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this,
@@ -1,19 +1,16 @@
 package cadastro.importer;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
-import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.io.ParseException;
-import org.locationtech.jts.io.WKTReader;
 
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
 
 /**
  * Classe que representa um cadastro de propriedade, contendo informações como
@@ -24,15 +21,23 @@ import java.util.List;
  * @version 1.0
  */
 public class Cadastro {
+    /** Dicionário partilhado pelos cadastros criados a partir de registros avulsos */
+    private static final LocationDictionary SHARED_LOCATIONS = new LocationDictionary();
+
     private final int id;
     private final double length;
     private final double area;
     private final MultiPolygon shape;
+    private final LazyShape lazyShape;
     private final int owner;
-    private final List<String> location;
+    private final int[] locationCodes;
+    private final LocationDictionary locationDictionary;
+    private List<String> location;
 
     /**
-     * Constrói um objeto Cadastro a partir de um registro CSV.
+     * Constrói um objeto Cadastro a partir de um registro CSV avulso. As
+     * localizações são codificadas num dicionário global, partilhado por
+     * todos os cadastros criados com este construtor.
      * 
      * @param record O registro CSV contendo os dados do cadastro
      * @throws ParseException           Se houver erro ao processar a geometria WKT
@@ -40,18 +45,146 @@ public class Cadastro {
      *                                  numéricos
      */
     public Cadastro(CSVRecord record) throws ParseException {
+        this(record, SHARED_LOCATIONS);
+    }
+
+    /**
+     * Constrói um objeto Cadastro a partir de um registro CSV, codificando as
+     * localizações no dicionário partilhado pelos cadastros do mesmo ficheiro.
+     * 
+     * @param record O registro CSV contendo os dados do cadastro
+     * @param locationDictionary O dicionário de localizações do ficheiro
+     * @throws ParseException           Se houver erro ao processar a geometria WKT
+     * @throws IllegalArgumentException Se houver erro ao converter valores
+     *                                  numéricos
+     */
+    Cadastro(CSVRecord record, LocationDictionary locationDictionary) throws ParseException {
+        this(field(record, CadastroConstants.ID_INDEX),
+                field(record, CadastroConstants.LENGTH_INDEX),
+                field(record, CadastroConstants.AREA_INDEX),
+                field(record, CadastroConstants.SHAPE_INDEX),
+                field(record, CadastroConstants.OWNER_INDEX),
+                record.stream().skip(CadastroConstants.LOCATION_START_INDEX).toList(),
+                locationDictionary);
+    }
+
+    /**
+     * Retorna um campo de um registro CSV, ou null se o registro não tiver
+     * esse campo.
+     * 
+     * @param record O registro CSV
+     * @param index O índice do campo
+     * @return O valor do campo, ou null se não existir
+     */
+    private static String field(CSVRecord record, int index) {
+        return record.isSet(index) ? record.get(index) : null;
+    }
+
+    /**
+     * Constrói um objeto Cadastro a partir dos campos de um registo, já
+     * separados, aplicando as mesmas validações que o construtor a partir de
+     * um registro CSV.
+     * 
+     * @param idField O campo do ID
+     * @param lengthField O campo do comprimento
+     * @param areaField O campo da área
+     * @param shapeField O campo da forma, em WKT
+     * @param ownerField O campo do proprietário
+     * @param locationFields Os campos das localizações, incluindo os "NA"
+     * @param locationDictionary O dicionário de localizações do ficheiro
+     * @throws ParseException           Se houver erro ao processar a geometria WKT
+     * @throws IllegalArgumentException Se houver erro ao converter valores
+     *                                  numéricos
+     */
+    Cadastro(String idField, String lengthField, String areaField, String shapeField, String ownerField,
+            List<String> locationFields, LocationDictionary locationDictionary) throws ParseException {
+        this(idField, lengthField, areaField, shapeField, null, ownerField, locationFields, locationDictionary);
+    }
+
+    /**
+     * Constrói um objeto Cadastro a partir dos campos de um registo, sem
+     * descodificar a forma, que só é lida do ficheiro quando for pedida.
+     * 
+     * @param idField O campo do ID
+     * @param lengthField O campo do comprimento
+     * @param areaField O campo da área
+     * @param lazyShape A posição da forma no ficheiro de origem
+     * @param ownerField O campo do proprietário
+     * @param locationFields Os campos das localizações, incluindo os "NA"
+     * @param locationDictionary O dicionário de localizações do ficheiro
+     * @throws IllegalArgumentException Se houver erro ao converter valores
+     *                                  numéricos
+     */
+    Cadastro(String idField, String lengthField, String areaField, LazyShape lazyShape, String ownerField,
+            List<String> locationFields, LocationDictionary locationDictionary) throws ParseException {
+        this(idField, lengthField, areaField, null, lazyShape, ownerField, locationFields, locationDictionary);
+    }
+
+    private Cadastro(String idField, String lengthField, String areaField, String shapeField, LazyShape lazyShape,
+            String ownerField, List<String> locationFields, LocationDictionary locationDictionary)
+            throws ParseException {
         try {
-            this.id = handleId(record.get(CadastroConstants.ID_INDEX));
-            this.length = handleLength(record.get(CadastroConstants.LENGTH_INDEX));
-            this.area = handleArea(record.get(CadastroConstants.AREA_INDEX));
-            this.shape = handleShape(record.get(CadastroConstants.SHAPE_INDEX));
-            this.owner = handleOwner(record.get(CadastroConstants.OWNER_INDEX));
-            this.location = handleLocation(record);
+            this.id = handleId(idField);
+            this.length = handleLength(lengthField);
+            this.area = handleArea(areaField);
+            this.shape = lazyShape == null ? handleShape(shapeField) : null;
+            this.lazyShape = lazyShape;
+            this.owner = handleOwner(ownerField);
+            this.locationCodes = handleLocation(locationFields, locationDictionary);
+            this.locationDictionary = locationDictionary;
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException(CadastroConstants.NUMBER_CONVERSION_ERROR, e);
         }
     }
 
+    /**
+     * Constrói um objeto Cadastro a partir de valores já validados, como os
+     * lidos de um snapshot binário.
+     * 
+     * @param id O ID do cadastro
+     * @param length O comprimento do cadastro
+     * @param area A área do cadastro
+     * @param shape A forma geométrica do cadastro
+     * @param owner O ID do proprietário
+     * @param locationCodes Os códigos das localizações por nível, com
+     *                      {@link LocationDictionary#NO_LOCATION} nos "NA"
+     * @param locationDictionary O dicionário dos códigos de localização
+     */
+    Cadastro(int id, double length, double area, MultiPolygon shape, int owner, int[] locationCodes,
+            LocationDictionary locationDictionary) {
+        this(id, length, area, shape, null, owner, locationCodes, locationDictionary);
+    }
+
+    /**
+     * Constrói um objeto Cadastro a partir de valores já validados, com a
+     * forma ainda por descodificar.
+     * 
+     * @param id O ID do cadastro
+     * @param length O comprimento do cadastro
+     * @param area A área do cadastro
+     * @param lazyShape A posição da forma no ficheiro de origem
+     * @param owner O ID do proprietário
+     * @param locationCodes Os códigos das localizações por nível, com
+     *                      {@link LocationDictionary#NO_LOCATION} nos "NA"
+     * @param locationDictionary O dicionário dos códigos de localização
+     */
+    Cadastro(int id, double length, double area, LazyShape lazyShape, int owner, int[] locationCodes,
+            LocationDictionary locationDictionary) {
+        this(id, length, area, null, lazyShape, owner, locationCodes, locationDictionary);
+    }
+
+    private Cadastro(int id, double length, double area, MultiPolygon shape, LazyShape lazyShape, int owner,
+            int[] locationCodes, LocationDictionary locationDictionary) {
+        this.id = id;
+        this.length = length;
+        this.area = area;
+        this.shape = shape;
+        this.lazyShape = lazyShape;
+        this.owner = owner;
+        this.locationCodes = locationCodes;
+        this.locationDictionary = locationDictionary;
+    }
+
     /**
      * Verifica o campo id da propriedade.
      * 
@@ -60,7 +193,7 @@ public class Cadastro {
      * @throws IllegalArgumentException Se o id for null ou se for menor ou igual
      *                                  a zero
      */
-    private int handleId(String idStr) {
+    static int handleId(String idStr) {
         if (idStr == null || idStr.trim().isEmpty()) {
             throw new IllegalArgumentException("ID" + CadastroConstants.NULL_OR_EMPTY_ERROR);
         }
@@ -79,7 +212,7 @@ public class Cadastro {
      * @throws IllegalArgumentException Se o comprimento for null ou se for menor ou
      *                                  igual a zero
      */
-    private double handleLength(String lengthStr) {
+    static double handleLength(String lengthStr) {
         if (lengthStr == null || lengthStr.trim().isEmpty()) {
             throw new IllegalArgumentException("Comprimento" + CadastroConstants.NULL_OR_EMPTY_ERROR);
         }
@@ -98,7 +231,7 @@ public class Cadastro {
      * @throws IllegalArgumentException Se a área for null ou se for menor ou igual
      *                                  a zero
      */
-    private double handleArea(String areaStr) {
+    static double handleArea(String areaStr) {
         if (areaStr == null || areaStr.trim().isEmpty()) {
             throw new IllegalArgumentException("Área" + CadastroConstants.NULL_OR_EMPTY_ERROR);
         }
@@ -117,18 +250,11 @@ public class Cadastro {
      * @throws ParseException           Se houver erro ao processar a geometria
      * @throws IllegalArgumentException Se a geometria não for um MultiPolygon
      */
-    private MultiPolygon handleShape(String record) throws ParseException {
-        try {
-            WKTReader reader = new WKTReader();
-            Geometry geometry = reader.read(record);
-            if (geometry instanceof MultiPolygon multiPolygon) {
-                return multiPolygon;
-            } else {
-                throw new IllegalArgumentException(record + CadastroConstants.INVALID_GEOMETRY_ERROR);
-            }
-        } catch (ParseException e) {
-            throw e;
+    static MultiPolygon handleShape(String record) throws ParseException {
+        if (record == null) {
+            throw new IllegalArgumentException("Shape" + CadastroConstants.NULL_OR_EMPTY_ERROR);
         }
+        return MultiPolygonWktDecoder.decode(record);
     }
 
     /**
@@ -139,7 +265,7 @@ public class Cadastro {
      * @throws IllegalArgumentException Se o owner for null ou se for menor ou igual
      *                                  a zero
      */
-    private int handleOwner(String ownerStr) {
+    static int handleOwner(String ownerStr) {
         if (ownerStr == null || ownerStr.trim().isEmpty()) {
             throw new IllegalArgumentException("Owner" + CadastroConstants.NULL_OR_EMPTY_ERROR);
         }
@@ -151,80 +277,230 @@ public class Cadastro {
     }
 
     /**
-     * Processa as localizações do registro CSV, removendo valores "NA".
+     * Processa as localizações do registro CSV, codificando cada nível no
+     * dicionário e os valores "NA" como {@link LocationDictionary#NO_LOCATION}.
      * 
-     * @param record O registro CSV contendo as localizações
-     * @return Lista de localizações processadas
+     * @param locationFields Os campos de localização do registro CSV
+     * @param locationDictionary O dicionário de localizações
+     * @return Os códigos das localizações por nível
      */
-    private List<String> handleLocation(CSVRecord record) {
-        return record.stream()
-                .skip(CadastroConstants.LOCATION_START_INDEX)
-                .filter(s -> !s.equals(CadastroConstants.NA_VALUE))
-                .toList();
+    static int[] handleLocation(List<String> locationFields, LocationDictionary locationDictionary) {
+        int[] codes = new int[locationFields.size()];
+        for (int level = 0; level < codes.length; level++) {
+            String location = locationFields.get(level);
+            codes[level] = location.equals(CadastroConstants.NA_VALUE)
+                    ? LocationDictionary.NO_LOCATION
+                    : locationDictionary.encode(location);
+        }
+        return codes;
     }
 
     /**
      * Lê um arquivo CSV e retorna uma lista de cadastros.
+     * Se existir um snapshot binário atualizado do arquivo, os cadastros são
+     * carregados a partir dele; caso contrário o CSV é processado e o snapshot
+     * é gravado para as importações seguintes.
      * 
      * @param path O caminho do arquivo CSV
      * @return Lista de cadastros lidos do arquivo
      * @throws Exception Se houver erro ao ler ou processar o arquivo
      */
     public static List<Cadastro> getCadastros(String path) throws Exception {
-        List<Cadastro> cadastros = new ArrayList<>();
+        return getCadastros(path, 1);
+    }
 
-        try (Reader in = new FileReader(path);
-                CSVParser parser = CSVFormat.newFormat(';').parse(in)) {
+    /**
+     * Lê um arquivo CSV e retorna uma lista de cadastros, utilizando várias
+     * threads. Com mais de uma thread, o arquivo é mapeado em memória e
+     * dividido em blocos alinhados com o início dos registros, processados em
+     * paralelo por {@link MappedCsvReader}. A lista devolvida e o número de
+     * registros ignorados são os mesmos da leitura sequencial.
+     * 
+     * @param path O caminho do arquivo CSV
+     * @param parallelism Número de threads a utilizar (1 para leitura sequencial)
+     * @return Lista de cadastros lidos do arquivo
+     * @throws Exception Se houver erro ao ler ou processar o arquivo
+     */
+    public static List<Cadastro> getCadastros(String path, int parallelism) throws Exception {
+        return getCadastros(path, parallelism, CadastroConstants.IMPORT_EAGER);
+    }
 
-            List<CSVRecord> records = parser.getRecords();
-            int totalRecords = records.size();
-            int skippedRecords = 0;
+    /**
+     * Lê um arquivo CSV e retorna uma lista de cadastros, no modo de
+     * importação indicado.
+     * 
+     * No modo {@link CadastroConstants#IMPORT_LAZY}, as formas não são
+     * descodificadas: cada cadastro guarda apenas a posição da sua forma no
+     * CSV (ou no snapshot, se existir) e descodifica-a no primeiro
+     * {@link #getShape()}. O CSV é sempre lido por {@link MappedCsvReader},
+     * que conhece a posição de cada campo, e não é gravado nenhum snapshot.
+     * A estrutura do WKT é verificada na leitura, sem criar a geometria, pelo
+     * que os registros com formas inválidas são ignorados como no modo
+     * {@link CadastroConstants#IMPORT_EAGER}.
+     * 
+     * @param path O caminho do arquivo CSV
+     * @param parallelism Número de threads a utilizar (1 para leitura sequencial)
+     * @param importMode O modo de importação ({@link CadastroConstants#IMPORT_EAGER}
+     *                   ou {@link CadastroConstants#IMPORT_LAZY})
+     * @return Lista de cadastros lidos do arquivo
+     * @throws Exception Se houver erro ao ler ou processar o arquivo
+     */
+    public static List<Cadastro> getCadastros(String path, int parallelism, int importMode) throws Exception {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_PARALLELISM_ERROR);
+        }
+        if (importMode != CadastroConstants.IMPORT_EAGER && importMode != CadastroConstants.IMPORT_LAZY) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_IMPORT_MODE_ERROR);
+        }
+        boolean lazy = importMode == CadastroConstants.IMPORT_LAZY;
 
-            for (int i = 1; i < totalRecords; i++) {
-                try {
-                    Cadastro cadastro = new Cadastro(records.get(i));
-                    cadastros.add(cadastro);
-                } catch (IllegalArgumentException | ParseException e) {
-                    skippedRecords++;
-                }
+        Path source = Path.of(path);
+        ImportResult result = CadastroSnapshot.load(source, lazy);
+        if (result == null) {
+            try {
+                result = parallelism == 1 && !lazy ? readCsv(path) : MappedCsvReader.read(source, parallelism, lazy);
+            } catch (IOException e) {
+                throw new Exception(CadastroConstants.FILE_READ_ERROR, e);
+            }
+
+            if (result.getCadastros().isEmpty()) {
+                throw new IllegalStateException(CadastroConstants.EMPTY_FILE_ERROR);
+            }
+            if (!lazy) {
+                CadastroSnapshot.save(source, result);
+            }
+        }
+
+        System.out.println("Total de cadastros: " + result.getCadastros().size());
+        System.out.println("Total de registros ignorados: " + result.getSkippedRecords());
+        return result.getCadastros();
+    }
+
+    /**
+     * Lê um arquivo CSV para uma {@link CadastroTable}, com os cadastros
+     * guardados por colunas, pela mesma ordem de
+     * {@link #getCadastros(String, int, int)}.
+     * 
+     * As colunas são preenchidas diretamente a partir do snapshot, se existir,
+     * ou dos blocos lidos por {@link MappedCsvReader}, sem criar um objeto
+     * {@link Cadastro} por registro, pelo que a memória utilizada é só a da
+     * tabela. Não é gravado nenhum snapshot.
+     * 
+     * @param path O caminho do arquivo CSV
+     * @param parallelism Número de threads a utilizar (1 para leitura sequencial)
+     * @param importMode O modo de importação ({@link CadastroConstants#IMPORT_EAGER}
+     *                   ou {@link CadastroConstants#IMPORT_LAZY})
+     * @return A tabela de cadastros lidos do arquivo
+     * @throws Exception Se houver erro ao ler ou processar o arquivo
+     */
+    public static CadastroTable getCadastroTable(String path, int parallelism, int importMode) throws Exception {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_PARALLELISM_ERROR);
+        }
+        if (importMode != CadastroConstants.IMPORT_EAGER && importMode != CadastroConstants.IMPORT_LAZY) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_IMPORT_MODE_ERROR);
+        }
+        boolean lazy = importMode == CadastroConstants.IMPORT_LAZY;
+
+        Path source = Path.of(path);
+        ImportResult result = CadastroSnapshot.loadTable(source, lazy);
+        if (result == null) {
+            try {
+                result = MappedCsvReader.readTable(source, parallelism, lazy);
+            } catch (IOException e) {
+                throw new Exception(CadastroConstants.FILE_READ_ERROR, e);
             }
 
-            if (cadastros.isEmpty()) {
+            if (result.getTable().size() == 0) {
                 throw new IllegalStateException(CadastroConstants.EMPTY_FILE_ERROR);
             }
+        }
+
+        System.out.println("Total de cadastros: " + result.getTable().size());
+        System.out.println("Total de registros ignorados: " + result.getSkippedRecords());
+        return result.getTable();
+    }
+
+    /**
+     * Lê sequencialmente um arquivo CSV, ignorando o cabeçalho e os registros
+     * inválidos. Os registros são lidos em streaming, sem carregar todos os
+     * {@link CSVRecord} em memória antes de criar os cadastros.
+     * 
+     * @param path O caminho do arquivo CSV
+     * @return Os cadastros lidos e o número de registros ignorados
+     * @throws IOException Se houver erro ao ler o arquivo
+     */
+    private static ImportResult readCsv(String path) throws IOException {
+        List<Cadastro> cadastros = new ArrayList<>();
+
+        try (CadastroReader reader = new CadastroReader(path)) {
+            while (reader.hasNext()) {
+                cadastros.add(reader.next());
+            }
+            return new ImportResult(cadastros, reader.getSkippedRecords());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-            System.out.println("Total de cadastros: " + cadastros.size());  
-            System.out.println("Total de registros ignorados: " + skippedRecords);
-            return cadastros;
-        } catch (IOException e) {
-            throw new Exception(CadastroConstants.FILE_READ_ERROR, e);
+    /**
+     * Abre um arquivo CSV como um {@link Stream} de cadastros lidos em
+     * streaming, com memória limitada independentemente do tamanho do
+     * arquivo. O stream deve ser fechado depois de usado.
+     * 
+     * @param path O caminho do arquivo CSV
+     * @param onSkipped Callback chamado para cada registro inválido, com a
+     *                  exceção e o número do registro
+     * @return Stream de cadastros
+     * @throws IOException Se houver erro ao abrir o arquivo
+     */
+    public static Stream<Cadastro> streamCadastros(String path, ObjLongConsumer<Exception> onSkipped)
+            throws IOException {
+        return new CadastroReader(path, onSkipped).stream();
+    }
+
+    /**
+     * Retorna um relatório da memória estimada das formas dos cadastros,
+     * comparando as sequências de coordenadas compactadas usadas na
+     * importação com a representação por omissão do JTS, com um objeto
+     * {@code Coordinate} por vértice.
+     * 
+     * @param cadastros A lista de cadastros
+     * @return Texto com a memória estimada de ambas as representações
+     */
+    public static String getMemoryReport(List<Cadastro> cadastros) {
+        ShapeFootprint footprint = new ShapeFootprint();
+        for (Cadastro cadastro : cadastros) {
+            footprint.add(cadastro.getShape());
         }
+        long count = Math.max(1, footprint.getShapes());
+        long packedBytes = footprint.getPackedBytes();
+        long coordinateArrayBytes = footprint.getCoordinateArrayBytes();
+        return String.format(CadastroConstants.MEMORY_REPORT_FORMAT,
+                footprint.getShapes(), footprint.getCoordinates(),
+                coordinateArrayBytes, (double) coordinateArrayBytes / count,
+                packedBytes, (double) packedBytes / count,
+                packedBytes == 0 ? 0.0 : (double) coordinateArrayBytes / packedBytes);
     }
 
     /**
-     * Ordena uma lista de cadastros de acordo com o critério especificado.
+     * Ordena uma lista de cadastros de acordo com o critério especificado,
+     * sem alterar a lista recebida. Para ordenar a mesma lista várias vezes,
+     * é preferível manter um {@link CadastroSortIndex}, que guarda as
+     * ordenações já calculadas.
      * 
      * @param cadastros A lista de cadastros a ser ordenada
-     * @param sortType  O tipo de ordenação (ID, comprimento, área ou proprietário)
-     * @return A lista de cadastros ordenada
+     * @param sortType  O tipo de ordenação (ID, comprimento, área ou proprietário),
+     *                  opcionalmente combinado com {@link CadastroConstants#SORT_DESCENDING}
+     * @return Uma nova lista com os cadastros ordenados, ou pela ordem original
+     *         se o tipo de ordenação não for reconhecido
      * @throws Exception Se o tipo de ordenação for inválido
      */
     public static List<Cadastro> sortCadastros(List<Cadastro> cadastros, int sortType) throws Exception {
-        switch (sortType) {
-            case CadastroConstants.SORT_BY_ID:
-                cadastros.sort(Comparator.comparingInt(Cadastro::getId));
-                break;
-            case CadastroConstants.SORT_BY_LENGTH:
-                cadastros.sort(Comparator.comparingDouble(Cadastro::getLength));
-                break;
-            case CadastroConstants.SORT_BY_AREA:
-                cadastros.sort(Comparator.comparingDouble(Cadastro::getArea));
-                break;
-            case CadastroConstants.SORT_BY_OWNER:
-                cadastros.sort(Comparator.comparingInt(Cadastro::getOwner));
-                break;
+        if (!CadastroSortIndex.isValid(sortType)) {
+            return new ArrayList<>(cadastros);
         }
-        return cadastros;
+        return new ArrayList<>(new CadastroSortIndex(cadastros).sort(sortType));
     }
 
     /**
@@ -238,9 +514,9 @@ public class Cadastro {
                 "id=" + id +
                 ", length=" + length +
                 ", area=" + area +
-                ", shape=" + shape +
+                ", shape=" + getShape() +
                 ", owner=" + owner +
-                ", location=" + location +
+                ", location=" + getLocation() +
                 '}';
     }
 
@@ -272,12 +548,27 @@ public class Cadastro {
     }
 
     /**
-     * Retorna a forma geométrica do cadastro.
+     * Retorna a forma geométrica do cadastro. Nos cadastros importados no modo
+     * {@link CadastroConstants#IMPORT_LAZY}, a forma é lida e descodificada no
+     * primeiro pedido e mantida numa cache limitada.
      * 
      * @return O objeto MultiPolygon representando a forma
+     * @throws IllegalStateException Se a forma de um cadastro importado no
+     *                               modo lazy não puder ser descodificada
      */
     public MultiPolygon getShape() {
-        return shape;
+        return lazyShape == null ? shape : ShapeCache.get(lazyShape);
+    }
+
+    /**
+     * Retorna a referência para a forma ainda por descodificar dos cadastros
+     * importados no modo {@link CadastroConstants#IMPORT_LAZY}.
+     * 
+     * @return A referência para a forma, ou null se a forma já foi descodificada
+     *         na importação
+     */
+    LazyShape getLazyShape() {
+        return lazyShape;
     }
 
     /**
@@ -290,11 +581,59 @@ public class Cadastro {
     }
 
     /**
-     * Retorna a lista de localizações do cadastro.
+     * Retorna a lista de localizações do cadastro, sem os níveis "NA". A
+     * lista é descodificada no primeiro pedido e reutilizada nos seguintes;
+     * como é imutável, pode ser partilhada entre threads.
      * 
-     * @return Lista de localizações
+     * @return Lista imutável de localizações
      */
     public List<String> getLocation() {
-        return location;
+        List<String> cached = location;
+        if (cached == null) {
+            List<String> decoded = new ArrayList<>(locationCodes.length);
+            for (int code : locationCodes) {
+                if (code != LocationDictionary.NO_LOCATION) {
+                    decoded.add(locationDictionary.decode(code));
+                }
+            }
+            cached = List.copyOf(decoded);
+            location = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Retorna o código da localização do cadastro num nível
+     * ({@link CadastroConstants#LOCATION_FREGUESIA},
+     * {@link CadastroConstants#LOCATION_MUNICIPIO} ou
+     * {@link CadastroConstants#LOCATION_ILHA}). Os códigos de cadastros com o
+     * mesmo {@link #getLocationDictionary()} podem ser comparados diretamente.
+     * 
+     * @param level O nível da localização
+     * @return O código da localização, ou {@link LocationDictionary#NO_LOCATION}
+     *         se o nível for "NA" ou não existir
+     */
+    public int getLocationCode(int level) {
+        return level >= 0 && level < locationCodes.length ? locationCodes[level] : LocationDictionary.NO_LOCATION;
+    }
+
+    /**
+     * Retorna o número de níveis de localização do registro de origem,
+     * incluindo os "NA".
+     * 
+     * @return O número de níveis de localização
+     */
+    public int getLocationLevels() {
+        return locationCodes.length;
+    }
+
+    /**
+     * Retorna o dicionário dos códigos de localização do cadastro, partilhado
+     * pelos cadastros importados do mesmo ficheiro.
+     * 
+     * @return O dicionário de localizações
+     */
+    public LocationDictionary getLocationDictionary() {
+        return locationDictionary;
     }
 }
@@ -0,0 +1,503 @@
+package cadastro.importer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Agregados de uma medida ({@link CadastroConstants#AGGREGATE_AREA} ou
+ * {@link CadastroConstants#AGGREGATE_LENGTH}) de uma {@link CadastroTable},
+ * agrupados por localização em cada nível
+ * ({@link CadastroConstants#LOCATION_FREGUESIA},
+ * {@link CadastroConstants#LOCATION_MUNICIPIO} e
+ * {@link CadastroConstants#LOCATION_ILHA}): contagem, soma, média, mínimo,
+ * máximo e percentis.
+ *
+ * A tabela é percorrida uma única vez, em blocos de
+ * {@link CadastroConstants#AGGREGATION_CHUNK_ROWS} linhas processados em
+ * paralelo, cada um com acumuladores primitivos próprios que são depois
+ * juntos pela ordem dos blocos. Os blocos não dependem do número de threads,
+ * pelo que o resultado é sempre o mesmo. Os acumuladores são indexados pelas
+ * combinações distintas de códigos de todos os níveis, as folhas da
+ * hierarquia; os agregados de cada nível são obtidos juntando as folhas, sem
+ * voltar a percorrer a tabela. Os percentis usam os valores de cada folha,
+ * ordenados, e juntam as folhas de um grupo só quando são pedidos.
+ *
+ * As linhas com o nível "NA" não contam nos grupos desse nível. Os agregados
+ * são obtidos com {@link CadastroTable#getAggregation(int, int)}, que os
+ * guarda na tabela; uma nova importação cria uma nova tabela e, com ela,
+ * novos agregados.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public final class CadastroAggregation {
+    private final int measure;
+    private final LocationDictionary dictionary;
+    private final int[][] levelCodes;
+    private final long[][] counts;
+    private final double[][] sums;
+    private final double[][] mins;
+    private final double[][] maxs;
+    private final int[][] groupOffsets;
+    private final int[][] groupLeaves;
+    private final int[] leafOffsets;
+    private final double[] sortedValues;
+    private final ConcurrentHashMap<Long, double[]> groupValues = new ConcurrentHashMap<>();
+
+    /**
+     * Acumuladores de um bloco de linhas, um por folha.
+     */
+    private static final class Accumulator {
+        final long[] count;
+        final double[] sum;
+        final double[] min;
+        final double[] max;
+
+        Accumulator(int leaves) {
+            this.count = new long[leaves];
+            this.sum = new double[leaves];
+            this.min = new double[leaves];
+            this.max = new double[leaves];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        void add(int leaf, double value) {
+            count[leaf]++;
+            sum[leaf] += value;
+            min[leaf] = Math.min(min[leaf], value);
+            max[leaf] = Math.max(max[leaf], value);
+        }
+
+        void merge(Accumulator other) {
+            for (int leaf = 0; leaf < count.length; leaf++) {
+                count[leaf] += other.count[leaf];
+                sum[leaf] += other.sum[leaf];
+                min[leaf] = Math.min(min[leaf], other.min[leaf]);
+                max[leaf] = Math.max(max[leaf], other.max[leaf]);
+            }
+        }
+    }
+
+    /**
+     * Calcula os agregados de uma medida da tabela.
+     *
+     * @param table A tabela de cadastros
+     * @param measure A medida a agregar
+     * @param parallelism Número de threads a utilizar (1 para sequencial)
+     * @throws IllegalArgumentException Se a medida ou o paralelismo forem
+     *                                  inválidos
+     */
+    CadastroAggregation(CadastroTable table, int measure, int parallelism) {
+        if (measure != CadastroConstants.AGGREGATE_AREA && measure != CadastroConstants.AGGREGATE_LENGTH) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_MEASURE_ERROR);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_PARALLELISM_ERROR);
+        }
+        this.measure = measure;
+        this.dictionary = table.getLocationDictionary();
+        int n = table.size();
+        int levels = table.getLocationColumns();
+
+        // Folhas: combinações distintas dos códigos de todos os níveis, obtidas
+        // refinando os grupos um nível de cada vez
+        int[] leafOf = new int[n];
+        long[][] refinements = new long[levels][];
+        long[] packed = new long[n];
+        for (int level = 0; level < levels; level++) {
+            for (int row = 0; row < n; row++) {
+                packed[row] = (long) leafOf[row] << 32 | (table.getLocationCode(row, level) + 1L);
+            }
+            long[] distinct = distinct(packed);
+            for (int row = 0; row < n; row++) {
+                leafOf[row] = Arrays.binarySearch(distinct, packed[row]);
+            }
+            refinements[level] = distinct;
+        }
+        int leaves = n == 0 ? 0 : levels == 0 ? 1 : refinements[levels - 1].length;
+
+        int[][] leafCodes = new int[levels][leaves];
+        for (int leaf = 0; leaf < leaves; leaf++) {
+            int current = leaf;
+            for (int level = levels - 1; level >= 0; level--) {
+                long key = refinements[level][current];
+                leafCodes[level][leaf] = (int) (key & 0xFFFFFFFFL) - 1;
+                current = (int) (key >>> 32);
+            }
+        }
+
+        double[] values = new double[n];
+        for (int row = 0; row < n; row++) {
+            values[row] = measure == CadastroConstants.AGGREGATE_AREA ? table.getArea(row) : table.getLength(row);
+        }
+        Accumulator total = accumulate(leafOf, values, leaves, parallelism);
+
+        // Valores de cada folha, contíguos e ordenados, para os percentis
+        this.leafOffsets = new int[leaves + 1];
+        for (int leaf = 0; leaf < leaves; leaf++) {
+            leafOffsets[leaf + 1] = leafOffsets[leaf] + (int) total.count[leaf];
+        }
+        this.sortedValues = new double[n];
+        int[] next = Arrays.copyOf(leafOffsets, leaves);
+        for (int row = 0; row < n; row++) {
+            sortedValues[next[leafOf[row]]++] = values[row];
+        }
+        sortLeaves(leaves, parallelism);
+
+        // Agregação por nível a partir das folhas
+        this.levelCodes = new int[levels][];
+        this.counts = new long[levels][];
+        this.sums = new double[levels][];
+        this.mins = new double[levels][];
+        this.maxs = new double[levels][];
+        this.groupOffsets = new int[levels][];
+        this.groupLeaves = new int[levels][];
+        for (int level = 0; level < levels; level++) {
+            rollUp(level, leafCodes[level], total);
+        }
+    }
+
+    /**
+     * Ordena e remove os repetidos de uma cópia de um array.
+     */
+    private static long[] distinct(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.parallelSort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Acumula os valores de todas as linhas, em blocos de tamanho fixo, e
+     * junta os acumuladores dos blocos pela ordem das linhas.
+     */
+    private static Accumulator accumulate(int[] leafOf, double[] values, int leaves, int parallelism) {
+        int chunkRows = CadastroConstants.AGGREGATION_CHUNK_ROWS;
+        int chunks = (values.length + chunkRows - 1) / chunkRows;
+        Accumulator total = new Accumulator(leaves);
+        if (parallelism == 1 || chunks <= 1) {
+            for (int c = 0; c < chunks; c++) {
+                total.merge(accumulateChunk(leafOf, values, leaves, c * chunkRows));
+            }
+            return total;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks));
+        try {
+            List<Future<Accumulator>> results = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int from = c * chunkRows;
+                results.add(executor.submit(() -> accumulateChunk(leafOf, values, leaves, from)));
+            }
+            for (Future<Accumulator> result : results) {
+                total.merge(result.get());
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Accumulator accumulateChunk(int[] leafOf, double[] values, int leaves, int from) {
+        Accumulator accumulator = new Accumulator(leaves);
+        int to = Math.min(values.length, from + CadastroConstants.AGGREGATION_CHUNK_ROWS);
+        for (int row = from; row < to; row++) {
+            accumulator.add(leafOf[row], values[row]);
+        }
+        return accumulator;
+    }
+
+    /**
+     * Ordena os valores de cada folha, com as folhas divididas em grupos
+     * ordenados em paralelo.
+     */
+    private void sortLeaves(int leaves, int parallelism) {
+        if (parallelism == 1 || sortedValues.length <= CadastroConstants.AGGREGATION_CHUNK_ROWS) {
+            for (int leaf = 0; leaf < leaves; leaf++) {
+                Arrays.sort(sortedValues, leafOffsets[leaf], leafOffsets[leaf + 1]);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            int first = 0;
+            while (first < leaves) {
+                int last = first + 1;
+                while (last < leaves && leafOffsets[last] - leafOffsets[first] < CadastroConstants.AGGREGATION_CHUNK_ROWS) {
+                    last++;
+                }
+                int from = first;
+                int to = last;
+                results.add(executor.submit(() -> {
+                    for (int leaf = from; leaf < to; leaf++) {
+                        Arrays.sort(sortedValues, leafOffsets[leaf], leafOffsets[leaf + 1]);
+                    }
+                }));
+                first = last;
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Junta os acumuladores das folhas com o mesmo código num nível.
+     */
+    private void rollUp(int level, int[] codeOfLeaf, Accumulator total) {
+        int leaves = codeOfLeaf.length;
+        long[] byCode = new long[leaves];
+        int size = 0;
+        for (int leaf = 0; leaf < leaves; leaf++) {
+            if (codeOfLeaf[leaf] != LocationDictionary.NO_LOCATION) {
+                byCode[size++] = (long) codeOfLeaf[leaf] << 32 | leaf;
+            }
+        }
+        byCode = Arrays.copyOf(byCode, size);
+        Arrays.sort(byCode);
+
+        int groups = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || (int) (byCode[i] >>> 32) != (int) (byCode[i - 1] >>> 32)) {
+                groups++;
+            }
+        }
+        int[] codes = new int[groups];
+        long[] count = new long[groups];
+        double[] sum = new double[groups];
+        double[] min = new double[groups];
+        double[] max = new double[groups];
+        int[] offsets = new int[groups + 1];
+        int[] members = new int[size];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+
+        int group = -1;
+        for (int i = 0; i < size; i++) {
+            int code = (int) (byCode[i] >>> 32);
+            int leaf = (int) byCode[i];
+            if (group < 0 || codes[group] != code) {
+                codes[++group] = code;
+                offsets[group] = i;
+            }
+            members[i] = leaf;
+            count[group] += total.count[leaf];
+            sum[group] += total.sum[leaf];
+            min[group] = Math.min(min[group], total.min[leaf]);
+            max[group] = Math.max(max[group], total.max[leaf]);
+        }
+        offsets[groups] = size;
+
+        levelCodes[level] = codes;
+        counts[level] = count;
+        sums[level] = sum;
+        mins[level] = min;
+        maxs[level] = max;
+        groupOffsets[level] = offsets;
+        groupLeaves[level] = members;
+    }
+
+    /**
+     * Procura o grupo de um código num nível.
+     *
+     * @return A posição do grupo, ou um valor negativo se não existir
+     * @throws IllegalArgumentException Se o nível não existir
+     */
+    private int group(int level, int code) {
+        if (level < 0 || level >= levelCodes.length) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_LOCATION_LEVEL_ERROR);
+        }
+        return Arrays.binarySearch(levelCodes[level], code);
+    }
+
+    /**
+     * Retorna a medida agregada.
+     *
+     * @return {@link CadastroConstants#AGGREGATE_AREA} ou
+     *         {@link CadastroConstants#AGGREGATE_LENGTH}
+     */
+    public int getMeasure() {
+        return measure;
+    }
+
+    /**
+     * Retorna o dicionário dos códigos de localização, o mesmo da tabela.
+     *
+     * @return O dicionário de localizações
+     */
+    public LocationDictionary getLocationDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Retorna os códigos das localizações de um nível com pelo menos um
+     * cadastro.
+     *
+     * @param level O nível da localização
+     * @return Os códigos, por ordem crescente
+     * @throws IllegalArgumentException Se o nível não existir
+     */
+    public int[] getCodes(int level) {
+        group(level, 0);
+        return levelCodes[level].clone();
+    }
+
+    /**
+     * Retorna o número de cadastros de uma localização.
+     *
+     * @param level O nível da localização
+     * @param code O código da localização
+     * @return O número de cadastros, ou 0 se não houver nenhum
+     * @throws IllegalArgumentException Se o nível não existir
+     */
+    public long getCount(int level, int code) {
+        int group = group(level, code);
+        return group < 0 ? 0 : counts[level][group];
+    }
+
+    /**
+     * Retorna a soma da medida nos cadastros de uma localização.
+     *
+     * @param level O nível da localização
+     * @param code O código da localização
+     * @return A soma, ou 0 se não houver cadastros
+     * @throws IllegalArgumentException Se o nível não existir
+     */
+    public double getSum(int level, int code) {
+        int group = group(level, code);
+        return group < 0 ? 0.0 : sums[level][group];
+    }
+
+    /**
+     * Retorna a média da medida nos cadastros de uma localização.
+     *
+     * @param level O nível da localização
+     * @param code O código da localização
+     * @return A média, ou {@link Double#NaN} se não houver cadastros
+     * @throws IllegalArgumentException Se o nível não existir
+     */
+    public double getAverage(int level, int code) {
+        int group = group(level, code);
+        return group < 0 ? Double.NaN : sums[level][group] / counts[level][group];
+    }
+
+    /**
+     * Retorna o menor valor da medida nos cadastros de uma localização.
+     *
+     * @param level O nível da localização
+     * @param code O código da localização
+     * @return O mínimo, ou {@link Double#NaN} se não houver cadastros
+     * @throws IllegalArgumentException Se o nível não existir
+     */
+    public double getMin(int level, int code) {
+        int group = group(level, code);
+        return group < 0 ? Double.NaN : mins[level][group];
+    }
+
+    /**
+     * Retorna o maior valor da medida nos cadastros de uma localização.
+     *
+     * @param level O nível da localização
+     * @param code O código da localização
+     * @return O máximo, ou {@link Double#NaN} se não houver cadastros
+     * @throws IllegalArgumentException Se o nível não existir
+     */
+    public double getMax(int level, int code) {
+        int group = group(level, code);
+        return group < 0 ? Double.NaN : maxs[level][group];
+    }
+
+    /**
+     * Retorna um percentil da medida nos cadastros de uma localização, com
+     * interpolação linear entre os dois valores mais próximos (o percentil 50
+     * é a mediana).
+     *
+     * @param level O nível da localização
+     * @param code O código da localização
+     * @param percentile O percentil, entre 0 e 100
+     * @return O percentil, ou {@link Double#NaN} se não houver cadastros
+     * @throws IllegalArgumentException Se o nível não existir ou o percentil
+     *                                  estiver fora do intervalo [0, 100]
+     */
+    public double getPercentile(int level, int code, double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0)) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_PERCENTILE_ERROR);
+        }
+        int group = group(level, code);
+        if (group < 0) {
+            return Double.NaN;
+        }
+        double[] values = groupValues.computeIfAbsent((long) level << 32 | group, key -> mergeLeaves(level, group));
+        double position = (values.length - 1) * percentile / 100.0;
+        int lower = (int) position;
+        if (lower + 1 >= values.length) {
+            return values[values.length - 1];
+        }
+        return values[lower] + (position - lower) * (values[lower + 1] - values[lower]);
+    }
+
+    /**
+     * Junta os valores ordenados das folhas de um grupo, juntando as folhas
+     * duas a duas até restar uma única sequência ordenada.
+     */
+    private double[] mergeLeaves(int level, int group) {
+        List<double[]> runs = new ArrayList<>();
+        for (int i = groupOffsets[level][group]; i < groupOffsets[level][group + 1]; i++) {
+            int leaf = groupLeaves[level][i];
+            runs.add(Arrays.copyOfRange(sortedValues, leafOffsets[leaf], leafOffsets[leaf + 1]));
+        }
+        while (runs.size() > 1) {
+            List<double[]> merged = new ArrayList<>((runs.size() + 1) / 2);
+            for (int i = 0; i + 1 < runs.size(); i += 2) {
+                merged.add(merge(runs.get(i), runs.get(i + 1)));
+            }
+            if (runs.size() % 2 == 1) {
+                merged.add(runs.get(runs.size() - 1));
+            }
+            runs = merged;
+        }
+        return runs.get(0);
+    }
+
+    private static double[] merge(double[] a, double[] b) {
+        double[] merged = new double[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            merged[k++] = a[i] <= b[j] ? a[i++] : b[j++];
+        }
+        while (i < a.length) {
+            merged[k++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[k++] = b[j++];
+        }
+        return merged;
+    }
+}
@@ -15,6 +15,24 @@ public class CadastroConstants {
     public static final int SORT_BY_AREA = 2;
     /** Constante para ordenação por proprietário */
     public static final int SORT_BY_OWNER = 3;
+    /** Indicador combinado com um tipo de ordenação para ordenar por ordem decrescente */
+    public static final int SORT_DESCENDING = 0x100;
+
+    /** Medida de agregação: área dos cadastros */
+    public static final int AGGREGATE_AREA = 0;
+    /** Medida de agregação: comprimento dos cadastros */
+    public static final int AGGREGATE_LENGTH = 1;
+    /** Número de linhas de cada bloco na agregação paralela */
+    public static final int AGGREGATION_CHUNK_ROWS = 1 << 14;
+
+    /** Modo de importação que descodifica todas as formas na importação */
+    public static final int IMPORT_EAGER = 0;
+    /** Modo de importação que só descodifica cada forma quando é pedida */
+    public static final int IMPORT_LAZY = 1;
+    /** Número máximo de formas descodificadas mantidas em cache no modo lazy */
+    public static final int SHAPE_CACHE_CAPACITY = 1024;
+    /** Capacidade inicial das colunas de cada bloco lido para uma tabela */
+    public static final int TABLE_BLOCK_CAPACITY = 1024;
 
     /** Índice do campo ID no CSV */
     public static final int ID_INDEX = 0;
@@ -29,9 +47,33 @@ public class CadastroConstants {
     /** Índice inicial das localizações no CSV */
     public static final int LOCATION_START_INDEX = 7;
 
+    /** Nível de localização da freguesia */
+    public static final int LOCATION_FREGUESIA = 0;
+    /** Nível de localização do município */
+    public static final int LOCATION_MUNICIPIO = 1;
+    /** Nível de localização da ilha */
+    public static final int LOCATION_ILHA = 2;
+
     /** Valor que indica localização não disponível no CSV */
     public static final String NA_VALUE = "NA";
 
+    /** Extensão do snapshot binário gravado ao lado do ficheiro CSV */
+    public static final String SNAPSHOT_EXTENSION = ".snap";
+    /** Identificador dos ficheiros de snapshot ("CDSN") */
+    public static final int SNAPSHOT_MAGIC = 0x4344534E;
+    /** Versão do formato do snapshot */
+    public static final int SNAPSHOT_VERSION = 2;
+    /** Tamanho máximo de cada bloco de um ficheiro mapeado em memória */
+    public static final long MAPPED_BLOCK_SIZE = 1L << 30;
+    /** Número de blocos por thread na leitura paralela do CSV */
+    public static final int CHUNKS_PER_THREAD = 4;
+    /** Bytes lidos de cada vez ao procurar o início de um registo */
+    public static final int BOUNDARY_SCAN_SIZE = 8192;
+
+    /** Formato do relatório de memória das formas */
+    public static final String MEMORY_REPORT_FORMAT =
+            "Formas de %d cadastros com %d coordenadas: Coordinate[] ~%d bytes (%.0f por cadastro), double[] ~%d bytes (%.0f por cadastro, %.1fx menos)";
+
     /** Mensagem de erro para valores nulos ou vazios */
     public static final String NULL_OR_EMPTY_ERROR = " não pode ser nulo ou vazio";
     /** Mensagem de erro para valores menores ou iguais a zero */
@@ -42,6 +84,26 @@ public class CadastroConstants {
     public static final String EMPTY_FILE_ERROR = "Nenhum registro válido encontrado no arquivo";
     /** Mensagem de erro para leitura do arquivo */
     public static final String FILE_READ_ERROR = "Erro ao ler o ficheiro CSV";
+    /** Mensagem de erro para registos com campos em falta */
+    public static final String MISSING_FIELDS_ERROR = "Registo com campos em falta";
+    /** Mensagem de erro para callback nulo */
+    public static final String NULL_CALLBACK_ERROR = "O callback não pode ser nulo";
+    /** Mensagem de erro para paralelismo inválido */
+    public static final String INVALID_PARALLELISM_ERROR = "O paralelismo deve ser pelo menos 1";
+    /** Mensagem de erro para tipo de ordenação inválido */
+    public static final String INVALID_SORT_TYPE_ERROR = "Tipo de ordenação inválido";
+    /** Mensagem de erro para medida de agregação inválida */
+    public static final String INVALID_MEASURE_ERROR = "Medida de agregação inválida";
+    /** Mensagem de erro para nível de localização inválido */
+    public static final String INVALID_LOCATION_LEVEL_ERROR = "Nível de localização inválido";
+    /** Mensagem de erro para percentil fora do intervalo [0, 100] */
+    public static final String INVALID_PERCENTILE_ERROR = "O percentil deve estar entre 0 e 100";
+    /** Mensagem de erro para modo de importação inválido */
+    public static final String INVALID_IMPORT_MODE_ERROR = "Modo de importação inválido";
+    /** Mensagem de erro para formas que não podem ser descodificadas no modo lazy */
+    public static final String LAZY_SHAPE_ERROR = "Erro ao descodificar a forma do cadastro";
+    /** Mensagem de erro para ficheiros alterados depois da importação */
+    public static final String SHAPE_SOURCE_CHANGED_ERROR = "O ficheiro foi alterado depois da importação: ";
     /** Mensagem de erro para conversão de valores */
     public static final String NUMBER_CONVERSION_ERROR = "Erro ao converter valores numéricos";
 } 
\ No newline at end of file
@@ -0,0 +1,145 @@
+package cadastro.importer;
+
+import java.util.List;
+
+/**
+ * Índices secundários de uma lista de cadastros, por proprietário e por
+ * localização em cada nível ({@link CadastroConstants#LOCATION_FREGUESIA},
+ * {@link CadastroConstants#LOCATION_MUNICIPIO} e
+ * {@link CadastroConstants#LOCATION_ILHA}).
+ *
+ * As consultas devolvem as linhas, isto é, as posições na lista, por ordem
+ * crescente. Para um grafo construído com a mesma lista, as linhas são também
+ * os identificadores dos vértices e podem ser usadas para restringir as
+ * consultas de vizinhança a um proprietário ou a uma área. Cada consulta
+ * custa O(1) mais o tamanho do resultado.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public final class CadastroIndex {
+    private final IntGroupIndex byOwner;
+    private final IntGroupIndex[] byLocation;
+    private final LocationDictionary dictionary;
+
+    private CadastroIndex(IntGroupIndex byOwner, IntGroupIndex[] byLocation, LocationDictionary dictionary) {
+        this.byOwner = byOwner;
+        this.byLocation = byLocation;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Constrói os índices de uma lista de cadastros, normalmente logo após a
+     * importação. Os códigos de localização são os do dicionário partilhado
+     * pelos cadastros; se não partilharem um dicionário, as localizações são
+     * codificadas num dicionário próprio do índice.
+     *
+     * @param cadastros A lista de cadastros
+     * @return Os índices da lista
+     * @throws IllegalArgumentException Se a lista for nula
+     */
+    public static CadastroIndex of(List<Cadastro> cadastros) {
+        if (cadastros == null) {
+            throw new IllegalArgumentException("Cadastros" + CadastroConstants.NULL_OR_EMPTY_ERROR);
+        }
+        int n = cadastros.size();
+        int levels = 0;
+        LocationDictionary shared = n == 0 ? null : cadastros.get(0).getLocationDictionary();
+        int[] owners = new int[n];
+        for (int row = 0; row < n; row++) {
+            Cadastro cadastro = cadastros.get(row);
+            owners[row] = cadastro.getOwner();
+            levels = Math.max(levels, cadastro.getLocationLevels());
+            if (cadastro.getLocationDictionary() != shared) {
+                shared = null;
+            }
+        }
+
+        LocationDictionary dictionary = shared != null ? shared : new LocationDictionary();
+        IntGroupIndex[] byLocation = new IntGroupIndex[levels];
+        int[] codes = new int[n];
+        for (int level = 0; level < levels; level++) {
+            for (int row = 0; row < n; row++) {
+                Cadastro cadastro = cadastros.get(row);
+                int code = cadastro.getLocationCode(level);
+                if (code != LocationDictionary.NO_LOCATION && cadastro.getLocationDictionary() != dictionary) {
+                    code = dictionary.encode(cadastro.getLocationDictionary().decode(code));
+                }
+                codes[row] = code;
+            }
+            byLocation[level] = new IntGroupIndex(codes, LocationDictionary.NO_LOCATION);
+        }
+        return new CadastroIndex(new IntGroupIndex(owners, 0), byLocation, dictionary);
+    }
+
+    /**
+     * Retorna as linhas dos cadastros de um proprietário.
+     *
+     * @param owner O ID do proprietário
+     * @return As linhas, por ordem crescente, ou um array vazio
+     */
+    public int[] getRowsByOwner(int owner) {
+        return byOwner.get(owner);
+    }
+
+    /**
+     * Retorna o número de cadastros de um proprietário.
+     *
+     * @param owner O ID do proprietário
+     * @return O número de cadastros
+     */
+    public int getOwnerCount(int owner) {
+        return byOwner.count(owner);
+    }
+
+    /**
+     * Retorna os proprietários indexados.
+     *
+     * @return Os IDs dos proprietários, por ordem crescente
+     */
+    public int[] getOwners() {
+        return byOwner.keys();
+    }
+
+    /**
+     * Retorna as linhas dos cadastros com um código de localização num nível.
+     *
+     * @param level O nível da localização
+     * @param code O código da localização em {@link #getLocationDictionary()}
+     * @return As linhas, por ordem crescente, ou um array vazio
+     */
+    public int[] getRowsByLocation(int level, int code) {
+        return level < 0 || level >= byLocation.length ? new int[0] : byLocation[level].get(code);
+    }
+
+    /**
+     * Retorna as linhas dos cadastros com uma localização num nível.
+     *
+     * @param level O nível da localização
+     * @param location A localização
+     * @return As linhas, por ordem crescente, ou um array vazio
+     */
+    public int[] getRowsByLocation(int level, String location) {
+        int code = dictionary.codeOf(location);
+        return code == LocationDictionary.NO_LOCATION ? new int[0] : getRowsByLocation(level, code);
+    }
+
+    /**
+     * Retorna os códigos de localização indexados num nível.
+     *
+     * @param level O nível da localização
+     * @return Os códigos, por ordem crescente
+     */
+    public int[] getLocationCodes(int level) {
+        return level < 0 || level >= byLocation.length ? new int[0] : byLocation[level].keys();
+    }
+
+    /**
+     * Retorna o dicionário dos códigos de localização do índice.
+     *
+     * @return O dicionário de localizações
+     */
+    public LocationDictionary getLocationDictionary() {
+        return dictionary;
+    }
+}
@@ -0,0 +1,154 @@
+package cadastro.importer;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.locationtech.jts.io.ParseException;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Leitor em streaming de um ficheiro CSV de cadastros.
+ *
+ * Ao contrário de {@link Cadastro#getCadastros(String)}, os registos são lidos
+ * e convertidos um a um, à medida que são pedidos, pelo que a memória ocupada
+ * não depende do tamanho do ficheiro. O cabeçalho é ignorado e os registos
+ * inválidos são saltados e comunicados ao callback indicado, com o número do
+ * registo no ficheiro (o cabeçalho é o registo 1) e a exceção que o invalidou.
+ *
+ * Todos os cadastros lidos partilham o mesmo {@link LocationDictionary}.
+ *
+ * O leitor deve ser fechado depois de usado, diretamente ou fechando o
+ * {@link Stream} devolvido por {@link #stream()}.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public class CadastroReader implements Iterator<Cadastro>, AutoCloseable {
+    private final CSVParser parser;
+    private final Iterator<CSVRecord> records;
+    private final ObjLongConsumer<Exception> onSkipped;
+    private final LocationDictionary locationDictionary = new LocationDictionary();
+    private Cadastro next;
+    private int skippedRecords;
+
+    /**
+     * Abre um ficheiro CSV para leitura em streaming, ignorando os registos
+     * inválidos sem os comunicar.
+     *
+     * @param path O caminho do ficheiro CSV
+     * @throws IOException Se houver erro ao abrir o ficheiro
+     */
+    public CadastroReader(String path) throws IOException {
+        this(path, (e, recordNumber) -> { });
+    }
+
+    /**
+     * Abre um ficheiro CSV para leitura em streaming. O ficheiro é sempre
+     * lido em UTF-8, tal como em {@link MappedCsvReader}, independentemente
+     * da codificação por omissão da JVM, e os bytes inválidos são
+     * substituídos da mesma forma.
+     *
+     * @param path O caminho do ficheiro CSV
+     * @param onSkipped Callback chamado para cada registo inválido, com a
+     *                  exceção e o número do registo
+     * @throws IOException Se houver erro ao abrir o ficheiro
+     */
+    public CadastroReader(String path, ObjLongConsumer<Exception> onSkipped) throws IOException {
+        if (onSkipped == null) {
+            throw new IllegalArgumentException(CadastroConstants.NULL_CALLBACK_ERROR);
+        }
+        this.parser = CSVFormat.newFormat(';').parse(new BufferedReader(
+                new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)));
+        this.records = parser.iterator();
+        this.onSkipped = onSkipped;
+        this.skippedRecords = 0;
+        if (records.hasNext()) {
+            records.next();
+        }
+    }
+
+    /**
+     * Verifica se existe mais algum cadastro válido, lendo registos até
+     * encontrar um.
+     *
+     * @return true se existir mais algum cadastro
+     * @throws UncheckedIOException Se houver erro ao ler o ficheiro
+     */
+    @Override
+    public boolean hasNext() {
+        while (next == null && records.hasNext()) {
+            CSVRecord record = records.next();
+            try {
+                next = new Cadastro(record, locationDictionary);
+            } catch (IllegalArgumentException | ParseException e) {
+                skippedRecords++;
+                onSkipped.accept(e, record.getRecordNumber());
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * Retorna o próximo cadastro válido.
+     *
+     * @return O próximo cadastro
+     * @throws NoSuchElementException Se não existirem mais cadastros
+     */
+    @Override
+    public Cadastro next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Cadastro cadastro = next;
+        next = null;
+        return cadastro;
+    }
+
+    /**
+     * Retorna o número de registos ignorados até ao momento.
+     *
+     * @return Número de registos ignorados
+     */
+    public int getSkippedRecords() {
+        return skippedRecords;
+    }
+
+    /**
+     * Retorna um {@link Stream} sequencial e ordenado sobre os cadastros
+     * restantes. Fechar o stream fecha o leitor.
+     *
+     * @return Stream de cadastros
+     */
+    public Stream<Cadastro> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Fecha o ficheiro.
+     *
+     * @throws UncheckedIOException Se houver erro ao fechar o ficheiro
+     */
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package cadastro.importer;
+
+import org.locationtech.jts.geom.MultiPolygon;
+
+import java.util.List;
+
+/**
+ * Destino dos valores já validados de cada cadastro lido de um ficheiro, pela
+ * ordem do ficheiro. Permite que a mesma leitura (do CSV ou do snapshot)
+ * produza objetos {@link Cadastro} ou preencha diretamente as colunas de uma
+ * {@link CadastroTable}, sem criar um objeto por cadastro.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+interface CadastroSink {
+    /**
+     * Recebe os valores de um cadastro válido.
+     *
+     * @param id O ID do cadastro
+     * @param length O comprimento do cadastro
+     * @param area A área do cadastro
+     * @param shape A forma do cadastro, ou null se for lida quando pedida
+     * @param lazyShape A posição da forma no ficheiro de origem, ou null se a
+     *                  forma já foi descodificada
+     * @param owner O ID do proprietário
+     * @param locationCodes Os códigos das localizações por nível, com
+     *                      {@link LocationDictionary#NO_LOCATION} nos "NA"
+     */
+    void add(int id, double length, double area, MultiPolygon shape, LazyShape lazyShape, int owner,
+            int[] locationCodes);
+
+    /**
+     * Retorna um destino que acrescenta um {@link Cadastro} a uma lista por
+     * cada cadastro recebido.
+     *
+     * @param cadastros A lista de destino
+     * @param locationDictionary O dicionário dos códigos de localização
+     * @return O destino
+     */
+    static CadastroSink into(List<Cadastro> cadastros, LocationDictionary locationDictionary) {
+        return (id, length, area, shape, lazyShape, owner, locationCodes) -> cadastros.add(lazyShape == null
+                ? new Cadastro(id, length, area, shape, owner, locationCodes, locationDictionary)
+                : new Cadastro(id, length, area, lazyShape, owner, locationCodes, locationDictionary));
+    }
+}
@@ -0,0 +1,366 @@
+package cadastro.importer;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot binário dos cadastros importados de um ficheiro CSV.
+ *
+ * Depois da primeira importação, os cadastros já validados são gravados num
+ * ficheiro ao lado do CSV (com a extensão {@link CadastroConstants#SNAPSHOT_EXTENSION}).
+ * As importações seguintes mapeiam esse ficheiro em memória e reconstroem os
+ * cadastros diretamente a partir das coordenadas, sem voltar a ler o CSV nem a
+ * processar WKT.
+ *
+ * Formato (big-endian), versão {@link CadastroConstants#SNAPSHOT_VERSION}:
+ * <pre>
+ * int    magic, int versão
+ * long   tamanho, long data de modificação e long CRC32C do CSV de origem
+ * int    registos ignorados na importação
+ * int    n.º de localizações distintas, seguidas de (int bytes, UTF-8) cada
+ * int    n.º de cadastros, seguidos de, para cada um:
+ *        int id, double comprimento, double área, int proprietário,
+ *        int n.º de níveis de localização e int índice de cada um
+ *        (-1 nos níveis "NA"),
+ *        int n.º de polígonos e, para cada anel de cada polígono,
+ *        int n.º de pontos seguido das coordenadas x, y em doubles
+ *        (o primeiro anel é o exterior; int n.º de anéis antes de cada polígono)
+ * </pre>
+ *
+ * O snapshot é descartado sempre que o tamanho, a data de modificação ou o
+ * CRC32C do CSV não coincidem com os registados, pelo que nunca é usado um
+ * snapshot desatualizado.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class CadastroSnapshot {
+    private static final GeometryFactory GEOMETRY_FACTORY = MultiPolygonWktDecoder.GEOMETRY_FACTORY;
+
+    private CadastroSnapshot() {
+    }
+
+    /**
+     * Retorna o caminho do snapshot correspondente a um ficheiro CSV.
+     *
+     * @param source O caminho do ficheiro CSV
+     * @return O caminho do snapshot
+     */
+    static Path snapshotPath(Path source) {
+        return source.resolveSibling(source.getFileName() + CadastroConstants.SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * Carrega o snapshot de um ficheiro CSV, se existir e estiver atualizado.
+     *
+     * @param source O caminho do ficheiro CSV
+     * @return Os cadastros e o número de registos ignorados na importação
+     *         original, ou null se o snapshot não existir, estiver
+     *         desatualizado ou não puder ser lido
+     */
+    static ImportResult load(Path source) {
+        return load(source, false);
+    }
+
+    /**
+     * Carrega o snapshot de um ficheiro CSV, se existir e estiver atualizado.
+     * No modo lazy, as formas não são reconstruídas: cada cadastro guarda a
+     * posição da sua forma no snapshot.
+     *
+     * @param source O caminho do ficheiro CSV
+     * @param lazy Se as formas só devem ser descodificadas quando pedidas
+     * @return Os cadastros e o número de registos ignorados na importação
+     *         original, ou null se o snapshot não existir, estiver
+     *         desatualizado ou não puder ser lido
+     */
+    static ImportResult load(Path source, boolean lazy) {
+        return load(source, lazy, false);
+    }
+
+    /**
+     * Carrega o snapshot de um ficheiro CSV diretamente para uma
+     * {@link CadastroTable}, sem criar objetos {@link Cadastro}, se existir e
+     * estiver atualizado.
+     *
+     * @param source O caminho do ficheiro CSV
+     * @param lazy Se as formas só devem ser descodificadas quando pedidas
+     * @return A tabela e o número de registos ignorados na importação
+     *         original, ou null se o snapshot não existir, estiver
+     *         desatualizado ou não puder ser lido
+     */
+    static ImportResult loadTable(Path source, boolean lazy) {
+        return load(source, lazy, true);
+    }
+
+    private static ImportResult load(Path source, boolean lazy, boolean table) {
+        Path snapshot = snapshotPath(source);
+        if (!Files.isRegularFile(source) || !Files.isRegularFile(snapshot)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != CadastroConstants.SNAPSHOT_MAGIC
+                    || buffer.getInt() != CadastroConstants.SNAPSHOT_VERSION
+                    || buffer.getLong() != Files.size(source)
+                    || buffer.getLong() != Files.getLastModifiedTime(source).toMillis()
+                    || buffer.getLong() != checksum(source)) {
+                return null;
+            }
+            LazyShape.Source shapes = lazy ? new LazyShape.Source(snapshot, true) : null;
+            return table ? readTable(buffer, shapes) : read(buffer, shapes);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Grava o snapshot de um ficheiro CSV. O ficheiro é escrito primeiro com
+     * um nome temporário e depois movido, para que um snapshot incompleto
+     * nunca fique visível. Como o snapshot é apenas uma otimização, erros de
+     * escrita são ignorados.
+     *
+     * @param source O caminho do ficheiro CSV
+     * @param result Os cadastros importados do ficheiro e o número de registos
+     *               ignorados
+     */
+    static void save(Path source, ImportResult result) {
+        Path snapshot = snapshotPath(source);
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try {
+            long size = Files.size(source);
+            long modified = Files.getLastModifiedTime(source).toMillis();
+            long checksum = checksum(source);
+
+            try (OutputStream file = Files.newOutputStream(temporary);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(CadastroConstants.SNAPSHOT_MAGIC);
+                out.writeInt(CadastroConstants.SNAPSHOT_VERSION);
+                out.writeLong(size);
+                out.writeLong(modified);
+                out.writeLong(checksum);
+                out.writeInt(result.getSkippedRecords());
+                write(out, result.getCadastros());
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // O snapshot temporário será substituído na próxima gravação
+            }
+        }
+    }
+
+    /**
+     * Escreve a tabela de localizações e os cadastros.
+     */
+    private static void write(DataOutputStream out, List<Cadastro> cadastros) throws IOException {
+        Map<String, Integer> locationCodes = new HashMap<>();
+        List<String> locations = new ArrayList<>();
+        for (Cadastro cadastro : cadastros) {
+            for (int level = 0; level < cadastro.getLocationLevels(); level++) {
+                int code = cadastro.getLocationCode(level);
+                if (code != LocationDictionary.NO_LOCATION) {
+                    String location = cadastro.getLocationDictionary().decode(code);
+                    if (locationCodes.putIfAbsent(location, locations.size()) == null) {
+                        locations.add(location);
+                    }
+                }
+            }
+        }
+
+        out.writeInt(locations.size());
+        for (String location : locations) {
+            byte[] bytes = location.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeInt(cadastros.size());
+        for (Cadastro cadastro : cadastros) {
+            out.writeInt(cadastro.getId());
+            out.writeDouble(cadastro.getLength());
+            out.writeDouble(cadastro.getArea());
+            out.writeInt(cadastro.getOwner());
+            out.writeInt(cadastro.getLocationLevels());
+            for (int level = 0; level < cadastro.getLocationLevels(); level++) {
+                int code = cadastro.getLocationCode(level);
+                out.writeInt(code == LocationDictionary.NO_LOCATION
+                        ? LocationDictionary.NO_LOCATION
+                        : locationCodes.get(cadastro.getLocationDictionary().decode(code)));
+            }
+            writeShape(out, cadastro.getShape());
+        }
+    }
+
+    /**
+     * Escreve as coordenadas de um MultiPolygon, anel a anel.
+     */
+    private static void writeShape(DataOutputStream out, MultiPolygon shape) throws IOException {
+        out.writeInt(shape.getNumGeometries());
+        for (int p = 0; p < shape.getNumGeometries(); p++) {
+            Polygon polygon = (Polygon) shape.getGeometryN(p);
+            out.writeInt(1 + polygon.getNumInteriorRing());
+            writeRing(out, polygon.getExteriorRing());
+            for (int r = 0; r < polygon.getNumInteriorRing(); r++) {
+                writeRing(out, polygon.getInteriorRingN(r));
+            }
+        }
+    }
+
+    private static void writeRing(DataOutputStream out, LinearRing ring) throws IOException {
+        out.writeInt(ring.getNumPoints());
+        CoordinateSequence sequence = ring.getCoordinateSequence();
+        for (int i = 0; i < sequence.size(); i++) {
+            out.writeDouble(sequence.getX(i));
+            out.writeDouble(sequence.getY(i));
+        }
+    }
+
+    /**
+     * Lê a tabela de localizações e os cadastros a partir da posição atual.
+     * O buffer tem de estar mapeado desde o início do ficheiro, para que as
+     * posições das formas no modo lazy coincidam com as do ficheiro.
+     */
+    private static ImportResult read(ByteBuffer buffer, LazyShape.Source shapes) {
+        int skippedRecords = buffer.getInt();
+        LocationDictionary locationDictionary = readLocations(buffer);
+        List<Cadastro> cadastros = new ArrayList<>(buffer.getInt(buffer.position()));
+        readCadastros(buffer, shapes, CadastroSink.into(cadastros, locationDictionary));
+        return new ImportResult(cadastros, skippedRecords);
+    }
+
+    /**
+     * Lê a tabela de localizações e os cadastros para as colunas de uma
+     * {@link CadastroTable}, nas mesmas condições de
+     * {@link #read(ByteBuffer, LazyShape.Source)}.
+     */
+    private static ImportResult readTable(ByteBuffer buffer, LazyShape.Source shapes) {
+        int skippedRecords = buffer.getInt();
+        LocationDictionary locationDictionary = readLocations(buffer);
+        List<CadastroTable.Builder> blocks = new ArrayList<>();
+        blocks.add(new CadastroTable.Builder());
+        readCadastros(buffer, shapes, blocks.get(0));
+        return new ImportResult(CadastroTable.concat(blocks, locationDictionary), skippedRecords);
+    }
+
+    private static LocationDictionary readLocations(ByteBuffer buffer) {
+        LocationDictionary locationDictionary = new LocationDictionary();
+        int locations = buffer.getInt();
+        for (int i = 0; i < locations; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            locationDictionary.encode(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return locationDictionary;
+    }
+
+    /**
+     * Lê os cadastros a partir da posição atual e entrega os valores de cada
+     * um ao destino.
+     */
+    private static void readCadastros(ByteBuffer buffer, LazyShape.Source shapes, CadastroSink sink) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            int id = buffer.getInt();
+            double length = buffer.getDouble();
+            double area = buffer.getDouble();
+            int owner = buffer.getInt();
+            int[] locationCodes = new int[buffer.getInt()];
+            for (int level = 0; level < locationCodes.length; level++) {
+                locationCodes[level] = buffer.getInt();
+            }
+            if (shapes != null) {
+                int start = buffer.position();
+                skipShape(buffer);
+                LazyShape shape = new LazyShape(shapes, start, buffer.position() - start);
+                sink.add(id, length, area, null, shape, owner, locationCodes);
+            } else {
+                sink.add(id, length, area, readShape(buffer), null, owner, locationCodes);
+            }
+        }
+    }
+
+    /**
+     * Avança o buffer para o fim da forma na posição atual, sem a ler.
+     */
+    private static void skipShape(ByteBuffer buffer) {
+        int polygons = buffer.getInt();
+        for (int p = 0; p < polygons; p++) {
+            int rings = buffer.getInt();
+            for (int r = 0; r < rings; r++) {
+                int count = buffer.getInt();
+                buffer.position(buffer.position() + 2 * Double.BYTES * count);
+            }
+        }
+    }
+
+    /**
+     * Reconstrói um MultiPolygon a partir da posição atual do buffer.
+     *
+     * @param buffer O buffer, posicionado no início da forma
+     * @return A forma lida
+     */
+    static MultiPolygon readShape(ByteBuffer buffer) {
+        Polygon[] polygons = new Polygon[buffer.getInt()];
+        for (int p = 0; p < polygons.length; p++) {
+            LinearRing[] rings = new LinearRing[buffer.getInt()];
+            for (int r = 0; r < rings.length; r++) {
+                int count = buffer.getInt();
+                double[] coordinates = new double[2 * count];
+                buffer.asDoubleBuffer().get(coordinates);
+                buffer.position(buffer.position() + Double.BYTES * coordinates.length);
+                rings[r] = MultiPolygonWktDecoder.createRing(coordinates, count);
+            }
+            LinearRing[] holes = new LinearRing[rings.length - 1];
+            System.arraycopy(rings, 1, holes, 0, holes.length);
+            polygons[p] = GEOMETRY_FACTORY.createPolygon(rings[0], holes);
+        }
+        return GEOMETRY_FACTORY.createMultiPolygon(polygons);
+    }
+
+    /**
+     * Calcula o CRC32C do conteúdo de um ficheiro, mapeando-o em memória por
+     * blocos.
+     *
+     * @param file O ficheiro
+     * @return O CRC32C do conteúdo
+     * @throws IOException Se houver erro ao ler o ficheiro
+     */
+    static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CadastroConstants.MAPPED_BLOCK_SIZE) {
+                long length = Math.min(CadastroConstants.MAPPED_BLOCK_SIZE, size - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,212 @@
+package cadastro.importer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de ordenação de uma lista de cadastros.
+ *
+ * Os valores de cada critério (ID, comprimento, área e proprietário) são
+ * copiados para arrays primitivos e convertidos numa ordem densa (o menor
+ * valor tem ordem 0, valores iguais têm a mesma ordem). Cada ordenação é
+ * uma permutação dos índices da lista, obtida ordenando com
+ * {@link Arrays#parallelSort(long[])} valores {@code long} que juntam a ordem
+ * do critério nos 32 bits superiores e a posição nos 32 bits inferiores; a
+ * posição desempata, pelo que a ordenação é estável.
+ *
+ * As ordenações por vários critérios são feitas em passagens estáveis do
+ * último critério para o primeiro. Para ordenar um critério por ordem
+ * decrescente, o tipo de ordenação é combinado com
+ * {@link CadastroConstants#SORT_DESCENDING}. Cada permutação é calculada uma
+ * única vez e guardada, pelo que mudar de ordenação só aplica a permutação
+ * já calculada. A lista original nunca é alterada.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public final class CadastroSortIndex {
+    /** Número de critérios de ordenação (SORT_BY_ID a SORT_BY_OWNER) */
+    private static final int SORT_KEYS = 4;
+
+    private final Cadastro[] cadastros;
+    private final int[][] ranks = new int[SORT_KEYS][];
+    private final int[] maxRanks = new int[SORT_KEYS];
+    private final Map<List<Integer>, int[]> permutations = new ConcurrentHashMap<>();
+
+    /**
+     * Constrói o índice de ordenação de uma lista de cadastros. A lista é
+     * copiada, pelo que alterações posteriores não afetam o índice.
+     *
+     * @param cadastros A lista de cadastros
+     * @throws IllegalArgumentException Se a lista for nula
+     */
+    public CadastroSortIndex(List<Cadastro> cadastros) {
+        if (cadastros == null) {
+            throw new IllegalArgumentException("Cadastros" + CadastroConstants.NULL_OR_EMPTY_ERROR);
+        }
+        this.cadastros = cadastros.toArray(new Cadastro[0]);
+    }
+
+    /**
+     * Retorna o número de cadastros do índice.
+     *
+     * @return O número de cadastros
+     */
+    public int size() {
+        return cadastros.length;
+    }
+
+    /**
+     * Retorna os cadastros pela ordem indicada. A lista devolvida é uma vista
+     * imutável sobre a permutação guardada, sem copiar os cadastros.
+     *
+     * @param sortTypes Os critérios de ordenação, do mais para o menos
+     *                  importante, cada um opcionalmente combinado com
+     *                  {@link CadastroConstants#SORT_DESCENDING}
+     * @return Os cadastros ordenados
+     * @throws IllegalArgumentException Se algum critério for inválido ou se não
+     *                                  for indicado nenhum
+     */
+    public List<Cadastro> sort(int... sortTypes) {
+        return new SortedView(permutation(sortTypes));
+    }
+
+    /**
+     * Retorna a permutação correspondente a uma ordenação: a posição
+     * {@code i} contém o índice, na lista original, do {@code i}-ésimo
+     * cadastro ordenado.
+     *
+     * @param sortTypes Os critérios de ordenação, do mais para o menos
+     *                  importante
+     * @return Uma cópia da permutação
+     * @throws IllegalArgumentException Se algum critério for inválido ou se não
+     *                                  for indicado nenhum
+     */
+    public int[] getPermutation(int... sortTypes) {
+        return permutation(sortTypes).clone();
+    }
+
+    private int[] permutation(int... sortTypes) {
+        if (sortTypes == null || sortTypes.length == 0) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_SORT_TYPE_ERROR);
+        }
+        for (int sortType : sortTypes) {
+            if (!isValid(sortType)) {
+                throw new IllegalArgumentException(CadastroConstants.INVALID_SORT_TYPE_ERROR);
+            }
+        }
+        return permutations.computeIfAbsent(Arrays.stream(sortTypes).boxed().toList(), this::buildPermutation);
+    }
+
+    /**
+     * Indica se um tipo de ordenação é válido.
+     *
+     * @param sortType O tipo de ordenação, opcionalmente combinado com
+     *                 {@link CadastroConstants#SORT_DESCENDING}
+     * @return true se o tipo de ordenação for válido
+     */
+    static boolean isValid(int sortType) {
+        int key = sortType & ~CadastroConstants.SORT_DESCENDING;
+        return key >= 0 && key < SORT_KEYS;
+    }
+
+    /**
+     * Calcula uma permutação com uma passagem estável por critério, do último
+     * para o primeiro.
+     */
+    private int[] buildPermutation(List<Integer> sortTypes) {
+        int n = cadastros.length;
+        int[] permutation = new int[n];
+        Arrays.setAll(permutation, i -> i);
+
+        long[] packed = new long[n];
+        for (int k = sortTypes.size() - 1; k >= 0; k--) {
+            int sortType = sortTypes.get(k);
+            int key = sortType & ~CadastroConstants.SORT_DESCENDING;
+            boolean descending = (sortType & CadastroConstants.SORT_DESCENDING) != 0;
+            int[] rank = ranks(key);
+            int maxRank = maxRanks[key];
+
+            for (int p = 0; p < n; p++) {
+                int r = rank[permutation[p]];
+                packed[p] = (long) (descending ? maxRank - r : r) << 32 | p;
+            }
+            Arrays.parallelSort(packed);
+
+            int[] next = new int[n];
+            for (int p = 0; p < n; p++) {
+                next[p] = permutation[(int) packed[p]];
+            }
+            permutation = next;
+        }
+        return permutation;
+    }
+
+    /**
+     * Retorna a ordem densa de cada cadastro num critério, calculando-a na
+     * primeira utilização.
+     */
+    private synchronized int[] ranks(int key) {
+        if (ranks[key] == null) {
+            double[] values = new double[cadastros.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = value(cadastros[i], key);
+            }
+
+            double[] distinct = values.clone();
+            Arrays.parallelSort(distinct);
+            int count = 0;
+            for (int i = 0; i < distinct.length; i++) {
+                if (count == 0 || Double.compare(distinct[count - 1], distinct[i]) != 0) {
+                    distinct[count++] = distinct[i];
+                }
+            }
+
+            int[] rank = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                rank[i] = Arrays.binarySearch(distinct, 0, count, values[i]);
+            }
+            maxRanks[key] = Math.max(0, count - 1);
+            ranks[key] = rank;
+        }
+        return ranks[key];
+    }
+
+    /**
+     * Retorna o valor de um cadastro num critério. Os IDs e proprietários são
+     * inteiros, representados exatamente num double.
+     */
+    private static double value(Cadastro cadastro, int key) {
+        return switch (key) {
+            case CadastroConstants.SORT_BY_ID -> cadastro.getId();
+            case CadastroConstants.SORT_BY_LENGTH -> cadastro.getLength();
+            case CadastroConstants.SORT_BY_AREA -> cadastro.getArea();
+            default -> cadastro.getOwner();
+        };
+    }
+
+    /**
+     * Vista imutável dos cadastros pela ordem de uma permutação.
+     */
+    private final class SortedView extends AbstractList<Cadastro> implements RandomAccess {
+        private final int[] permutation;
+
+        private SortedView(int[] permutation) {
+            this.permutation = permutation;
+        }
+
+        @Override
+        public Cadastro get(int index) {
+            return cadastros[permutation[index]];
+        }
+
+        @Override
+        public int size() {
+            return permutation.length;
+        }
+    }
+}
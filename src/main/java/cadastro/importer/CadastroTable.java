@@ -0,0 +1,399 @@
+package cadastro.importer;
+
+import org.locationtech.jts.geom.MultiPolygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tabela de cadastros guardada por colunas: os IDs, comprimentos, áreas e
+ * proprietários ficam em arrays primitivos e as localizações em colunas de
+ * códigos de um {@link LocationDictionary}. Percorrer uma coluna é assim um
+ * ciclo sobre um array contíguo, sem seguir referências para objetos
+ * {@link Cadastro} espalhados na memória nem converter valores.
+ *
+ * A coluna de localização {@code k} guarda o código do nível {@code k}
+ * ({@link CadastroConstants#LOCATION_FREGUESIA},
+ * {@link CadastroConstants#LOCATION_MUNICIPIO} ou
+ * {@link CadastroConstants#LOCATION_ILHA}) de cada linha, ou
+ * {@link LocationDictionary#NO_LOCATION} se o nível for "NA". Quando todos os
+ * cadastros partilham o mesmo dicionário, como os importados do mesmo
+ * ficheiro, a tabela usa esse dicionário e copia os códigos sem os
+ * descodificar.
+ * A coluna das formas guarda a forma de cada cadastro ou, nos importados no
+ * modo {@link CadastroConstants#IMPORT_LAZY}, a referência para a forma ainda
+ * por descodificar.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public final class CadastroTable {
+    private final int[] ids;
+    private final double[] lengths;
+    private final double[] areas;
+    private final int[] owners;
+    private final int[][] locations;
+    private final MultiPolygon[] shapes;
+    private final LazyShape[] lazyShapes;
+    private final LocationDictionary dictionary;
+    private final ConcurrentHashMap<Integer, CadastroAggregation> aggregations = new ConcurrentHashMap<>();
+
+    private CadastroTable(int rows, int locationColumns, LocationDictionary dictionary) {
+        this.ids = new int[rows];
+        this.lengths = new double[rows];
+        this.areas = new double[rows];
+        this.owners = new int[rows];
+        this.locations = new int[locationColumns][rows];
+        this.shapes = new MultiPolygon[rows];
+        this.lazyShapes = new LazyShape[rows];
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Constrói uma tabela com os cadastros indicados, pela mesma ordem.
+     *
+     * @param cadastros A lista de cadastros
+     * @return A tabela de cadastros
+     * @throws IllegalArgumentException Se a lista for nula
+     */
+    public static CadastroTable of(List<Cadastro> cadastros) {
+        if (cadastros == null) {
+            throw new IllegalArgumentException("Cadastros" + CadastroConstants.NULL_OR_EMPTY_ERROR);
+        }
+        int locationColumns = 0;
+        LocationDictionary shared = cadastros.isEmpty() ? null : cadastros.get(0).getLocationDictionary();
+        for (Cadastro cadastro : cadastros) {
+            locationColumns = Math.max(locationColumns, cadastro.getLocationLevels());
+            if (cadastro.getLocationDictionary() != shared) {
+                shared = null;
+            }
+        }
+
+        LocationDictionary dictionary = shared != null ? shared : new LocationDictionary();
+        CadastroTable table = new CadastroTable(cadastros.size(), locationColumns, dictionary);
+        for (int row = 0; row < cadastros.size(); row++) {
+            table.set(row, cadastros.get(row));
+        }
+        return table;
+    }
+
+    /**
+     * Constrói uma tabela juntando, pela ordem indicada, as linhas lidas por
+     * blocos. Cada bloco é libertado depois de copiado.
+     *
+     * @param blocks Os blocos de linhas, pela ordem do ficheiro
+     * @param dictionary O dicionário dos códigos de localização, partilhado
+     *                   por todos os blocos
+     * @return A tabela de cadastros
+     */
+    static CadastroTable concat(List<Builder> blocks, LocationDictionary dictionary) {
+        int rows = 0;
+        int locationColumns = 0;
+        for (Builder block : blocks) {
+            rows += block.size;
+            locationColumns = Math.max(locationColumns, block.locations.length);
+        }
+
+        CadastroTable table = new CadastroTable(rows, locationColumns, dictionary);
+        int row = 0;
+        for (int b = 0; b < blocks.size(); b++) {
+            Builder block = blocks.set(b, null);
+            System.arraycopy(block.ids, 0, table.ids, row, block.size);
+            System.arraycopy(block.lengths, 0, table.lengths, row, block.size);
+            System.arraycopy(block.areas, 0, table.areas, row, block.size);
+            System.arraycopy(block.owners, 0, table.owners, row, block.size);
+            System.arraycopy(block.shapes, 0, table.shapes, row, block.size);
+            System.arraycopy(block.lazyShapes, 0, table.lazyShapes, row, block.size);
+            for (int level = 0; level < locationColumns; level++) {
+                if (level < block.locations.length) {
+                    System.arraycopy(block.locations[level], 0, table.locations[level], row, block.size);
+                } else {
+                    Arrays.fill(table.locations[level], row, row + block.size, LocationDictionary.NO_LOCATION);
+                }
+            }
+            row += block.size;
+        }
+        return table;
+    }
+
+    private void set(int row, Cadastro cadastro) {
+        ids[row] = cadastro.getId();
+        lengths[row] = cadastro.getLength();
+        areas[row] = cadastro.getArea();
+        owners[row] = cadastro.getOwner();
+
+        for (int level = 0; level < locations.length; level++) {
+            int code = cadastro.getLocationCode(level);
+            if (code != LocationDictionary.NO_LOCATION && cadastro.getLocationDictionary() != dictionary) {
+                code = dictionary.encode(cadastro.getLocationDictionary().decode(code));
+            }
+            locations[level][row] = code;
+        }
+
+        LazyShape lazyShape = cadastro.getLazyShape();
+        if (lazyShape != null) {
+            lazyShapes[row] = lazyShape;
+        } else {
+            shapes[row] = cadastro.getShape();
+        }
+    }
+
+    /**
+     * Retorna o número de linhas da tabela.
+     *
+     * @return O número de cadastros
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Retorna o número de colunas de localização.
+     *
+     * @return O maior número de níveis de localização de uma linha
+     */
+    public int getLocationColumns() {
+        return locations.length;
+    }
+
+    /**
+     * Retorna o dicionário dos códigos de localização da tabela.
+     *
+     * @return O dicionário de localizações
+     */
+    public LocationDictionary getLocationDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Retorna o ID do cadastro de uma linha.
+     *
+     * @param row A linha
+     * @return O ID do cadastro
+     */
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Retorna o comprimento do cadastro de uma linha.
+     *
+     * @param row A linha
+     * @return O comprimento do cadastro
+     */
+    public double getLength(int row) {
+        return lengths[row];
+    }
+
+    /**
+     * Retorna a área do cadastro de uma linha.
+     *
+     * @param row A linha
+     * @return A área do cadastro
+     */
+    public double getArea(int row) {
+        return areas[row];
+    }
+
+    /**
+     * Retorna o ID do proprietário do cadastro de uma linha.
+     *
+     * @param row A linha
+     * @return O ID do proprietário
+     */
+    public int getOwner(int row) {
+        return owners[row];
+    }
+
+    /**
+     * Retorna o código da localização do cadastro de uma linha num nível.
+     *
+     * @param row A linha
+     * @param level O nível da localização
+     * @return O código da localização, ou {@link LocationDictionary#NO_LOCATION}
+     *         se o nível for "NA"
+     */
+    public int getLocationCode(int row, int level) {
+        return locations[level][row];
+    }
+
+    /**
+     * Retorna as localizações do cadastro de uma linha, descodificadas e sem
+     * os níveis "NA".
+     *
+     * @param row A linha
+     * @return A lista de localizações
+     */
+    public List<String> getLocation(int row) {
+        List<String> location = new ArrayList<>(locations.length);
+        for (int[] column : locations) {
+            if (column[row] != LocationDictionary.NO_LOCATION) {
+                location.add(dictionary.decode(column[row]));
+            }
+        }
+        return Collections.unmodifiableList(location);
+    }
+
+    /**
+     * Retorna a forma do cadastro de uma linha, descodificando-a se tiver sido
+     * importada no modo {@link CadastroConstants#IMPORT_LAZY}.
+     *
+     * @param row A linha
+     * @return A forma do cadastro
+     */
+    public MultiPolygon getShape(int row) {
+        return shapes[row] != null ? shapes[row] : ShapeCache.get(lazyShapes[row]);
+    }
+
+    /**
+     * Retorna os agregados de uma medida por localização, calculados na
+     * primeira chamada e guardados na tabela para as seguintes. O resultado
+     * não depende do paralelismo.
+     *
+     * @param measure A medida ({@link CadastroConstants#AGGREGATE_AREA} ou
+     *                {@link CadastroConstants#AGGREGATE_LENGTH})
+     * @param parallelism Número de threads a utilizar no primeiro cálculo
+     * @return Os agregados da medida
+     * @throws IllegalArgumentException Se a medida ou o paralelismo forem
+     *                                  inválidos
+     */
+    public CadastroAggregation getAggregation(int measure, int parallelism) {
+        if (measure != CadastroConstants.AGGREGATE_AREA && measure != CadastroConstants.AGGREGATE_LENGTH) {
+            throw new IllegalArgumentException(CadastroConstants.INVALID_MEASURE_ERROR);
+        }
+        return aggregations.computeIfAbsent(measure, key -> new CadastroAggregation(this, measure, parallelism));
+    }
+
+    /**
+     * Retorna uma vista de uma linha, com os mesmos métodos de acesso de
+     * {@link Cadastro}.
+     *
+     * @param row A linha
+     * @return A vista da linha
+     * @throws IndexOutOfBoundsException Se a linha não existir
+     */
+    public Row getRow(int row) {
+        if (row < 0 || row >= size()) {
+            throw new IndexOutOfBoundsException(row);
+        }
+        return new Row(row);
+    }
+
+    /**
+     * Colunas de um bloco de linhas, preenchidas à medida que os cadastros são
+     * lidos e juntadas numa tabela com {@link #concat(List, LocationDictionary)}.
+     * As colunas crescem por duplicação, como um {@link ArrayList}.
+     */
+    static final class Builder implements CadastroSink {
+        private int size;
+        private int[] ids = new int[CadastroConstants.TABLE_BLOCK_CAPACITY];
+        private double[] lengths = new double[CadastroConstants.TABLE_BLOCK_CAPACITY];
+        private double[] areas = new double[CadastroConstants.TABLE_BLOCK_CAPACITY];
+        private int[] owners = new int[CadastroConstants.TABLE_BLOCK_CAPACITY];
+        private int[][] locations = new int[0][];
+        private MultiPolygon[] shapes = new MultiPolygon[CadastroConstants.TABLE_BLOCK_CAPACITY];
+        private LazyShape[] lazyShapes = new LazyShape[CadastroConstants.TABLE_BLOCK_CAPACITY];
+
+        @Override
+        public void add(int id, double length, double area, MultiPolygon shape, LazyShape lazyShape, int owner,
+                int[] locationCodes) {
+            if (size == ids.length) {
+                int capacity = 2 * ids.length;
+                ids = Arrays.copyOf(ids, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                areas = Arrays.copyOf(areas, capacity);
+                owners = Arrays.copyOf(owners, capacity);
+                shapes = Arrays.copyOf(shapes, capacity);
+                lazyShapes = Arrays.copyOf(lazyShapes, capacity);
+                for (int level = 0; level < locations.length; level++) {
+                    locations[level] = Arrays.copyOf(locations[level], capacity);
+                }
+            }
+            if (locationCodes.length > locations.length) {
+                int levels = locations.length;
+                locations = Arrays.copyOf(locations, locationCodes.length);
+                for (int level = levels; level < locations.length; level++) {
+                    locations[level] = new int[ids.length];
+                    Arrays.fill(locations[level], 0, size, LocationDictionary.NO_LOCATION);
+                }
+            }
+
+            ids[size] = id;
+            lengths[size] = length;
+            areas[size] = area;
+            owners[size] = owner;
+            shapes[size] = shape;
+            lazyShapes[size] = lazyShape;
+            for (int level = 0; level < locations.length; level++) {
+                locations[level][size] = level < locationCodes.length
+                        ? locationCodes[level]
+                        : LocationDictionary.NO_LOCATION;
+            }
+            size++;
+        }
+    }
+
+    /**
+     * Vista de uma linha da tabela. Não copia os valores: cada método lê a
+     * coluna correspondente.
+     */
+    public final class Row {
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        /**
+         * @return A linha da tabela
+         */
+        public int getIndex() {
+            return row;
+        }
+
+        /**
+         * @return O ID do cadastro
+         */
+        public int getId() {
+            return ids[row];
+        }
+
+        /**
+         * @return O comprimento do cadastro
+         */
+        public double getLength() {
+            return lengths[row];
+        }
+
+        /**
+         * @return A área do cadastro
+         */
+        public double getArea() {
+            return areas[row];
+        }
+
+        /**
+         * @return A forma do cadastro
+         */
+        public MultiPolygon getShape() {
+            return CadastroTable.this.getShape(row);
+        }
+
+        /**
+         * @return O ID do proprietário
+         */
+        public int getOwner() {
+            return owners[row];
+        }
+
+        /**
+         * @return A lista de localizações
+         */
+        public List<String> getLocation() {
+            return CadastroTable.this.getLocation(row);
+        }
+    }
+}
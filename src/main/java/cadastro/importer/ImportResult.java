@@ -0,0 +1,69 @@
+package cadastro.importer;
+
+import java.util.List;
+
+/**
+ * Resultado da importação de um ficheiro de cadastros: os cadastros válidos,
+ * pela ordem do ficheiro, como lista ou como {@link CadastroTable}, e o número
+ * de registos ignorados por serem inválidos.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class ImportResult {
+    private final List<Cadastro> cadastros;
+    private final CadastroTable table;
+    private final int skippedRecords;
+
+    /**
+     * Constrói o resultado de uma importação.
+     *
+     * @param cadastros Os cadastros importados
+     * @param skippedRecords O número de registos ignorados
+     */
+    ImportResult(List<Cadastro> cadastros, int skippedRecords) {
+        this.cadastros = cadastros;
+        this.table = null;
+        this.skippedRecords = skippedRecords;
+    }
+
+    /**
+     * Constrói o resultado de uma importação diretamente para uma tabela.
+     *
+     * @param table A tabela dos cadastros importados
+     * @param skippedRecords O número de registos ignorados
+     */
+    ImportResult(CadastroTable table, int skippedRecords) {
+        this.cadastros = null;
+        this.table = table;
+        this.skippedRecords = skippedRecords;
+    }
+
+    /**
+     * Retorna os cadastros importados.
+     *
+     * @return Lista de cadastros, ou null se a importação foi feita para uma
+     *         tabela
+     */
+    List<Cadastro> getCadastros() {
+        return cadastros;
+    }
+
+    /**
+     * Retorna a tabela dos cadastros importados.
+     *
+     * @return A tabela, ou null se a importação foi feita para uma lista
+     */
+    CadastroTable getTable() {
+        return table;
+    }
+
+    /**
+     * Retorna o número de registos ignorados.
+     *
+     * @return Número de registos ignorados
+     */
+    int getSkippedRecords() {
+        return skippedRecords;
+    }
+}
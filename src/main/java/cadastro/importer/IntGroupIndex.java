@@ -0,0 +1,125 @@
+package cadastro.importer;
+
+import java.util.Arrays;
+
+/**
+ * Índice de linhas agrupadas por uma chave inteira, sem objetos por entrada.
+ *
+ * As linhas de cada chave ocupam um intervalo contíguo do array {@code rows},
+ * por ordem crescente, delimitado por {@code offsets} (como nas adjacências
+ * CSR). A chave é localizada numa tabela de dispersão de endereçamento
+ * aberto, pelo que cada consulta custa O(1) mais o tamanho do resultado.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class IntGroupIndex {
+    /** Constante de Fibonacci usada para dispersar as chaves */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    private final int[] keys;
+    private final int[] offsets;
+    private final int[] rows;
+    private final int[] slots;
+    private final int shift;
+
+    /**
+     * Constrói o índice a partir da chave de cada linha.
+     *
+     * @param keyPerRow A chave de cada linha
+     * @param excludedKey Chave das linhas que não devem ser indexadas
+     */
+    IntGroupIndex(int[] keyPerRow, int excludedKey) {
+        int count = 0;
+        long[] packed = new long[keyPerRow.length];
+        for (int row = 0; row < keyPerRow.length; row++) {
+            if (keyPerRow[row] != excludedKey) {
+                packed[count++] = (long) keyPerRow[row] << 32 | row;
+            }
+        }
+        packed = Arrays.copyOf(packed, count);
+        Arrays.parallelSort(packed);
+
+        int groups = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || (int) (packed[i] >> 32) != (int) (packed[i - 1] >> 32)) {
+                groups++;
+            }
+        }
+
+        keys = new int[groups];
+        offsets = new int[groups + 1];
+        rows = new int[count];
+        int group = -1;
+        for (int i = 0; i < count; i++) {
+            int key = (int) (packed[i] >> 32);
+            if (group < 0 || key != keys[group]) {
+                keys[++group] = key;
+                offsets[group] = i;
+            }
+            rows[i] = (int) packed[i];
+        }
+        offsets[groups] = count;
+
+        int capacity = Integer.highestOneBit(Math.max(2, groups) * 2 - 1) << 1;
+        shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+        slots = new int[capacity];
+        for (int g = 0; g < groups; g++) {
+            int slot = slot(keys[g]);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slots[slot] = g + 1;
+        }
+    }
+
+    private int slot(int key) {
+        return (key * HASH_MULTIPLIER) >>> shift;
+    }
+
+    /**
+     * Retorna o grupo de uma chave.
+     *
+     * @return O índice do grupo, ou -1 se a chave não existir
+     */
+    private int group(int key) {
+        int mask = slots.length - 1;
+        for (int slot = slot(key); slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slots[slot] - 1] == key) {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retorna as linhas de uma chave, por ordem crescente.
+     *
+     * @param key A chave
+     * @return Uma cópia das linhas, vazia se a chave não existir
+     */
+    int[] get(int key) {
+        int group = group(key);
+        return group < 0 ? new int[0] : Arrays.copyOfRange(rows, offsets[group], offsets[group + 1]);
+    }
+
+    /**
+     * Retorna o número de linhas de uma chave.
+     *
+     * @param key A chave
+     * @return O número de linhas, 0 se a chave não existir
+     */
+    int count(int key) {
+        int group = group(key);
+        return group < 0 ? 0 : offsets[group + 1] - offsets[group];
+    }
+
+    /**
+     * Retorna as chaves do índice, por ordem crescente.
+     *
+     * @return Uma cópia das chaves
+     */
+    int[] keys() {
+        return keys.clone();
+    }
+}
@@ -0,0 +1,151 @@
+package cadastro.importer;
+
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.io.ParseException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Forma de um cadastro importado no modo {@link CadastroConstants#IMPORT_LAZY}.
+ * Em vez da geometria, guarda apenas a posição e o tamanho da forma no
+ * ficheiro de onde foi importada: o campo WKT do CSV ou a forma binária do
+ * snapshot. A forma só é lida e descodificada quando é pedida, através de
+ * {@link ShapeCache}.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class LazyShape {
+    private final Source source;
+    private final long offset;
+    private final int length;
+
+    /**
+     * Cria uma referência para a forma guardada num ficheiro.
+     *
+     * @param source O ficheiro de origem
+     * @param offset A posição da forma no ficheiro
+     * @param length O tamanho da forma em bytes
+     * @throws IllegalArgumentException Se a forma estiver vazia
+     */
+    LazyShape(Source source, long offset, int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Shape" + CadastroConstants.NULL_OR_EMPTY_ERROR);
+        }
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Lê e descodifica a forma.
+     *
+     * @return A forma descodificada
+     * @throws IllegalStateException Se a forma não for válida ou se o ficheiro
+     *                               tiver sido alterado depois da importação
+     * @throws UncheckedIOException Se houver erro ao ler o ficheiro
+     */
+    MultiPolygon decode() {
+        byte[] bytes = source.read(offset, length);
+        try {
+            if (source.binary) {
+                return CadastroSnapshot.readShape(ByteBuffer.wrap(bytes));
+            }
+            return MultiPolygonWktDecoder.decode(new String(bytes, StandardCharsets.UTF_8));
+        } catch (ParseException | RuntimeException e) {
+            throw new IllegalStateException(CadastroConstants.LAZY_SHAPE_ERROR, e);
+        }
+    }
+
+    /**
+     * Ficheiro de onde as formas foram importadas, com o tamanho e a data de
+     * modificação registados na importação para detetar alterações.
+     *
+     * O ficheiro é aberto no primeiro pedido e o canal é mantido aberto e
+     * partilhado por todas as formas, que o leem por posição sem o bloquear;
+     * a data de modificação só é verificada ao abrir o canal e o tamanho a
+     * cada leitura. O canal é fechado quando a origem deixa de ser usada.
+     */
+    static final class Source {
+        private final Path path;
+        private final long size;
+        private final long modified;
+        private final boolean binary;
+        private volatile FileChannel channel;
+
+        /**
+         * @param path O caminho do ficheiro
+         * @param binary true se as formas estão no formato do snapshot, false
+         *               se estão em WKT
+         * @throws IOException Se houver erro ao consultar o ficheiro
+         */
+        Source(Path path, boolean binary) throws IOException {
+            this.path = path;
+            this.size = Files.size(path);
+            this.modified = Files.getLastModifiedTime(path).toMillis();
+            this.binary = binary;
+        }
+
+        private byte[] read(long offset, int length) {
+            try {
+                while (true) {
+                    FileChannel open = channel();
+                    try {
+                        return read(open, offset, length);
+                    } catch (ClosedByInterruptException e) {
+                        throw e;
+                    } catch (AsynchronousCloseException e) {
+                        // Outra thread foi interrompida a meio de uma leitura e fechou o canal
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private byte[] read(FileChannel open, long offset, int length) throws IOException {
+            if (open.size() != size) {
+                throw new IllegalStateException(CadastroConstants.SHAPE_SOURCE_CHANGED_ERROR + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (open.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException(path.toString());
+                }
+            }
+            return buffer.array();
+        }
+
+        /**
+         * Retorna o canal do ficheiro, abrindo-o de novo se ainda não foi
+         * aberto ou se foi fechado pela interrupção de uma thread.
+         */
+        private FileChannel channel() throws IOException {
+            FileChannel open = channel;
+            if (open != null && open.isOpen()) {
+                return open;
+            }
+            synchronized (this) {
+                if (channel == null || !channel.isOpen()) {
+                    FileChannel opened = FileChannel.open(path, StandardOpenOption.READ);
+                    if (opened.size() != size || Files.getLastModifiedTime(path).toMillis() != modified) {
+                        opened.close();
+                        throw new IllegalStateException(CadastroConstants.SHAPE_SOURCE_CHANGED_ERROR + path);
+                    }
+                    channel = opened;
+                }
+                return channel;
+            }
+        }
+    }
+}
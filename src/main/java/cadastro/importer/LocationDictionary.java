@@ -0,0 +1,95 @@
+package cadastro.importer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dicionário das localizações (freguesias, municípios e ilhas) de um conjunto
+ * de cadastros. Cada valor distinto recebe um código inteiro, atribuído pela
+ * ordem em que aparece, para que as localizações sejam guardadas como
+ * {@code int} e possam ser comparadas sem comparar strings. Os códigos só são
+ * comparáveis entre cadastros que partilham o mesmo dicionário.
+ *
+ * O dicionário pode ser usado por várias threads ao mesmo tempo, como na
+ * leitura paralela de um ficheiro: a procura de um código existente não
+ * bloqueia e só a atribuição de códigos novos é sincronizada.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+public final class LocationDictionary {
+    /** Código usado quando não há localização */
+    public static final int NO_LOCATION = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Retorna o código de uma localização, atribuindo um novo se ainda não
+     * existir.
+     *
+     * @param location A localização
+     * @return O código da localização
+     */
+    public int encode(String location) {
+        Integer code = codes.get(location);
+        return code != null ? code : add(location);
+    }
+
+    /**
+     * Atribui um código novo a uma localização. O valor é guardado no array
+     * antes de o código ser publicado no mapa, para que qualquer thread que
+     * obtenha o código consiga descodificá-lo.
+     */
+    private synchronized int add(String location) {
+        Integer existing = codes.get(location);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = location;
+        values = current;
+        codes.put(location, size);
+        return size++;
+    }
+
+    /**
+     * Retorna o código de uma localização já existente.
+     *
+     * @param location A localização
+     * @return O código da localização, ou {@link #NO_LOCATION} se não existir
+     */
+    public int codeOf(String location) {
+        Integer code = codes.get(location);
+        return code == null ? NO_LOCATION : code;
+    }
+
+    /**
+     * Retorna a localização correspondente a um código.
+     *
+     * @param code O código da localização
+     * @return A localização
+     * @throws IndexOutOfBoundsException Se o código não existir
+     */
+    public String decode(int code) {
+        String[] current = values;
+        if (code < 0 || code >= current.length || current[code] == null) {
+            throw new IndexOutOfBoundsException(code);
+        }
+        return current[code];
+    }
+
+    /**
+     * Retorna o número de localizações distintas.
+     *
+     * @return O número de localizações
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,377 @@
+package cadastro.importer;
+
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.io.ParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Leitor paralelo de ficheiros CSV de cadastros, separados por ';'.
+ *
+ * O ficheiro é dividido em blocos de bytes cujos limites são deslocados para
+ * o início do registo seguinte, de modo que nenhum registo fica repartido por
+ * dois blocos. Cada bloco é mapeado em memória e processado numa thread
+ * própria: os campos de cada registo são delimitados por posições no bloco e
+ * só são convertidos em {@code String} os campos de que o {@link Cadastro}
+ * precisa. Os valores validados de cada bloco são entregues a um
+ * {@link CadastroSink} próprio, que cria os cadastros ou preenche as colunas
+ * de uma {@link CadastroTable}, e os blocos são concatenados pela ordem do
+ * ficheiro, pelo que o resultado e o número de registos ignorados são os
+ * mesmos da leitura com o Apache Commons CSV.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class MappedCsvReader {
+    private static final byte DELIMITER = ';';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private MappedCsvReader() {
+    }
+
+    /**
+     * Lê um ficheiro CSV de cadastros em paralelo. O primeiro registo do
+     * ficheiro é o cabeçalho e é ignorado.
+     *
+     * @param path O caminho do ficheiro
+     * @param parallelism Número de threads a utilizar
+     * @return Os cadastros lidos e o número de registos ignorados
+     * @throws IOException Se houver erro ao ler o ficheiro
+     */
+    static ImportResult read(Path path, int parallelism) throws IOException {
+        return read(path, parallelism, false);
+    }
+
+    /**
+     * Lê um ficheiro CSV de cadastros em paralelo. No modo lazy, as formas
+     * não são descodificadas e cada cadastro guarda apenas a posição do seu
+     * campo WKT no ficheiro.
+     *
+     * @param path O caminho do ficheiro
+     * @param parallelism Número de threads a utilizar
+     * @param lazy Se as formas só devem ser descodificadas quando pedidas
+     * @return Os cadastros lidos e o número de registos ignorados
+     * @throws IOException Se houver erro ao ler o ficheiro
+     */
+    static ImportResult read(Path path, int parallelism, boolean lazy) throws IOException {
+        LocationDictionary locationDictionary = new LocationDictionary();
+        List<List<Cadastro>> blocks = new ArrayList<>();
+        int skippedRecords = readChunks(path, parallelism, lazy, locationDictionary, () -> {
+            List<Cadastro> block = new ArrayList<>();
+            blocks.add(block);
+            return CadastroSink.into(block, locationDictionary);
+        });
+
+        List<Cadastro> cadastros = new ArrayList<>();
+        for (List<Cadastro> block : blocks) {
+            cadastros.addAll(block);
+        }
+        return new ImportResult(cadastros, skippedRecords);
+    }
+
+    /**
+     * Lê um ficheiro CSV de cadastros em paralelo diretamente para uma
+     * {@link CadastroTable}: cada bloco preenche as suas próprias colunas,
+     * sem criar objetos {@link Cadastro}, e as colunas dos blocos são depois
+     * juntadas pela ordem do ficheiro.
+     *
+     * @param path O caminho do ficheiro
+     * @param parallelism Número de threads a utilizar
+     * @param lazy Se as formas só devem ser descodificadas quando pedidas
+     * @return A tabela dos cadastros lidos e o número de registos ignorados
+     * @throws IOException Se houver erro ao ler o ficheiro
+     */
+    static ImportResult readTable(Path path, int parallelism, boolean lazy) throws IOException {
+        LocationDictionary locationDictionary = new LocationDictionary();
+        List<CadastroTable.Builder> blocks = new ArrayList<>();
+        int skippedRecords = readChunks(path, parallelism, lazy, locationDictionary, () -> {
+            CadastroTable.Builder block = new CadastroTable.Builder();
+            blocks.add(block);
+            return block;
+        });
+        return new ImportResult(CadastroTable.concat(blocks, locationDictionary), skippedRecords);
+    }
+
+    /**
+     * Divide o ficheiro em blocos e processa-os em paralelo. O destino de
+     * cada bloco é pedido a {@code sinks} pela ordem do ficheiro, antes de o
+     * bloco ser processado.
+     *
+     * @return O número de registos ignorados
+     */
+    private static int readChunks(Path path, int parallelism, boolean lazy, LocationDictionary locationDictionary,
+            Supplier<CadastroSink> sinks) throws IOException {
+        LazyShape.Source shapes = lazy ? new LazyShape.Source(path, false) : null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = splitIntoChunks(channel, parallelism);
+
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+            try {
+                List<Future<Integer>> chunks = new ArrayList<>();
+                for (int c = 0; c + 1 < bounds.length; c++) {
+                    long start = bounds[c];
+                    long end = bounds[c + 1];
+                    CadastroSink sink = sinks.get();
+                    chunks.add(executor.submit(
+                            () -> readChunk(channel, start, end, start == 0, shapes, locationDictionary, sink)));
+                }
+
+                int skippedRecords = 0;
+                for (Future<Integer> chunk : chunks) {
+                    skippedRecords += chunk.get();
+                }
+                return skippedRecords;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Divide o ficheiro em blocos de tamanho semelhante, com cada limite
+     * deslocado para o início de um registo. Cada bloco tem no máximo
+     * {@link CadastroConstants#MAPPED_BLOCK_SIZE} bytes, além do resto do
+     * último registo, para poder ser mapeado num único buffer.
+     *
+     * @param channel O canal do ficheiro
+     * @param parallelism Número de threads a utilizar
+     * @return As posições dos limites dos blocos, incluindo 0 e o tamanho do
+     *         ficheiro
+     * @throws IOException Se houver erro ao ler o ficheiro
+     */
+    private static long[] splitIntoChunks(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunks = Math.max((long) parallelism * CadastroConstants.CHUNKS_PER_THREAD,
+                (size + CadastroConstants.MAPPED_BLOCK_SIZE - 1) / CadastroConstants.MAPPED_BLOCK_SIZE);
+        long chunkSize = Math.max(1, size / chunks);
+
+        long[] bounds = new long[(int) chunks + 1];
+        int count = 1;
+        for (long target = chunkSize; target < size; target += chunkSize) {
+            long bound = nextRecordStart(channel, Math.max(target, bounds[count - 1]));
+            if (bound > bounds[count - 1] && bound < size) {
+                bounds[count++] = bound;
+            }
+            if (count == bounds.length - 1) {
+                break;
+            }
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Procura o início do primeiro registo que começa na posição indicada ou
+     * depois dela.
+     */
+    private static long nextRecordStart(FileChannel channel, long position) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(CadastroConstants.BOUNDARY_SCAN_SIZE);
+        long offset = position - 1;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == LINE_FEED) {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Processa os registos de um bloco do ficheiro.
+     *
+     * @param channel O canal do ficheiro
+     * @param start A posição do primeiro byte do bloco
+     * @param end A posição a seguir ao último byte do bloco
+     * @param skipHeader Se o primeiro registo do bloco é o cabeçalho
+     * @param shapes O ficheiro de origem das formas no modo lazy, ou null
+     * @param locationDictionary O dicionário de localizações, partilhado por
+     *                           todos os blocos
+     * @param sink O destino dos cadastros válidos do bloco
+     * @return O número de registos ignorados
+     * @throws IOException Se houver erro ao mapear o bloco
+     */
+    private static int readChunk(FileChannel channel, long start, long end, boolean skipHeader,
+            LazyShape.Source shapes, LocationDictionary locationDictionary, CadastroSink sink) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int limit = buffer.limit();
+        int skippedRecords = 0;
+        int[] fieldBounds = new int[32];
+
+        int lineStart = 0;
+        boolean header = skipHeader;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != LINE_FEED) {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == CARRIAGE_RETURN) {
+                lineEnd--;
+            }
+
+            if (header) {
+                header = false;
+            } else {
+                fieldBounds = splitFields(buffer, lineStart, lineEnd, fieldBounds);
+                try {
+                    readRecord(buffer, fieldBounds, start, shapes, locationDictionary, sink);
+                } catch (IllegalArgumentException | ParseException e) {
+                    skippedRecords++;
+                }
+            }
+            lineStart = next;
+        }
+        return skippedRecords;
+    }
+
+    /**
+     * Delimita os campos de um registo. A posição 0 do array devolvido guarda
+     * o número de campos e as posições seguintes, aos pares, o início e o fim
+     * de cada campo no bloco.
+     */
+    private static int[] splitFields(ByteBuffer buffer, int start, int end, int[] fieldBounds) {
+        int count = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == DELIMITER) {
+                if (2 * count + 2 >= fieldBounds.length) {
+                    fieldBounds = Arrays.copyOf(fieldBounds, fieldBounds.length * 2);
+                }
+                fieldBounds[2 * count + 1] = fieldStart;
+                fieldBounds[2 * count + 2] = i;
+                count++;
+                fieldStart = i + 1;
+            }
+        }
+        fieldBounds[0] = count;
+        return fieldBounds;
+    }
+
+    /**
+     * Valida os campos delimitados de um registo, com as mesmas regras do
+     * construtor de {@link Cadastro}, e entrega os valores ao destino. No
+     * modo lazy, a estrutura do WKT é verificada sem criar a geometria e a
+     * forma é registada pela sua posição no ficheiro, calculada a partir da
+     * posição do bloco.
+     *
+     * @throws IllegalArgumentException Se o registo não tiver campos suficientes
+     *                                  ou se algum valor for inválido
+     * @throws ParseException Se houver erro ao processar a geometria WKT
+     */
+    private static void readRecord(ByteBuffer buffer, int[] fieldBounds, long chunkStart,
+            LazyShape.Source shapes, LocationDictionary locationDictionary, CadastroSink sink) throws ParseException {
+        int count = fieldBounds[0];
+        if (count <= CadastroConstants.OWNER_INDEX) {
+            throw new IllegalArgumentException(CadastroConstants.MISSING_FIELDS_ERROR);
+        }
+
+        int id = Cadastro.handleId(field(buffer, fieldBounds, CadastroConstants.ID_INDEX));
+        double length = Cadastro.handleLength(field(buffer, fieldBounds, CadastroConstants.LENGTH_INDEX));
+        double area = Cadastro.handleArea(field(buffer, fieldBounds, CadastroConstants.AREA_INDEX));
+        MultiPolygon shape = null;
+        LazyShape lazyShape = null;
+        if (shapes != null) {
+            int shapeStart = fieldBounds[2 * CadastroConstants.SHAPE_INDEX + 1];
+            int shapeEnd = fieldBounds[2 * CadastroConstants.SHAPE_INDEX + 2];
+            // A forma só é descodificada quando for pedida, mas o registo é
+            // ignorado já, como na leitura completa, se o WKT não for válido
+            if (!MultiPolygonWktDecoder.isValid(new FieldSequence(buffer, shapeStart, shapeEnd))) {
+                throw new IllegalArgumentException(
+                        field(buffer, fieldBounds, CadastroConstants.SHAPE_INDEX) + CadastroConstants.INVALID_GEOMETRY_ERROR);
+            }
+            lazyShape = new LazyShape(shapes, chunkStart + shapeStart, shapeEnd - shapeStart);
+        } else {
+            shape = Cadastro.handleShape(field(buffer, fieldBounds, CadastroConstants.SHAPE_INDEX));
+        }
+        int owner = Cadastro.handleOwner(field(buffer, fieldBounds, CadastroConstants.OWNER_INDEX));
+
+        List<String> locationFields = new ArrayList<>(count - CadastroConstants.LOCATION_START_INDEX);
+        for (int f = CadastroConstants.LOCATION_START_INDEX; f < count; f++) {
+            locationFields.add(field(buffer, fieldBounds, f));
+        }
+        int[] locationCodes = Cadastro.handleLocation(locationFields, locationDictionary);
+        sink.add(id, length, area, shape, lazyShape, owner, locationCodes);
+    }
+
+    /**
+     * Converte um campo delimitado numa {@code String} UTF-8.
+     */
+    private static String field(ByteBuffer buffer, int[] fieldBounds, int index) {
+        int start = fieldBounds[2 * index + 1];
+        int end = fieldBounds[2 * index + 2];
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Vista de um campo do bloco como sequência de caracteres, sem o copiar.
+     * Cada byte é lido como um carácter, o que basta para o WKT em ASCII; a
+     * conversão completa para {@code String} descodifica UTF-8.
+     */
+    private static final class FieldSequence implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        FieldSequence(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new FieldSequence(buffer, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package cadastro.importer;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Descodificador de WKT especializado no formato da coluna de forma dos
+ * cadastros: {@code MULTIPOLYGON (((x y, x y, ...), (...)), ((...)))} em 2D.
+ *
+ * Os números são lidos diretamente dos caracteres para arrays de coordenadas,
+ * sem tokenizador nem {@code String} intermédias, e todas as geometrias são
+ * criadas com a mesma {@link GeometryFactory}, que guarda as coordenadas de
+ * cada anel num único {@code double[]} 2D em vez de um objeto
+ * {@code Coordinate} por vértice. Sempre que o texto sai deste
+ * formato (outro tipo de geometria, {@code EMPTY}, coordenadas com Z ou M,
+ * texto mal formado, ...) a descodificação é delegada no {@link WKTReader} do
+ * JTS, pelo que o resultado e as exceções lançadas são exatamente os da
+ * leitura genérica.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class MultiPolygonWktDecoder {
+    /** Fábrica de sequências de coordenadas 2D compactadas em double[] */
+    private static final PackedCoordinateSequenceFactory SEQUENCE_FACTORY = PackedCoordinateSequenceFactory.DOUBLE_FACTORY;
+    /** Fábrica partilhada por todas as geometrias importadas */
+    static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(new PrecisionModel(), 0, SEQUENCE_FACTORY);
+
+    private static final String MULTIPOLYGON = "MULTIPOLYGON";
+    /** Maior potência de 10 representável exatamente num double */
+    private static final int MAX_EXACT_POWER_OF_TEN = 22;
+    /** Maior número de dígitos significativos representável exatamente num double */
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER_OF_TEN + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private final CharSequence text;
+    private int position;
+    private double[] coordinates;
+
+    private MultiPolygonWktDecoder(CharSequence text) {
+        this.text = text;
+        this.position = 0;
+        this.coordinates = new double[64];
+    }
+
+    /**
+     * Descodifica um MULTIPOLYGON em WKT.
+     *
+     * @param text O texto WKT
+     * @return A geometria descodificada
+     * @throws ParseException Se o texto não for WKT válido
+     * @throws IllegalArgumentException Se a geometria não for um MultiPolygon
+     *                                  ou se algum anel for inválido
+     */
+    static MultiPolygon decode(CharSequence text) throws ParseException {
+        MultiPolygon shape = new MultiPolygonWktDecoder(text).decodeMultiPolygon();
+        if (shape != null) {
+            return shape;
+        }
+
+        Geometry geometry = new WKTReader(GEOMETRY_FACTORY).read(text.toString());
+        if (geometry instanceof MultiPolygon multiPolygon) {
+            return multiPolygon;
+        }
+        throw new IllegalArgumentException(text + CadastroConstants.INVALID_GEOMETRY_ERROR);
+    }
+
+    /**
+     * Verifica, sem criar a geometria, se um texto WKT seria aceite por
+     * {@link #decode(CharSequence)}. No formato esperado é apenas percorrida a
+     * estrutura (palavra-chave, parênteses equilibrados e pares de
+     * coordenadas) e verificado que cada anel é fechado e tem pontos
+     * suficientes; os restantes textos são descodificados, tal como em
+     * {@link #decode(CharSequence)}.
+     *
+     * @param text O texto WKT
+     * @return true se o texto for um MultiPolygon válido
+     */
+    static boolean isValid(CharSequence text) {
+        if (new MultiPolygonWktDecoder(text).checkMultiPolygon()) {
+            return true;
+        }
+        try {
+            decode(text);
+            return true;
+        } catch (ParseException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Percorre o texto no formato esperado sem criar geometrias, com as
+     * mesmas regras de {@link #decodeMultiPolygon()}.
+     *
+     * @return true se o texto estiver no formato esperado e todos os anéis
+     *         forem válidos
+     */
+    private boolean checkMultiPolygon() {
+        skipWhitespace();
+        if (!consumeKeyword() || !consume('(')) {
+            return false;
+        }
+        do {
+            if (!consume('(')) {
+                return false;
+            }
+            do {
+                if (!checkRing()) {
+                    return false;
+                }
+            } while (consume(','));
+            if (!consume(')')) {
+                return false;
+            }
+        } while (consume(','));
+
+        if (!consume(')')) {
+            return false;
+        }
+        skipWhitespace();
+        return position == text.length();
+    }
+
+    /**
+     * Percorre um anel, guardando só o primeiro e o último ponto, e verifica
+     * as condições de {@link LinearRing}: fechado e com pelo menos
+     * {@link LinearRing#MINIMUM_VALID_SIZE} pontos.
+     */
+    private boolean checkRing() {
+        if (!consume('(')) {
+            return false;
+        }
+        int count = 0;
+        do {
+            int index = count == 0 ? 0 : 2;
+            skipWhitespace();
+            if (!parseNumber(coordinates, index) || !skipRequiredWhitespace()
+                    || !parseNumber(coordinates, index + 1)) {
+                return false;
+            }
+            count++;
+        } while (consume(','));
+
+        return consume(')') && count >= LinearRing.MINIMUM_VALID_SIZE
+                && coordinates[0] == coordinates[2] && coordinates[1] == coordinates[3];
+    }
+
+    /**
+     * Tenta descodificar o texto no formato esperado.
+     *
+     * @return A geometria, ou null se o texto não estiver no formato esperado
+     */
+    private MultiPolygon decodeMultiPolygon() {
+        skipWhitespace();
+        if (!consumeKeyword() || !consume('(')) {
+            return null;
+        }
+
+        List<Polygon> polygons = new ArrayList<>();
+        do {
+            Polygon polygon = decodePolygon();
+            if (polygon == null) {
+                return null;
+            }
+            polygons.add(polygon);
+        } while (consume(','));
+
+        if (!consume(')')) {
+            return null;
+        }
+        skipWhitespace();
+        if (position != text.length()) {
+            return null;
+        }
+        return GEOMETRY_FACTORY.createMultiPolygon(polygons.toArray(new Polygon[0]));
+    }
+
+    private Polygon decodePolygon() {
+        if (!consume('(')) {
+            return null;
+        }
+        List<LinearRing> rings = new ArrayList<>();
+        do {
+            LinearRing ring = decodeRing();
+            if (ring == null) {
+                return null;
+            }
+            rings.add(ring);
+        } while (consume(','));
+
+        if (!consume(')')) {
+            return null;
+        }
+        LinearRing[] holes = rings.subList(1, rings.size()).toArray(new LinearRing[0]);
+        return GEOMETRY_FACTORY.createPolygon(rings.get(0), holes);
+    }
+
+    /**
+     * Descodifica um anel para o array de coordenadas, alternando x e y.
+     */
+    private LinearRing decodeRing() {
+        if (!consume('(')) {
+            return null;
+        }
+        int count = 0;
+        do {
+            if (2 * count + 2 > coordinates.length) {
+                coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+            }
+            skipWhitespace();
+            if (!parseNumber(coordinates, 2 * count) || !skipRequiredWhitespace()
+                    || !parseNumber(coordinates, 2 * count + 1)) {
+                return null;
+            }
+            count++;
+        } while (consume(','));
+
+        if (!consume(')')) {
+            return null;
+        }
+        return createRing(coordinates, count);
+    }
+
+    /**
+     * Cria um anel a partir de coordenadas 2D intercaladas. O array é usado
+     * diretamente quando tem o tamanho exato e copiado nos restantes casos.
+     *
+     * @param xy As coordenadas, alternando x e y
+     * @param count O número de pontos
+     * @return O anel criado
+     * @throws IllegalArgumentException Se o anel não for fechado ou tiver
+     *                                  pontos insuficientes
+     */
+    static LinearRing createRing(double[] xy, int count) {
+        double[] packed = xy.length == 2 * count ? xy : Arrays.copyOf(xy, 2 * count);
+        return GEOMETRY_FACTORY.createLinearRing(SEQUENCE_FACTORY.create(packed, 2));
+    }
+
+    /**
+     * Lê um número decimal na posição atual. Quando o número tem no máximo
+     * {@value #MAX_EXACT_DIGITS} dígitos significativos e um expoente decimal
+     * de no máximo {@value #MAX_EXACT_POWER_OF_TEN}, o valor é obtido com uma
+     * única operação exata em vírgula flutuante, que dá o mesmo resultado que
+     * {@link Double#parseDouble(String)}; nos restantes casos é usado o próprio
+     * {@code parseDouble}.
+     *
+     * @param target O array onde guardar o valor
+     * @param index A posição do array
+     * @return true se foi lido um número
+     */
+    private boolean parseNumber(double[] target, int index) {
+        int start = position;
+        int length = text.length();
+        boolean negative = false;
+        if (position < length && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+            negative = text.charAt(position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean anyDigit = false;
+        while (position < length && isDigit(text.charAt(position))) {
+            if (mantissa != 0 || text.charAt(position) != '0') {
+                digits++;
+            }
+            mantissa = mantissa * 10 + (text.charAt(position) - '0');
+            anyDigit = true;
+            position++;
+        }
+        if (position < length && text.charAt(position) == '.') {
+            position++;
+            while (position < length && isDigit(text.charAt(position))) {
+                if (mantissa != 0 || text.charAt(position) != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (text.charAt(position) - '0');
+                scale--;
+                anyDigit = true;
+                position++;
+            }
+        }
+        if (!anyDigit) {
+            return false;
+        }
+        if (position < length && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+            return parseWithJdk(target, index, start);
+        }
+
+        if (digits > MAX_EXACT_DIGITS || -scale > MAX_EXACT_POWER_OF_TEN) {
+            return parseWithJdk(target, index, start);
+        }
+        double value = scale == 0 ? (double) mantissa : mantissa / POWERS_OF_TEN[-scale];
+        target[index] = negative ? -value : value;
+        return true;
+    }
+
+    /**
+     * Lê o número que começa em {@code start} com {@link Double#parseDouble},
+     * aceitando também expoente.
+     */
+    private boolean parseWithJdk(double[] target, int index, int start) {
+        int length = text.length();
+        position = start;
+        while (position < length && isNumberChar(text.charAt(position))) {
+            position++;
+        }
+        try {
+            target[index] = Double.parseDouble(text.subSequence(start, position).toString());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private boolean consumeKeyword() {
+        int end = position + MULTIPOLYGON.length();
+        if (end > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < MULTIPOLYGON.length(); i++) {
+            if (Character.toUpperCase(text.charAt(position + i)) != MULTIPOLYGON.charAt(i)) {
+                return false;
+            }
+        }
+        if (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+            return false;
+        }
+        position = end;
+        return true;
+    }
+
+    /**
+     * Consome um carácter, ignorando espaços antes dele.
+     */
+    private boolean consume(char expected) {
+        skipWhitespace();
+        if (position < text.length() && text.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private boolean skipRequiredWhitespace() {
+        int start = position;
+        skipWhitespace();
+        return position > start;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberChar(char c) {
+        return isDigit(c) || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E';
+    }
+}
@@ -0,0 +1,68 @@
+package cadastro.importer;
+
+import org.locationtech.jts.geom.MultiPolygon;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache das formas descodificadas no modo {@link CadastroConstants#IMPORT_LAZY}.
+ *
+ * Guarda no máximo {@link CadastroConstants#SHAPE_CACHE_CAPACITY} formas,
+ * descartando a usada há mais tempo (LRU). As formas são guardadas em
+ * {@link SoftReference}, pelo que o garbage collector também as pode libertar
+ * quando falta memória; nesse caso são descodificadas de novo no pedido
+ * seguinte.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class ShapeCache {
+    private static final Map<LazyShape, SoftReference<MultiPolygon>> ENTRIES =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<LazyShape, SoftReference<MultiPolygon>> eldest) {
+                    return size() > CadastroConstants.SHAPE_CACHE_CAPACITY;
+                }
+            };
+
+    private ShapeCache() {
+    }
+
+    /**
+     * Retorna a forma descodificada, descodificando-a se não estiver na cache.
+     * A descodificação é feita fora do lock, pelo que pedidos concorrentes da
+     * mesma forma podem descodificá-la mais de uma vez.
+     *
+     * @param shape A forma a descodificar
+     * @return A forma descodificada
+     * @throws IllegalStateException Se a forma não puder ser descodificada
+     */
+    static MultiPolygon get(LazyShape shape) {
+        synchronized (ENTRIES) {
+            SoftReference<MultiPolygon> reference = ENTRIES.get(shape);
+            MultiPolygon cached = reference == null ? null : reference.get();
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        MultiPolygon decoded = shape.decode();
+        synchronized (ENTRIES) {
+            ENTRIES.put(shape, new SoftReference<>(decoded));
+        }
+        return decoded;
+    }
+
+    /**
+     * Retorna o número de formas na cache.
+     *
+     * @return O número de formas na cache
+     */
+    static int size() {
+        synchronized (ENTRIES) {
+            return ENTRIES.size();
+        }
+    }
+}
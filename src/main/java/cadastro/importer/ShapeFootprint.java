@@ -0,0 +1,94 @@
+package cadastro.importer;
+
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Estimativa da memória ocupada pelas formas dos cadastros, comparando as
+ * sequências de coordenadas compactadas ({@code double[]} 2D por anel) com as
+ * {@code CoordinateArraySequence} usadas por omissão pelo JTS (um objeto
+ * {@code Coordinate} com x, y e z por vértice).
+ *
+ * Os valores assumem uma JVM de 64 bits com compressed oops e incluem os
+ * objetos MultiPolygon, Polygon e LinearRing, que são iguais nas duas
+ * representações.
+ *
+ * @author [Lei-G]
+ * @version 1.0
+ */
+final class ShapeFootprint {
+    /** Bytes estimados do cabeçalho de um objeto (com compressed oops) */
+    private static final int OBJECT_HEADER_BYTES = 12;
+    /** Bytes estimados do cabeçalho de um array */
+    private static final int ARRAY_HEADER_BYTES = 16;
+    /** Bytes estimados de uma referência (com compressed oops) */
+    private static final int REFERENCE_BYTES = 4;
+    /** Bytes estimados de uma geometria (envelope, factory, SRID e userData) */
+    private static final int GEOMETRY_BYTES = OBJECT_HEADER_BYTES + 3 * REFERENCE_BYTES + Integer.BYTES;
+    /** Bytes estimados de um Coordinate (x, y e z) */
+    private static final int COORDINATE_BYTES = OBJECT_HEADER_BYTES + 3 * Double.BYTES;
+    /** Bytes estimados de uma CoordinateArraySequence, sem o array */
+    private static final int ARRAY_SEQUENCE_BYTES = OBJECT_HEADER_BYTES + 2 * Integer.BYTES + REFERENCE_BYTES;
+    /** Bytes estimados de uma PackedCoordinateSequence.Double, sem o array */
+    private static final int PACKED_SEQUENCE_BYTES = OBJECT_HEADER_BYTES + 2 * Integer.BYTES + 2 * REFERENCE_BYTES;
+
+    private long shapes;
+    private long coordinates;
+    private long packedBytes;
+    private long coordinateArrayBytes;
+
+    /**
+     * Acrescenta uma forma à estimativa.
+     *
+     * @param shape A forma a acrescentar
+     */
+    void add(MultiPolygon shape) {
+        shapes++;
+        long common = align(GEOMETRY_BYTES + REFERENCE_BYTES)
+                + align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * shape.getNumGeometries());
+        for (int p = 0; p < shape.getNumGeometries(); p++) {
+            Polygon polygon = (Polygon) shape.getGeometryN(p);
+            common += align(GEOMETRY_BYTES + 2 * REFERENCE_BYTES)
+                    + align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * polygon.getNumInteriorRing());
+            addRing(polygon.getExteriorRing().getNumPoints());
+            for (int r = 0; r < polygon.getNumInteriorRing(); r++) {
+                addRing(polygon.getInteriorRingN(r).getNumPoints());
+            }
+            common += (1L + polygon.getNumInteriorRing()) * align(GEOMETRY_BYTES + REFERENCE_BYTES);
+        }
+        packedBytes += common;
+        coordinateArrayBytes += common;
+    }
+
+    private void addRing(int points) {
+        coordinates += points;
+        packedBytes += align(PACKED_SEQUENCE_BYTES) + align(ARRAY_HEADER_BYTES + 2L * Double.BYTES * points);
+        coordinateArrayBytes += align(ARRAY_SEQUENCE_BYTES)
+                + align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * points)
+                + points * align(COORDINATE_BYTES);
+    }
+
+    /**
+     * Arredonda um tamanho ao múltiplo de 8 bytes seguinte, como a JVM faz
+     * com cada objeto.
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    long getShapes() {
+        return shapes;
+    }
+
+    long getCoordinates() {
+        return coordinates;
+    }
+
+    long getPackedBytes() {
+        return packedBytes;
+    }
+
+    long getCoordinateArrayBytes() {
+        return coordinateArrayBytes;
+    }
+}
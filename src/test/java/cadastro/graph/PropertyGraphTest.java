@@ -1,19 +1,38 @@
 package cadastro.graph;
 
 import cadastro.importer.Cadastro;
+import cadastro.importer.CadastroConstants;
+import cadastro.importer.CadastroIndex;
+import cadastro.importer.CadastroReader;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.MultiPolygon;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -86,6 +105,45 @@ class PropertyGraphTest {
         PropertyGraphTestLogger.log("=== Setup concluído ===\n");
     }
 
+    /**
+     * Cria uma grelha de {@code size} x {@code size} quadrados de lado 10,
+     * em que cada quadrado toca os oito vizinhos.
+     */
+    private static List<Cadastro> createGrid(int size) throws Exception {
+        return parseCadastros(createGridCsv(size));
+    }
+
+    /**
+     * Converte registos CSV, sem cabeçalho, em cadastros.
+     */
+    private static List<Cadastro> parseCadastros(String csv) throws Exception {
+        List<Cadastro> cadastros = new ArrayList<>();
+        try (CSVParser parser = CSVFormat.newFormat(';').parse(new StringReader(csv))) {
+            for (CSVRecord record : parser) {
+                cadastros.add(new Cadastro(record));
+            }
+        }
+        return cadastros;
+    }
+
+    /**
+     * Cria os registos CSV, sem cabeçalho, da grelha de {@link #createGrid(int)}.
+     */
+    private static String createGridCsv(int size) {
+        StringBuilder csv = new StringBuilder();
+        int id = 1;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int x0 = x * 10;
+                int y0 = y * 10;
+                csv.append(String.format("%d;1;1;40.0;100.0;MULTIPOLYGON(((%d %d, %d %d, %d %d, %d %d, %d %d)));%d;Sé;Funchal;Madeira%n",
+                        id, x0, y0, x0 + 10, y0, x0 + 10, y0 + 10, x0, y0 + 10, x0, y0, 1 + id % 7));
+                id++;
+            }
+        }
+        return csv.toString();
+    }
+
     @AfterAll
     static void tearDown() {
         PropertyGraphTestLogger.close();
@@ -186,4 +244,786 @@ class PropertyGraphTest {
         
         PropertyGraphTestLogger.logTestEnd("Representação em string do grafo");
     }
-}
\ No newline at end of file
+
+    /**
+     * Testa que a construção paralela produz as mesmas adjacências que a sequencial.
+     */
+    @Test
+    void parallelBuild() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Construção paralela do grafo");
+
+        // A grelha tem vértices suficientes para que a tarefa seja dividida
+        // em vários níveis
+        int size = 24;
+        List<Cadastro> grid = createGrid(size);
+        assertTrue(grid.size() > 2 * PropertyGraphConstants.PARALLEL_BUILD_THRESHOLD,
+                "A grelha deve exceder o limiar da divisão paralela");
+        PropertyGraph sequential = new PropertyGraph(grid);
+
+        assertEquals(2 * (size - 1) * size + 2 * (size - 1) * (size - 1), sequential.getNumberOfAdjacencies(),
+                "Cada quadrado deve tocar os seus vizinhos");
+        for (int parallelism : new int[] {2, 4}) {
+            PropertyGraph parallel = new PropertyGraph(grid, parallelism);
+            assertEquals(sequential.getNumberOfAdjacencies(), parallel.getNumberOfAdjacencies(), "O número de adjacências deve coincidir");
+            for (Cadastro cadastro : grid) {
+                assertEquals(sequential.getAdjacentProperties(cadastro), parallel.getAdjacentProperties(cadastro),
+                        "As adjacências devem coincidir");
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new PropertyGraph(grid, 0),
+                "Deve lançar exceção para paralelismo inválido");
+        PropertyGraphTestLogger.logSuccess("Construção paralela verificada com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Construção paralela do grafo");
+    }
+
+    /**
+     * Testa que o predicado de passagem única coincide com o predicado original.
+     */
+    @Test
+    void predicateModes() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Modos do predicado de adjacência");
+
+        List<Cadastro> grid = createGrid(8);
+        PropertyGraph legacy = new PropertyGraph(grid, 1, PropertyGraphConstants.PREDICATE_LEGACY);
+        PropertyGraph singlePass = new PropertyGraph(grid, 1, PropertyGraphConstants.PREDICATE_DE9IM);
+        PropertyGraph verified = new PropertyGraph(grid, 2, PropertyGraphConstants.PREDICATE_VERIFY);
+
+        assertEquals(legacy.getNumberOfAdjacencies(), singlePass.getNumberOfAdjacencies(), "O número de adjacências deve coincidir");
+        assertEquals(legacy.getNumberOfAdjacencies(), verified.getNumberOfAdjacencies(), "O número de adjacências deve coincidir");
+        assertEquals(0, verified.getPredicateMismatches(), "Os predicados não devem divergir");
+        assertThrows(IllegalArgumentException.class, () -> new PropertyGraph(grid, 1, -1),
+                "Deve lançar exceção para modo de predicado inválido");
+        PropertyGraphTestLogger.logSuccess("Predicados verificados com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Modos do predicado de adjacência");
+    }
+
+    /**
+     * Testa a gravação e o carregamento das arestas num ficheiro binário.
+     */
+    @Test
+    void saveAndLoad() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Gravação e carregamento das arestas");
+
+        List<Cadastro> grid = createGrid(6);
+        PropertyGraph built = new PropertyGraph(grid);
+        File edgeFile = File.createTempFile("property-graph", PropertyGraphConstants.EDGE_FILE_EXTENSION);
+        edgeFile.deleteOnExit();
+        built.save(edgeFile.getPath());
+
+        PropertyGraph loaded = PropertyGraph.load(grid, edgeFile.getPath(), 1);
+        assertEquals(built.getNumberOfAdjacencies(), loaded.getNumberOfAdjacencies(), "O número de adjacências deve coincidir");
+        for (Cadastro cadastro : grid) {
+            assertEquals(built.getAdjacentProperties(cadastro), loaded.getAdjacentProperties(cadastro),
+                    "As adjacências carregadas devem coincidir");
+        }
+
+        // Um ficheiro com o hash correto mas com uma única aresta, diferente
+        // das verdadeiras, torna visível que o ficheiro foi usado
+        EdgeList marker = new EdgeList();
+        marker.add(0, grid.size() - 1);
+        EdgeFile.write(edgeFile.toPath(), DatasetHash.of(grid), grid.size(), marker);
+        PropertyGraph cached = PropertyGraph.load(grid, edgeFile.getPath(), 1);
+        assertEquals(1, cached.getNumberOfAdjacencies(), "Com o mesmo hash as arestas devem ser lidas do ficheiro");
+        assertTrue(cached.areAdjacent(grid.get(0), grid.get(grid.size() - 1)), "A aresta do ficheiro deve ser carregada");
+
+        // Com o mesmo número de cadastros mas um conteúdo diferente, o hash
+        // muda e o grafo é reconstruído e regravado
+        List<Cadastro> changed = new ArrayList<>(grid);
+        changed.set(0, createGrid(8).get(63));
+        PropertyGraph rebuilt = PropertyGraph.load(changed, edgeFile.getPath(), 1);
+        PropertyGraph fresh = new PropertyGraph(changed);
+        assertEquals(fresh.getNumberOfAdjacencies(), rebuilt.getNumberOfAdjacencies(),
+                "Com dados diferentes o grafo deve ser reconstruído");
+        assertFalse(rebuilt.areAdjacent(changed.get(0), changed.get(changed.size() - 1)),
+                "A aresta do ficheiro antigo não deve ser usada");
+        assertNotNull(EdgeFile.read(edgeFile.toPath(), DatasetHash.of(changed), changed.size()),
+                "O ficheiro deve ser regravado com o novo hash");
+        assertNull(EdgeFile.read(edgeFile.toPath(), DatasetHash.of(grid), grid.size()),
+                "O hash antigo deixa de corresponder ao ficheiro");
+
+        List<Cadastro> subset = grid.subList(0, 18);
+        assertEquals(new PropertyGraph(subset).getNumberOfAdjacencies(),
+                PropertyGraph.load(subset, edgeFile.getPath(), 1).getNumberOfAdjacencies(),
+                "Com menos cadastros o grafo deve ser reconstruído");
+        PropertyGraphTestLogger.logSuccess("Arestas gravadas e carregadas com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Gravação e carregamento das arestas");
+    }
+
+    /**
+     * Testa as consultas de vizinhança restritas às linhas de um índice.
+     */
+    @Test
+    void restrictedNeighbours() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Vizinhança restrita por proprietário");
+
+        List<Cadastro> grid = createGrid(8);
+        PropertyGraph graph = new PropertyGraph(grid);
+        CadastroIndex index = CadastroIndex.of(grid);
+        for (Cadastro cadastro : grid) {
+            assertSame(cadastro, graph.getProperty(graph.getVertexId(cadastro)), "O vértice deve corresponder à propriedade");
+            for (int owner : index.getOwners()) {
+                List<Cadastro> expected = new ArrayList<>();
+                for (Cadastro neighbour : graph.getAdjacentProperties(cadastro)) {
+                    if (neighbour.getOwner() == owner) {
+                        expected.add(neighbour);
+                    }
+                }
+                expected.sort(Comparator.comparingInt(graph::getVertexId));
+                assertEquals(expected, graph.getAdjacentProperties(cadastro, index.getRowsByOwner(owner)),
+                        "Os vizinhos devem ser os do proprietário indicado");
+            }
+            assertEquals(new ArrayList<>(graph.getAdjacentProperties(cadastro)),
+                    graph.getAdjacentProperties(cadastro, IntStream.range(0, grid.size()).toArray()),
+                    "Sem restrição devem ser devolvidos todos os vizinhos");
+        }
+        PropertyGraphTestLogger.logSuccess("Vizinhança restrita verificada com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Vizinhança restrita por proprietário");
+    }
+
+    /**
+     * Testa o grafo de proprietários contra uma contagem direta sobre as
+     * adjacências das propriedades.
+     */
+    @Test
+    void ownerGraph() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Grafo de proprietários");
+
+        List<Cadastro> grid = createGrid(8);
+        PropertyGraph graph = new PropertyGraph(grid, 2);
+        OwnerGraph owners = new OwnerGraph(graph, true);
+
+        Map<List<Integer>, Integer> borders = new HashMap<>();
+        Map<List<Integer>, Double> lengths = new HashMap<>();
+        for (Cadastro cadastro : grid) {
+            for (Cadastro neighbour : graph.getAdjacentProperties(cadastro)) {
+                if (cadastro.getOwner() < neighbour.getOwner()) {
+                    List<Integer> pair = List.of(cadastro.getOwner(), neighbour.getOwner());
+                    double distance = cadastro.getShape().getCentroid().distance(neighbour.getShape().getCentroid());
+                    borders.merge(pair, 1, Integer::sum);
+                    lengths.merge(pair, Math.abs(distance - 10) < 1e-9 ? 10.0 : 0.0, Double::sum);
+                }
+            }
+        }
+
+        assertEquals(borders.size(), owners.getNumberOfAdjacencies(), "O número de pares de proprietários deve coincidir");
+        for (int owner1 : owners.getOwners()) {
+            for (int owner2 : owners.getOwners()) {
+                List<Integer> pair = List.of(Math.min(owner1, owner2), Math.max(owner1, owner2));
+                boolean adjacent = owner1 != owner2 && borders.containsKey(pair);
+                assertEquals(adjacent, owners.areAdjacent(owner1, owner2), "A adjacência deve coincidir");
+                assertEquals(adjacent ? borders.get(pair) : 0, owners.getSharedBorders(owner1, owner2),
+                        "O número de fronteiras partilhadas deve coincidir");
+                assertEquals(adjacent ? lengths.get(pair) : 0.0, owners.getSharedBoundaryLength(owner1, owner2), 1e-6,
+                        "O comprimento das fronteiras deve coincidir");
+            }
+            int[] adjacent = owners.getAdjacentOwners(owner1);
+            assertTrue(IntStream.range(1, adjacent.length).allMatch(i -> adjacent[i - 1] < adjacent[i]),
+                    "Os proprietários adjacentes devem estar por ordem crescente");
+        }
+        assertThrows(IllegalStateException.class, () -> new OwnerGraph(graph).getSharedBoundaryLength(1, 2),
+                "Sem o comprimento das fronteiras deve lançar exceção");
+        PropertyGraphTestLogger.logSuccess("Grafo de proprietários verificado com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Grafo de proprietários");
+    }
+
+    /**
+     * Testa os clusters de propriedades contíguas, comparando com uma pesquisa
+     * em largura pelas adjacências entre propriedades do mesmo proprietário.
+     */
+    @Test
+    void contiguousHoldings() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Propriedades contíguas");
+
+        List<Cadastro> grid = createGrid(24);
+        PropertyGraph graph = new PropertyGraph(grid, 2);
+        ContiguousHoldings sequential = new ContiguousHoldings(graph);
+        ContiguousHoldings parallel = new ContiguousHoldings(graph, 4);
+
+        int[] expected = new int[grid.size()];
+        Arrays.fill(expected, -1);
+        List<Double> areas = new ArrayList<>();
+        for (int start = 0; start < grid.size(); start++) {
+            if (expected[start] >= 0) {
+                continue;
+            }
+            int cluster = areas.size();
+            double area = 0.0;
+            ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(start));
+            expected[start] = cluster;
+            while (!queue.isEmpty()) {
+                Cadastro cadastro = graph.getProperty(queue.poll());
+                area += cadastro.getArea();
+                for (Cadastro neighbour : graph.getAdjacentProperties(cadastro)) {
+                    int vertex = graph.getVertexId(neighbour);
+                    if (neighbour.getOwner() == cadastro.getOwner() && expected[vertex] < 0) {
+                        expected[vertex] = cluster;
+                        queue.add(vertex);
+                    }
+                }
+            }
+            areas.add(area);
+        }
+
+        for (ContiguousHoldings holdings : List.of(sequential, parallel)) {
+            assertEquals(areas.size(), holdings.getNumberOfClusters(), "O número de clusters deve coincidir");
+            for (int vertex = 0; vertex < grid.size(); vertex++) {
+                int cluster = holdings.getClusterOf(vertex);
+                assertEquals(expected[vertex], cluster, "O cluster de cada propriedade deve coincidir");
+                assertEquals(grid.get(vertex).getOwner(), holdings.getClusterOwner(cluster), "O proprietário do cluster deve coincidir");
+                assertEquals(areas.get(cluster), holdings.getClusterArea(cluster), 1e-9, "A área do cluster deve coincidir");
+            }
+        }
+        assertEquals(-1, sequential.getClusterId(createGrid(1).get(0)), "Uma propriedade fora do grafo não tem cluster");
+
+        int[] all = IntStream.range(0, grid.size()).toArray();
+        double average = areas.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        assertEquals(average, sequential.getAverageClusterArea(all), 1e-9, "A área média dos clusters deve coincidir");
+        assertEquals(0.0, sequential.getAverageClusterArea(new int[0]), "Sem propriedades a área média deve ser 0");
+        assertThrows(IllegalArgumentException.class, () -> new ContiguousHoldings(null), "Um grafo nulo deve lançar exceção");
+        PropertyGraphTestLogger.logSuccess("Propriedades contíguas verificadas com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Propriedades contíguas");
+    }
+
+    /**
+     * Testa as sugestões de trocas, comparando com o cálculo direto do número
+     * de adjacências entre propriedades de cada proprietário antes e depois de
+     * cada troca possível.
+     */
+    @Test
+    void swapSuggestions() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Sugestões de trocas");
+
+        List<Cadastro> grid = createGrid(20);
+        PropertyGraph graph = new PropertyGraph(grid, 2);
+        int n = grid.size();
+        int[] owners = grid.stream().mapToInt(Cadastro::getOwner).toArray();
+        int[][] neighbours = new int[n][];
+        for (int v = 0; v < n; v++) {
+            neighbours[v] = graph.getAdjacentProperties(grid.get(v)).stream().mapToInt(graph::getVertexId).toArray();
+        }
+
+        List<double[]> expected = new ArrayList<>();
+        for (int p = 0; p < n; p++) {
+            for (int q = p + 1; q < n; q++) {
+                int ownerP = owners[p];
+                int ownerQ = owners[q];
+                if (ownerP == ownerQ || !bordersOwner(neighbours[p], owners, ownerQ) || !bordersOwner(neighbours[q], owners, ownerP)) {
+                    continue;
+                }
+                int[] swapped = owners.clone();
+                swapped[p] = ownerQ;
+                swapped[q] = ownerP;
+                int gainP = internalAdjacencies(neighbours, swapped, ownerP) - internalAdjacencies(neighbours, owners, ownerP);
+                int gainQ = internalAdjacencies(neighbours, swapped, ownerQ) - internalAdjacencies(neighbours, owners, ownerQ);
+                if (gainP >= 0 && gainQ >= 0 && gainP + gainQ > 0) {
+                    double areaP = grid.get(p).getArea();
+                    double areaQ = grid.get(q).getArea();
+                    expected.add(new double[] {p, q, gainP + gainQ, (gainP + gainQ) * Math.min(areaP, areaQ) / Math.max(areaP, areaQ)});
+                }
+            }
+        }
+        expected.sort((a, b) -> a[3] != b[3] ? Double.compare(b[3], a[3]) : a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+        assertFalse(expected.isEmpty(), "A grelha deve ter trocas vantajosas");
+
+        int k = 25;
+        for (SwapSuggestions suggestions : List.of(new SwapSuggestions(graph), new SwapSuggestions(graph, 4))) {
+            List<SwapSuggestions.Swap> swaps = suggestions.getTopSwaps(k);
+            assertEquals(Math.min(k, expected.size()), swaps.size(), "O número de sugestões deve coincidir");
+            for (int i = 0; i < swaps.size(); i++) {
+                SwapSuggestions.Swap swap = swaps.get(i);
+                assertEquals((int) expected.get(i)[0], graph.getVertexId(swap.getFirst()), "A primeira propriedade deve coincidir");
+                assertEquals((int) expected.get(i)[1], graph.getVertexId(swap.getSecond()), "A segunda propriedade deve coincidir");
+                assertEquals((int) expected.get(i)[2], swap.getContiguityGain(), "O ganho deve coincidir");
+                assertEquals(expected.get(i)[3], swap.getScore(), 1e-9, "A pontuação deve coincidir");
+            }
+            assertEquals(expected.size(), suggestions.getTopSwaps(Integer.MAX_VALUE).size(), "Todas as trocas vantajosas devem ser sugeridas");
+        }
+
+        int[] area = IntStream.range(0, n / 2).toArray();
+        long inArea = expected.stream().filter(swap -> swap[0] < n / 2 || swap[1] < n / 2).count();
+        assertEquals(inArea, new SwapSuggestions(graph, 2).getTopSwaps(area, Integer.MAX_VALUE).size(),
+                "As trocas de uma área devem envolver uma propriedade da área");
+        assertThrows(IllegalArgumentException.class, () -> new SwapSuggestions(graph).getTopSwaps(0), "k deve ser pelo menos 1");
+        PropertyGraphTestLogger.logSuccess("Sugestões de trocas verificadas com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Sugestões de trocas");
+    }
+
+    private static boolean bordersOwner(int[] neighbours, int[] owners, int owner) {
+        return Arrays.stream(neighbours).anyMatch(u -> owners[u] == owner);
+    }
+
+    private static int internalAdjacencies(int[][] neighbours, int[] owners, int owner) {
+        int count = 0;
+        for (int v = 0; v < owners.length; v++) {
+            if (owners[v] != owner) {
+                continue;
+            }
+            for (int u : neighbours[v]) {
+                if (u > v && owners[u] == owner) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Testa os percursos na grelha, onde cada quadrado é adjacente aos oito
+     * vizinhos: a distância em saltos é a distância de Chebyshev entre as
+     * células e o caminho mais curto entre centróides combina passos
+     * diagonais e retos.
+     */
+    @Test
+    void traversal() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Percursos no grafo");
+
+        int size = 10;
+        List<Cadastro> grid = createGrid(size);
+        PropertyGraph graph = new PropertyGraph(grid, 2);
+        GraphTraversal traversal = graph.getTraversal();
+        assertSame(traversal, graph.getTraversal(), "Os percursos devem ser criados uma única vez");
+
+        Cadastro origin = grid.get(3 * size + 4);
+        for (int hops = 0; hops <= 3; hops++) {
+            Set<Cadastro> expected = new HashSet<>();
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    int chebyshev = Math.max(Math.abs(x - 3), Math.abs(y - 4));
+                    if (chebyshev > 0 && chebyshev <= hops) {
+                        expected.add(grid.get(x * size + y));
+                    }
+                }
+            }
+            List<Cadastro> neighbourhood = traversal.getNeighbourhood(origin, hops);
+            assertEquals(expected.size(), neighbourhood.size(), "A vizinhança não deve ter repetições");
+            assertEquals(expected, new HashSet<>(neighbourhood), "A vizinhança deve coincidir");
+        }
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                Cadastro target = grid.get(x * size + y);
+                int dx = Math.abs(x - 3);
+                int dy = Math.abs(y - 4);
+                assertEquals(Math.max(dx, dy), traversal.getDistance(origin, target), "A distância deve ser a de Chebyshev");
+
+                GraphTraversal.Path path = traversal.getShortestPath(origin, target, PropertyGraphConstants.WEIGHT_CENTROID_DISTANCE);
+                double expectedCost = 10 * (Math.min(dx, dy) * Math.sqrt(2) + Math.abs(dx - dy));
+                assertEquals(expectedCost, path.getCost(), 1e-9, "O custo entre centróides deve coincidir");
+                assertEquals(Math.max(dx, dy) + 1, path.getProperties().size(), "O caminho deve ter o número mínimo de passos");
+                assertSame(origin, path.getProperties().get(0), "O caminho deve começar na origem");
+                assertSame(target, path.getProperties().get(path.getProperties().size() - 1), "O caminho deve acabar no destino");
+                for (int i = 1; i < path.getProperties().size(); i++) {
+                    assertTrue(graph.areAdjacent(path.getProperties().get(i - 1), path.getProperties().get(i)),
+                            "Propriedades consecutivas do caminho devem ser adjacentes");
+                }
+
+                // Os passos diagonais têm fronteira de comprimento zero
+                double boundaryCost = traversal.getShortestPath(origin, target, PropertyGraphConstants.WEIGHT_BOUNDARY_LENGTH).getCost();
+                assertEquals((dx + dy) % 2 == 0 ? 0.0 : 10.0, boundaryCost, 1e-9, "O custo pelas fronteiras deve coincidir");
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    for (int v = 0; v < grid.size(); v++) {
+                        int[] vertices = traversal.getNeighbourhood(v, 2);
+                        int x = v / size;
+                        int y = v % size;
+                        int expected = (Math.min(x + 2, size - 1) - Math.max(x - 2, 0) + 1) * (Math.min(y + 2, size - 1) - Math.max(y - 2, 0) + 1) - 1;
+                        if (vertices.length != expected) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(), "Consultas concorrentes devem dar o mesmo resultado");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Cadastro outside = createGrid(1).get(0);
+        assertThrows(IllegalArgumentException.class, () -> traversal.getDistance(origin, outside), "Propriedades fora do grafo devem ser rejeitadas");
+        assertThrows(IllegalArgumentException.class, () -> traversal.getNeighbourhood(origin, -1), "Saltos negativos devem ser rejeitados");
+        assertThrows(IllegalArgumentException.class, () -> traversal.getNeighbourhood(-1, 1), "Vértices negativos devem ser rejeitados");
+        assertThrows(IllegalArgumentException.class, () -> traversal.getNeighbourhood(grid.size(), 1), "Vértices fora do grafo devem ser rejeitados");
+        assertThrows(IllegalArgumentException.class, () -> traversal.getNeighbourhood(0, -1), "Saltos negativos devem ser rejeitados");
+        assertThrows(IllegalArgumentException.class, () -> traversal.getShortestPath(origin, origin, -1), "Modos de peso desconhecidos devem ser rejeitados");
+        PropertyGraphTestLogger.logSuccess("Percursos verificados com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Percursos no grafo");
+    }
+
+    /**
+     * Testa a deteção de adjacências por vértices partilhados: na grelha deve
+     * coincidir com o predicado DE-9IM, e duas propriedades separadas por uma
+     * pequena folga só são adjacentes se a folga não exceder a tolerância.
+     */
+    @Test
+    void segmentHashAdjacency() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Adjacências por vértices partilhados");
+
+        List<Cadastro> grid = createGrid(12);
+        PropertyGraph expected = new PropertyGraph(grid, 1);
+        PropertyGraph hashed = new PropertyGraph(grid, 1, PropertyGraphConstants.PREDICATE_SEGMENT_HASH);
+        PropertyGraph parallel = new PropertyGraph(grid, 4, PropertyGraphConstants.PREDICATE_SEGMENT_HASH);
+        PropertyGraph verified = new PropertyGraph(grid, 2, PropertyGraphConstants.PREDICATE_SEGMENT_HASH_VERIFY);
+        assertEquals(expected.getNumberOfAdjacencies(), hashed.getNumberOfAdjacencies(), "O número de adjacências deve coincidir");
+        for (Cadastro cadastro : grid) {
+            assertEquals(expected.getAdjacentProperties(cadastro), hashed.getAdjacentProperties(cadastro), "As adjacências devem coincidir");
+            assertEquals(expected.getAdjacentProperties(cadastro), parallel.getAdjacentProperties(cadastro), "As adjacências devem coincidir em paralelo");
+        }
+        assertEquals(0, verified.getPredicateMismatches(), "A verificação não deve encontrar divergências");
+
+        String csv = "1;1;1;40.0;100.0;MULTIPOLYGON(((0 0, 10 0, 10 10, 0 10, 0 0)));1;Sé;Funchal;Madeira\n"
+                + "2;1;1;40.0;100.0;MULTIPOLYGON(((10.005 0, 20 0, 20 10, 10.005 10, 10.005 0)));2;Sé;Funchal;Madeira\n";
+        List<Cadastro> gap = new ArrayList<>();
+        try (CSVParser parser = CSVFormat.newFormat(';').parse(new StringReader(csv))) {
+            for (CSVRecord record : parser) {
+                gap.add(new Cadastro(record));
+            }
+        }
+        assertFalse(new PropertyGraph(gap, 1).areAdjacent(gap.get(0), gap.get(1)), "O predicado DE-9IM não deve aceitar a folga");
+        assertTrue(new PropertyGraph(gap, 1, PropertyGraphConstants.PREDICATE_SEGMENT_HASH, 0.01).areAdjacent(gap.get(0), gap.get(1)),
+                "Uma folga menor que a tolerância deve ser ignorada");
+        assertFalse(new PropertyGraph(gap, 1, PropertyGraphConstants.PREDICATE_SEGMENT_HASH, 0.001).areAdjacent(gap.get(0), gap.get(1)),
+                "Uma folga maior que a tolerância não deve ser ignorada");
+        assertTrue(new PropertyGraph(gap, 1, PropertyGraphConstants.PREDICATE_SEGMENT_HASH_VERIFY, 0.01).getPredicateMismatches() > 0,
+                "A verificação deve contar a divergência");
+        assertThrows(IllegalArgumentException.class, () -> new PropertyGraph(gap, 1, PropertyGraphConstants.PREDICATE_SEGMENT_HASH, 0),
+                "Uma tolerância nula deve ser rejeitada");
+        PropertyGraphTestLogger.logSuccess("Adjacências por vértices partilhados verificadas com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Adjacências por vértices partilhados");
+    }
+
+    /**
+     * Testa o comprimento das fronteiras partilhadas: na grelha, os vizinhos
+     * na mesma linha ou coluna partilham um lado de 10 e os vizinhos na
+     * diagonal apenas um vértice.
+     */
+    @Test
+    void sharedBoundaryLengths() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Comprimento das fronteiras");
+
+        int size = 8;
+        List<Cadastro> grid = createGrid(size);
+        PropertyGraph graph = new PropertyGraph(grid, 1);
+        EdgeWeights weights = graph.getEdgeWeights();
+        assertEquals(0, weights.getComputedCount(), "Nenhum peso deve ser calculado antes de ser pedido");
+
+        assertEquals(10.0, graph.getSharedBoundaryLength(grid.get(0), grid.get(1)), 1e-9, "Vizinhos na mesma coluna partilham um lado");
+        assertEquals(0.0, graph.getSharedBoundaryLength(grid.get(0), grid.get(size + 1)), 1e-9, "Vizinhos na diagonal partilham um vértice");
+        assertEquals(0.0, graph.getSharedBoundaryLength(grid.get(0), grid.get(2)), "Propriedades não adjacentes não partilham fronteira");
+        assertEquals(4, weights.getComputedCount(), "Só os pesos pedidos devem ser calculados, nos dois sentidos");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    for (int v = 0; v < grid.size(); v++) {
+                        for (Cadastro neighbour : graph.getAdjacentProperties(grid.get(v))) {
+                            int u = graph.getVertexId(neighbour);
+                            boolean sameRowOrColumn = u / size == v / size || u % size == v % size;
+                            if (Math.abs(graph.getSharedBoundaryLength(grid.get(v), neighbour) - (sameRowOrColumn ? 10.0 : 0.0)) > 1e-9) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(), "Consultas concorrentes devem dar o comprimento correto");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2 * graph.getNumberOfAdjacencies(), weights.getComputedCount(), "Todos os pesos devem ter sido calculados");
+
+        PropertyGraph parallel = new PropertyGraph(grid, 1);
+        parallel.computeSharedBoundaryLengths(4);
+        assertEquals(2 * parallel.getNumberOfAdjacencies(), parallel.getEdgeWeights().getComputedCount(), "O cálculo completo deve calcular todas as arestas");
+        for (Cadastro cadastro : grid) {
+            for (Cadastro neighbour : graph.getAdjacentProperties(cadastro)) {
+                assertEquals(graph.getSharedBoundaryLength(cadastro, neighbour), parallel.getSharedBoundaryLength(cadastro, neighbour),
+                        "O cálculo completo deve coincidir com o cálculo por aresta");
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> parallel.computeSharedBoundaryLengths(0), "Um paralelismo nulo deve ser rejeitado");
+        PropertyGraphTestLogger.logSuccess("Comprimento das fronteiras verificado com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Comprimento das fronteiras");
+    }
+
+    /**
+     * Testa as alterações incrementais: acrescenta a última coluna da grelha,
+     * remove uma propriedade do meio e desloca outra para fora da grelha,
+     * comparando o grafo alterado com a construção de raiz.
+     */
+    @Test
+    void incrementalUpdates() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Alterações incrementais");
+
+        int size = 10;
+        List<Cadastro> grid = createGrid(size);
+        List<Cadastro> initial = new ArrayList<>(grid.subList(0, size * (size - 1)));
+        PropertyGraph graph = new PropertyGraph(initial, 1);
+        GraphTraversal traversal = graph.getTraversal();
+
+        for (int i = size * (size - 1); i < grid.size(); i++) {
+            assertEquals(i, graph.addProperty(grid.get(i)), "A propriedade acrescentada deve ficar no último vértice");
+        }
+        PropertyGraph full = new PropertyGraph(grid, 1);
+        assertEquals(full.getNumberOfAdjacencies(), graph.getNumberOfAdjacencies(), "O grafo alterado deve ter as adjacências do grafo completo");
+        for (Cadastro cadastro : grid) {
+            assertEquals(full.getAdjacentProperties(cadastro), graph.getAdjacentProperties(cadastro), "Os vizinhos devem coincidir com os do grafo completo");
+        }
+        assertEquals(0, graph.countInconsistencies(1), "Não deve haver diferenças depois de acrescentar");
+        assertEquals(size * (size - 1), initial.size(), "A lista original não deve ser alterada");
+        assertNotSame(traversal, graph.getTraversal(), "Os percursos devem ser recriados depois de uma alteração");
+
+        Cadastro removed = grid.get(45);
+        Cadastro last = grid.get(grid.size() - 1);
+        graph.removeProperty(removed);
+        assertEquals(-1, graph.getVertexId(removed), "A propriedade removida não deve pertencer ao grafo");
+        assertEquals(45, graph.getVertexId(last), "A última propriedade deve ocupar o vértice da removida");
+        assertFalse(graph.areAdjacent(grid.get(44), removed), "A propriedade removida não deve ter vizinhos");
+        assertTrue(graph.areAdjacent(last, grid.get(size * (size - 1) - 1)), "A propriedade deslocada deve manter os vizinhos");
+        assertEquals(0, graph.countInconsistencies(1), "Não deve haver diferenças depois de remover");
+
+        // A substituta fica à direita da última coluna, ao lado da propriedade 90
+        Cadastro replacement = createGrid(size + 1).get(size * (size + 1));
+        graph.replaceProperty(grid.get(0), replacement);
+        assertEquals(0, graph.getVertexId(replacement), "A substituta deve manter o vértice da substituída");
+        assertFalse(graph.areAdjacent(replacement, grid.get(1)), "Os vizinhos antigos devem deixar de o ser");
+        assertTrue(graph.areAdjacent(replacement, grid.get(size * (size - 1))), "Os vizinhos da nova forma devem ser encontrados");
+        assertEquals(0, graph.countInconsistencies(2), "Não deve haver diferenças depois de substituir");
+
+        assertThrows(IllegalArgumentException.class, () -> graph.addProperty(grid.get(1)), "Uma propriedade já existente deve ser rejeitada");
+        assertThrows(IllegalArgumentException.class, () -> graph.removeProperty(removed), "Uma propriedade fora do grafo deve ser rejeitada");
+        assertThrows(IllegalArgumentException.class, () -> graph.replaceProperty(grid.get(1), grid.get(2)), "A substituta não pode pertencer ao grafo");
+        assertThrows(IllegalArgumentException.class, () -> graph.addProperty(null), "Uma propriedade nula deve ser rejeitada");
+
+        // Remoções sucessivas: do último vértice, de um vizinho do último e
+        // de vértices quaisquer
+        graph.removeProperty(graph.getProperty(graph.getNumberOfProperties() - 1));
+        int lastVertex = graph.getNumberOfProperties() - 1;
+        graph.removeProperty(graph.getAdjacentProperties(graph.getProperty(lastVertex)).iterator().next());
+        Random random = new Random(42);
+        while (graph.getNumberOfProperties() > size * size / 2) {
+            graph.removeProperty(graph.getProperty(random.nextInt(graph.getNumberOfProperties())));
+        }
+        assertEquals(0, graph.countInconsistencies(1), "Não deve haver diferenças depois de várias remoções");
+        PropertyGraphTestLogger.logSuccess("Alterações incrementais verificadas com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Alterações incrementais");
+    }
+
+    /**
+     * Testa a construção por mosaicos: com mosaicos que cortam as propriedades
+     * e com mosaicos alinhados com os lados da grelha, o ficheiro de arestas
+     * deve ter as adjacências da construção em memória e ser aceite por
+     * {@link PropertyGraph#load(List, String, int)}.
+     */
+    @Test
+    void tiledBuild() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Construção por mosaicos");
+
+        File csvFile = File.createTempFile("tiled-grid", ".csv");
+        csvFile.deleteOnExit();
+        Files.writeString(csvFile.toPath(), "header\n" + createGridCsv(12));
+        File edgeFile = File.createTempFile("tiled-grid", PropertyGraphConstants.EDGE_FILE_EXTENSION);
+        edgeFile.deleteOnExit();
+
+        for (String path : new String[] {csvFile.getPath(), CSV_PATH}) {
+            List<Cadastro> all = new ArrayList<>();
+            try (CadastroReader reader = new CadastroReader(path)) {
+                reader.forEachRemaining(all::add);
+            }
+            PropertyGraph built = new PropertyGraph(all, 1);
+            Envelope extent = new Envelope();
+            for (Cadastro cadastro : all) {
+                if (cadastro.getShape() != null) {
+                    extent.expandToInclude(cadastro.getShape().getEnvelopeInternal());
+                }
+            }
+
+            for (double tileSize : new double[] {20, extent.getWidth() / 7.3, 2 * extent.getWidth()}) {
+                int edges = PropertyGraph.buildTiled(path, edgeFile.getPath(), tileSize, 2);
+                assertEquals(built.getNumberOfAdjacencies(), edges, "O número de arestas deve coincidir com a construção em memória");
+
+                CsrAdjacency tiled = EdgeFile.read(edgeFile.toPath(), DatasetHash.of(all), all.size());
+                assertNotNull(tiled, "O ficheiro de arestas deve corresponder aos cadastros lidos");
+                for (int v = 0; v < all.size(); v++) {
+                    assertEquals(built.getAdjacency().degree(v), tiled.degree(v), "O grau de cada vértice deve coincidir");
+                    for (int position = tiled.start(v); position < tiled.end(v); position++) {
+                        assertTrue(built.getAdjacency().contains(v, tiled.neighbourAt(position)), "Cada aresta deve existir na construção em memória");
+                    }
+                }
+            }
+            try (CadastroReader reader = new CadastroReader(path)) {
+                assertEquals(built.getNumberOfAdjacencies(), TiledGraphBuilder.build(reader, edgeFile.toPath(), 20, 2, 1),
+                        "Gravar os mosaicos após cada registo deve dar as mesmas arestas");
+            }
+            assertEquals(built.getNumberOfAdjacencies(), PropertyGraph.load(all, edgeFile.getPath(), 1).getNumberOfAdjacencies(),
+                    "O grafo carregado deve ter as mesmas adjacências");
+        }
+
+        // Com a lista lazy e o ficheiro de arestas de outra lista, o grafo é construído de raiz
+        List<Cadastro> lazy = Cadastro.getCadastros(csvFile.getPath(), 2, CadastroConstants.IMPORT_LAZY);
+        PropertyGraph eager = new PropertyGraph(createGrid(12), 1);
+        for (PropertyGraph fromLazy : List.of(PropertyGraph.load(lazy, edgeFile.getPath(), 2),
+                new PropertyGraph(lazy, 2, PropertyGraphConstants.PREDICATE_SEGMENT_HASH_VERIFY))) {
+            assertEquals(eager.getNumberOfAdjacencies(), fromLazy.getNumberOfAdjacencies(),
+                    "O grafo de uma lista lazy deve ter as mesmas adjacências");
+            for (int v = 0; v < lazy.size(); v++) {
+                assertEquals(eager.getAdjacency().degree(v), fromLazy.getAdjacency().degree(v),
+                        "O grau de cada vértice deve coincidir");
+            }
+        }
+
+        List<Cadastro> grid = createGrid(12);
+        for (long budget : new long[] {1, 4096}) {
+            Path directory = Files.createTempDirectory(edgeFile.getAbsoluteFile().getParentFile().toPath(),
+                    PropertyGraphConstants.TILE_DIRECTORY_PREFIX);
+            TiledGraphBuilder builder = new TiledGraphBuilder(10, budget, directory);
+            Iterator<Cadastro> cadastros = grid.iterator();
+            int[] peak = new int[1];
+            try {
+                builder.spill(new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return cadastros.hasNext();
+                    }
+
+                    @Override
+                    public Cadastro next() {
+                        int buffered = builder.bufferedTiles();
+                        if (budget == 1) {
+                            assertEquals(0, buffered, "Nenhum mosaico deve manter o buffer após uma gravação");
+                        }
+                        peak[0] = Math.max(peak[0], buffered);
+                        return cadastros.next();
+                    }
+                });
+                assertEquals(0, builder.bufferedTiles(), "Os buffers devem ser descartados no fim da leitura");
+                assertTrue(peak[0] < (12 + 1) * (12 + 1) / 2,
+                        "Só os mosaicos da janela de gravação atual devem ter buffer");
+            } finally {
+                builder.deleteFiles();
+            }
+        }
+        assertEquals(0, edgeFile.getAbsoluteFile().getParentFile().listFiles(
+                (dir, name) -> name.startsWith(PropertyGraphConstants.TILE_DIRECTORY_PREFIX)).length,
+                "Os ficheiros temporários devem ser apagados");
+        assertThrows(IllegalArgumentException.class, () -> PropertyGraph.buildTiled(CSV_PATH, edgeFile.getPath(), 0, 1),
+                "Um lado nulo deve ser rejeitado");
+        PropertyGraphTestLogger.logSuccess("Construção por mosaicos verificada com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Construção por mosaicos");
+    }
+
+    /**
+     * Testa o modo robusto com formas inválidas (um buraco que toca o anel
+     * exterior e partes sobrepostas), que fazem falhar a análise topológica
+     * do predicado DE-9IM.
+     */
+    @Test
+    void robustBuild() throws Exception {
+        PropertyGraphTestLogger.logTestStart("Construção robusta");
+
+        String[] shapes = {
+            "MULTIPOLYGON(((0 0, 10 0, 10 10, 0 10, 0 0), (0 0, 5 5, 0 10, 0 0)))",
+            "MULTIPOLYGON(((0 4, 2 4, 2 6, 0 6, 0 4)))",
+            "MULTIPOLYGON(((1 1, 9 1, 9 9, 1 9, 1 1)))",
+            "MULTIPOLYGON(((0 0, 10 0, 10 10, 0 10, 0 0)), ((5 5, 15 5, 15 15, 5 15, 5 5)))",
+            "MULTIPOLYGON(((6 6, 8 6, 8 8, 6 8, 6 6)))",
+            "MULTIPOLYGON(((10 0, 20 0, 20 10, 10 10, 10 0)))"
+        };
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < shapes.length; i++) {
+            csv.append(String.format("%d;1;1;40.0;100.0;%s;%d;Sé;Funchal;Madeira%n", i + 1, shapes[i], i + 1));
+        }
+        List<Cadastro> invalid = parseCadastros(csv.toString());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> new PropertyGraph(invalid, 1),
+                "Fora do modo robusto a construção deve falhar");
+        assertTrue(error.getSuppressed().length > 0, "Todos os pares falhados devem ser reportados");
+
+        PropertyGraph robust = new PropertyGraph(invalid, 2, PropertyGraphConstants.PREDICATE_ROBUST);
+        int[][] expected = {{0, 2}, {0, 5}, {1, 2}, {3, 5}};
+        assertEquals(expected.length, robust.getNumberOfAdjacencies(), "Só os pares adjacentes depois de corrigidos devem ser arestas");
+        for (int[] edge : expected) {
+            assertTrue(robust.areAdjacent(invalid.get(edge[0]), invalid.get(edge[1])), "As formas corrigidas devem ser adjacentes");
+        }
+        assertTrue(robust.getRecoveredPairs() > 0, "Os pares recuperados devem ser contabilizados");
+        assertTrue(robust.getFailedPairs().isEmpty(), "Nenhum par deve continuar a falhar");
+
+        // Se a correção também falhar, o par é considerado não adjacente e
+        // reportado com a mesma mensagem da construção fora do modo robusto
+        List<String> expectedFailures = new ArrayList<>();
+        expectedFailures.add(error.getCause().getMessage());
+        for (Throwable suppressed : error.getSuppressed()) {
+            expectedFailures.add(suppressed.getMessage());
+        }
+        expectedFailures.sort(null);
+        PropertyGraph unrecovered = new PropertyGraph(invalid, 2, unrecoverablePredicate());
+        assertEquals(expectedFailures, unrecovered.getFailedPairs(), "Os pares que continuam a falhar devem ser reportados");
+        assertEquals(0, unrecovered.getRecoveredPairs(), "Nenhum par deve ser contabilizado como recuperado");
+
+        // Os pares de uma propriedade removida ou substituída deixam de ser
+        // reportados
+        List<Cadastro> remaining = new ArrayList<>(invalid);
+        remaining.remove(0);
+        unrecovered.removeProperty(invalid.get(0));
+        assertEquals(sortedFailures(new PropertyGraph(remaining, 1, unrecoverablePredicate())),
+                sortedFailures(unrecovered), "Os pares da propriedade removida não devem ser reportados");
+        assertTrue(unrecovered.getFailedPairs().size() < expectedFailures.size(), "A propriedade removida deve ter pares falhados");
+
+        Cadastro replacement = createGrid(30).get(899);
+        remaining.set(remaining.indexOf(invalid.get(3)), replacement);
+        int failuresBefore = unrecovered.getFailedPairs().size();
+        unrecovered.replaceProperty(invalid.get(3), replacement);
+        assertEquals(sortedFailures(new PropertyGraph(remaining, 1, unrecoverablePredicate())),
+                sortedFailures(unrecovered), "Os pares da propriedade substituída não devem ser reportados");
+        assertTrue(unrecovered.getFailedPairs().size() < failuresBefore, "A propriedade substituída deve ter pares falhados");
+
+        PropertyGraph grid = new PropertyGraph(createGrid(6), 1, PropertyGraphConstants.PREDICATE_ROBUST);
+        assertEquals(new PropertyGraph(createGrid(6), 1).getNumberOfAdjacencies(), grid.getNumberOfAdjacencies(),
+                "Com formas válidas o modo robusto deve coincidir com o DE-9IM");
+        assertEquals(0, grid.getRecoveredPairs(), "Formas válidas não precisam de ser recuperadas");
+        PropertyGraphTestLogger.logSuccess("Construção robusta verificada com sucesso");
+
+        PropertyGraphTestLogger.logTestEnd("Construção robusta");
+    }
+
+    /**
+     * Cria um predicado robusto cuja correção das formas falha sempre, como
+     * acontece com formas que não podem ser reduzidas à grelha.
+     */
+    private static AdjacencyPredicate unrecoverablePredicate() {
+        return new AdjacencyPredicate(PropertyGraphConstants.PREDICATE_ROBUST, shape -> {
+            throw new IllegalArgumentException("Redução falhada");
+        });
+    }
+
+    private static List<String> sortedFailures(PropertyGraph graph) {
+        List<String> failures = new ArrayList<>(graph.getFailedPairs());
+        failures.sort(null);
+        return failures;
+    }
+}
@@ -3,7 +3,12 @@ package cadastro.importer;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
@@ -11,7 +16,17 @@ import org.apache.commons.csv.CSVRecord;
 import java.io.File;
 import java.io.FileReader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -502,7 +517,7 @@ class CadastroTest {
                 CSVParser parser = CSVFormat.newFormat(';').parse(reader)) {
             CSVRecord invalidShapeRecord = parser.getRecords().get(0);
 
-            assertThrows(org.locationtech.jts.io.ParseException.class, () -> {
+            assertThrows(ParseException.class, () -> {
                 new Cadastro(invalidShapeRecord);
             }, "Deve lançar exceção ao processar forma inválida");
         } catch (Exception e) {
@@ -656,7 +671,434 @@ class CadastroTest {
         List<String> locations = cadastro.getLocation();
         assertNotNull(locations, "As localizações devem ser processadas");
         assertFalse(locations.isEmpty(), "A lista de localizações não deve estar vazia");
+        assertSame(locations, cadastro.getLocation(), "A lista deve ser reutilizada nos pedidos seguintes");
+        assertThrows(UnsupportedOperationException.class, () -> locations.add("Lisboa"),
+                "A lista de localizações deve ser imutável");
+        assertSame(cadastro.getLocationDictionary(), new Cadastro(validRecord).getLocationDictionary(),
+                "Os cadastros avulsos devem partilhar o dicionário de localizações");
         CadastroTestLogger.logSuccess("Teste getLocation concluído com sucesso");
         CadastroTestLogger.logTestEnd("getLocation");
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCadastrosSnapshot() throws Exception {
+        CadastroTestLogger.logTestStart("getCadastrosSnapshot");
+        List<Cadastro> imported = Cadastro.getCadastros(CSV_PATH);
+        assertNotNull(CadastroSnapshot.load(Path.of(CSV_PATH)), "O snapshot deve ser gravado após a importação");
+
+        List<Cadastro> loaded = Cadastro.getCadastros(CSV_PATH);
+        assertEquals(imported.size(), loaded.size(), "O snapshot deve conter todos os cadastros");
+        for (int i = 0; i < imported.size(); i++) {
+            assertEquals(imported.get(i).toString(), loaded.get(i).toString(), "Os cadastros do snapshot devem coincidir");
+        }
+        CadastroTestLogger.logSuccess("Teste getCadastrosSnapshot concluído com sucesso");
+        CadastroTestLogger.logTestEnd("getCadastrosSnapshot");
+    }
+
+    @Test
+    void getCadastrosParallel() throws Exception {
+        CadastroTestLogger.logTestStart("getCadastrosParallel");
+        // Cópia do CSV com registos inválidos intercalados, para que todos os
+        // blocos da leitura paralela tenham registos ignorados
+        String[] invalid = {
+                "0;1;1;4.0;1.0;MULTIPOLYGON(((0 0, 0 1, 1 1, 1 0, 0 0)));1;Sé;Funchal;NA",
+                "1;1;1;abc;1.0;MULTIPOLYGON(((0 0, 0 1, 1 1, 1 0, 0 0)));1;Sé;Funchal;NA",
+                "2;1;1;4.0;1.0;MULTIPOLYGON(((0 0, 0 1, 1 1)));1;Sé;Funchal;NA",
+                "3;1;1;4.0;1.0;POLYGON((0 0, 0 1, 1 1, 1 0, 0 0));1;Sé;Funchal;NA",
+                "4;1;1;4.0",
+                "5;1;1;4.0;1.0;;1;Sé;Funchal;NA"};
+        List<String> lines = Files.readAllLines(Path.of(CSV_PATH));
+        StringBuilder content = new StringBuilder(lines.get(0)).append('\n');
+        for (int i = 1; i < lines.size(); i++) {
+            content.append(lines.get(i)).append('\n');
+            if (i % 500 == 0) {
+                content.append(invalid[i / 500 % invalid.length]).append('\n');
+            }
+        }
+        File csv = File.createTempFile("cadastros", ".csv");
+        csv.deleteOnExit();
+        Files.writeString(csv.toPath(), content);
+
+        // A referência é a leitura sequencial com o Apache Commons CSV, sem
+        // passar pelo snapshot
+        List<Cadastro> sequential = new ArrayList<>();
+        int sequentialSkipped;
+        try (CadastroReader reader = new CadastroReader(csv.getPath())) {
+            reader.forEachRemaining(sequential::add);
+            sequentialSkipped = reader.getSkippedRecords();
+        }
+        assertTrue(sequentialSkipped >= lines.size() / 500, "O ficheiro deve ter registos inválidos");
+
+        for (int parallelism : new int[] {1, 4}) {
+            ImportResult parallel = MappedCsvReader.read(csv.toPath(), parallelism);
+            assertEquals(sequentialSkipped, parallel.getSkippedRecords(),
+                    "A leitura paralela deve ignorar os mesmos registos");
+            assertEquals(sequential.size(), parallel.getCadastros().size(), "A leitura paralela deve ler os mesmos cadastros");
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.get(i).toString(), parallel.getCadastros().get(i).toString(),
+                        "Os cadastros devem surgir pela mesma ordem");
+            }
+        }
+        assertEquals(sequential.size(), Cadastro.getCadastros(csv.getPath(), 4).size(),
+                "A importação paralela deve ler os mesmos cadastros");
+        Files.deleteIfExists(CadastroSnapshot.snapshotPath(csv.toPath()));
+        assertThrows(IllegalArgumentException.class, () -> Cadastro.getCadastros(CSV_PATH, 0),
+                "Deve lançar exceção para paralelismo inválido");
+        CadastroTestLogger.logSuccess("Teste getCadastrosParallel concluído com sucesso");
+        CadastroTestLogger.logTestEnd("getCadastrosParallel");
+    }
+
+    @Test
+    void packedShapes() throws Exception {
+        CadastroTestLogger.logTestStart("packedShapes");
+        List<Cadastro> cadastros = Cadastro.getCadastros(CSV_PATH);
+        for (Cadastro cadastro : cadastros) {
+            CoordinateSequence sequence = ((Polygon) cadastro
+                    .getShape().getGeometryN(0)).getExteriorRing().getCoordinateSequence();
+            assertTrue(sequence instanceof PackedCoordinateSequence.Double,
+                    "As coordenadas devem estar compactadas num double[]");
+            assertEquals(2, sequence.getDimension(), "As coordenadas devem ser 2D");
+        }
+        String report = Cadastro.getMemoryReport(cadastros);
+        assertTrue(report.contains(String.valueOf(cadastros.size())), "O relatório deve indicar o número de cadastros");
+        CadastroTestLogger.logSuccess("Teste packedShapes concluído com sucesso");
+        CadastroTestLogger.logTestEnd("packedShapes");
+    }
+
+    @Test
+    void getCadastrosLazy() throws Exception {
+        CadastroTestLogger.logTestStart("getCadastrosLazy");
+        Files.deleteIfExists(CadastroSnapshot.snapshotPath(Path.of(CSV_PATH)));
+        List<Cadastro> fromCsv = Cadastro.getCadastros(CSV_PATH, 2, CadastroConstants.IMPORT_LAZY);
+        assertNull(CadastroSnapshot.load(Path.of(CSV_PATH)), "O modo lazy não deve gravar o snapshot");
+        List<Cadastro> eager = Cadastro.getCadastros(CSV_PATH);
+        List<Cadastro> fromSnapshot = Cadastro.getCadastros(CSV_PATH, 1, CadastroConstants.IMPORT_LAZY);
+
+        for (List<Cadastro> lazy : List.of(fromCsv, fromSnapshot)) {
+            assertEquals(eager.size(), lazy.size(), "O número de cadastros deve ser o mesmo");
+            for (int i = 0; i < eager.size(); i++) {
+                assertEquals(eager.get(i).getId(), lazy.get(i).getId(), "Os cadastros devem estar pela mesma ordem");
+                assertEquals(eager.get(i).getLocation(), lazy.get(i).getLocation(), "As localizações devem ser as mesmas");
+                assertTrue(eager.get(i).getShape().equalsExact(lazy.get(i).getShape()),
+                        "A forma descodificada deve ser a mesma");
+            }
+        }
+        assertTrue(ShapeCache.size() <= CadastroConstants.SHAPE_CACHE_CAPACITY, "A cache deve estar limitada");
+        assertThrows(IllegalArgumentException.class, () -> Cadastro.getCadastros(CSV_PATH, 1, -1),
+                "Um modo de importação inválido deve ser rejeitado");
+
+        File csv = File.createTempFile("cadastros", ".csv");
+        csv.deleteOnExit();
+        Path csvPath = csv.toPath();
+        Files.writeString(csvPath, String.join("\n",
+                "OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha",
+                "1;1;1;4.0;1.0;MULTIPOLYGON(((0 0, 0 1, 1 1, 1 0, 0 0)));1;Sé;Funchal;NA",
+                "2;1;1;4.0;1.0;MULTIPOLYGON(((0 0, 0 1, 1 1)));1;Sé;Funchal;NA",
+                "3;1;1;4.0;1.0;;1;Sé;Funchal;NA",
+                "4;1;1;4.0;1.0;MULTIPOLYGON(((0 0, 0 2, 2 2, 2 0, 0 0));1;Sé;Funchal;NA",
+                "5;1;1;4.0;1.0;MULTIPOLYGON(((0 0, 0 2, 2 2, 2 0, 0 0)), ((5 5, 5 6, 6 x, 5 5)));1;Sé;Funchal;NA",
+                "6;1;1;4.0;1.0;POLYGON((0 0, 0 2, 2 2, 2 0, 0 0));1;Sé;Funchal;NA",
+                "7;1;1;4.0;1.0;MULTIPOLYGON (((0 0, 0 3, 3 3, 3 0, 0 0), (1 1, 2 1, 2 2, 1 1)));1;Sé;Funchal;NA",
+                "8;1;1;4.0;1.0;MULTIPOLYGON EMPTY;1;Sé;Funchal;NA"));
+        Files.deleteIfExists(CadastroSnapshot.snapshotPath(csvPath));
+        ImportResult lazyResult = MappedCsvReader.read(csvPath, 2, true);
+        ImportResult eagerResult = MappedCsvReader.read(csvPath, 2, false);
+        assertEquals(eagerResult.getSkippedRecords(), lazyResult.getSkippedRecords(),
+                "Os registos com WKT inválido devem ser ignorados na leitura, como no modo eager");
+        assertEquals(eagerResult.getCadastros().size(), lazyResult.getCadastros().size(), "O número de cadastros deve ser o mesmo");
+        List<Cadastro> lazy = Cadastro.getCadastros(csv.getPath(), 1, CadastroConstants.IMPORT_LAZY);
+        assertEquals(List.of(1, 7, 8), lazy.stream().map(Cadastro::getId).toList(), "Só os registos com WKT válido devem ser lidos");
+        for (Cadastro cadastro : lazy) {
+            assertNotNull(cadastro.toString(), "As formas lidas devem ser descodificadas sem erros");
+        }
+        List<Cadastro> eagerCsv = Cadastro.getCadastros(csv.getPath());
+        List<Cadastro> lazySnapshot = Cadastro.getCadastros(csv.getPath(), 1, CadastroConstants.IMPORT_LAZY);
+        assertEquals(lazy.size(), eagerCsv.size(), "O modo eager deve ler os mesmos registos");
+        assertEquals(lazy.size(), lazySnapshot.size(), "O resultado não deve depender da existência do snapshot");
+        Files.deleteIfExists(CadastroSnapshot.snapshotPath(csvPath));
+
+        // O canal do ficheiro fica aberto depois da primeira forma, mas as alterações continuam a ser detetadas
+        List<Cadastro> reopened = MappedCsvReader.read(csvPath, 1, true).getCadastros();
+        assertTrue(eagerCsv.get(0).getShape().equalsExact(reopened.get(0).getShape()), "A primeira forma deve ser lida");
+        assertTrue(eagerCsv.get(1).getShape().equalsExact(reopened.get(1).getShape()),
+                "As formas seguintes devem ser lidas do mesmo canal");
+        Files.writeString(csvPath, "\n", StandardOpenOption.APPEND);
+        assertThrows(IllegalStateException.class, () -> reopened.get(2).getShape(),
+                "Uma alteração do ficheiro depois da importação deve ser detetada");
+        CadastroTestLogger.logSuccess("Teste getCadastrosLazy concluído com sucesso");
+        CadastroTestLogger.logTestEnd("getCadastrosLazy");
+    }
+
+    @Test
+    void cadastroTable() throws Exception {
+        CadastroTestLogger.logTestStart("cadastroTable");
+        List<Cadastro> cadastros = Cadastro.getCadastros(CSV_PATH);
+        CadastroTable table = Cadastro.getCadastroTable(CSV_PATH, 1, CadastroConstants.IMPORT_LAZY);
+        assertSameRows(cadastros, table);
+        assertSameRows(cadastros, Cadastro.getCadastroTable(CSV_PATH, 2, CadastroConstants.IMPORT_EAGER));
+
+        // Sem snapshot, as colunas são preenchidas a partir dos blocos do CSV
+        ImportResult csv = MappedCsvReader.readTable(Path.of(CSV_PATH), 3, false);
+        assertSameRows(cadastros, csv.getTable());
+        assertSameRows(cadastros, MappedCsvReader.readTable(Path.of(CSV_PATH), 3, true).getTable());
+        assertEquals(MappedCsvReader.read(Path.of(CSV_PATH), 3).getSkippedRecords(), csv.getSkippedRecords(),
+                "Os registos ignorados devem ser os mesmos");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getRow(table.size()),
+                "Linhas inexistentes devem ser rejeitadas");
+        CadastroTestLogger.logSuccess("Teste cadastroTable concluído com sucesso");
+        CadastroTestLogger.logTestEnd("cadastroTable");
+    }
+
+    private static void assertSameRows(List<Cadastro> cadastros, CadastroTable table) {
+        assertEquals(cadastros.size(), table.size(), "A tabela deve ter uma linha por cadastro");
+        for (int row = 0; row < table.size(); row++) {
+            Cadastro cadastro = cadastros.get(row);
+            CadastroTable.Row view = table.getRow(row);
+            assertEquals(cadastro.getId(), view.getId(), "O ID deve ser o mesmo");
+            assertEquals(cadastro.getLength(), view.getLength(), "O comprimento deve ser o mesmo");
+            assertEquals(cadastro.getArea(), view.getArea(), "A área deve ser a mesma");
+            assertEquals(cadastro.getOwner(), view.getOwner(), "O proprietário deve ser o mesmo");
+            assertEquals(cadastro.getLocation(), view.getLocation(), "As localizações devem ser as mesmas");
+            assertTrue(cadastro.getShape().equalsExact(view.getShape()), "A forma deve ser a mesma");
+            for (int level = 0; level < table.getLocationColumns(); level++) {
+                assertEquals(cadastro.getLocationCode(level) == LocationDictionary.NO_LOCATION,
+                        table.getLocationCode(row, level) == LocationDictionary.NO_LOCATION,
+                        "Os níveis \"NA\" devem ser os mesmos");
+            }
+        }
+    }
+
+    @Test
+    void getLocationCode() throws Exception {
+        CadastroTestLogger.logTestStart("getLocationCode");
+        List<Cadastro> cadastros = Cadastro.getCadastros(CSV_PATH, 4);
+        LocationDictionary dictionary = cadastros.get(0).getLocationDictionary();
+        Map<String, Integer> freguesias = new HashMap<>();
+        for (Cadastro cadastro : cadastros) {
+            assertSame(dictionary, cadastro.getLocationDictionary(), "Os cadastros devem partilhar o dicionário");
+            List<String> decoded = new ArrayList<>();
+            for (int level = 0; level < cadastro.getLocationLevels(); level++) {
+                int code = cadastro.getLocationCode(level);
+                if (code != LocationDictionary.NO_LOCATION) {
+                    decoded.add(dictionary.decode(code));
+                }
+            }
+            assertEquals(cadastro.getLocation(), decoded, "Os códigos devem corresponder às localizações");
+            int freguesia = cadastro.getLocationCode(CadastroConstants.LOCATION_FREGUESIA);
+            if (freguesia != LocationDictionary.NO_LOCATION) {
+                assertEquals(freguesia, (int) freguesias.computeIfAbsent(dictionary.decode(freguesia), k -> freguesia),
+                        "A mesma freguesia deve ter sempre o mesmo código");
+            }
+        }
+
+        CSVRecord record = CSVFormat.newFormat(';').parse(new StringReader(
+                "1;1;1;4.0;1.0;MULTIPOLYGON(((0 0, 0 1, 1 1, 1 0, 0 0)));1;NA;Funchal;Ilha da Madeira (Madeira)"))
+                .getRecords().get(0);
+        Cadastro cadastro = new Cadastro(record);
+        assertEquals(LocationDictionary.NO_LOCATION, cadastro.getLocationCode(CadastroConstants.LOCATION_FREGUESIA),
+                "Os níveis NA devem ter o código NO_LOCATION");
+        assertEquals("Funchal", cadastro.getLocationDictionary()
+                .decode(cadastro.getLocationCode(CadastroConstants.LOCATION_MUNICIPIO)), "O município deve ser descodificado");
+        assertEquals(List.of("Funchal", "Ilha da Madeira (Madeira)"), cadastro.getLocation(),
+                "getLocation não deve incluir os níveis NA");
+        CadastroTestLogger.logSuccess("Teste getLocationCode concluído com sucesso");
+        CadastroTestLogger.logTestEnd("getLocationCode");
+    }
+
+    @Test
+    void sortIndex() throws Exception {
+        CadastroTestLogger.logTestStart("sortIndex");
+        List<Cadastro> cadastros = Cadastro.getCadastros(CSV_PATH);
+        List<Cadastro> original = new ArrayList<>(cadastros);
+        CadastroSortIndex index = new CadastroSortIndex(cadastros);
+
+        Comparator<Cadastro> byOwner = Comparator.comparingInt(Cadastro::getOwner);
+        Comparator<Cadastro> byArea = Comparator.comparingDouble(Cadastro::getArea);
+        Comparator<Cadastro> byLength = Comparator.comparingDouble(Cadastro::getLength);
+        Comparator<Cadastro> byId = Comparator.comparingInt(Cadastro::getId);
+        List<Object[]> cases = List.of(
+                new Object[] {new int[] {CadastroConstants.SORT_BY_ID}, byId},
+                new Object[] {new int[] {CadastroConstants.SORT_BY_LENGTH}, byLength},
+                new Object[] {new int[] {CadastroConstants.SORT_BY_AREA}, byArea},
+                new Object[] {new int[] {CadastroConstants.SORT_BY_OWNER}, byOwner},
+                new Object[] {new int[] {CadastroConstants.SORT_BY_AREA | CadastroConstants.SORT_DESCENDING},
+                        byArea.reversed()},
+                new Object[] {new int[] {CadastroConstants.SORT_BY_OWNER,
+                        CadastroConstants.SORT_BY_AREA | CadastroConstants.SORT_DESCENDING},
+                        byOwner.thenComparing(byArea.reversed())});
+        for (Object[] c : cases) {
+            List<Cadastro> expected = new ArrayList<>(cadastros);
+            @SuppressWarnings("unchecked")
+            Comparator<Cadastro> comparator = (Comparator<Cadastro>) c[1];
+            expected.sort(comparator);
+            assertEquals(expected, index.sort((int[]) c[0]), "A ordenação deve ser estável e igual à do comparador");
+        }
+
+        assertSame(index.sort(CadastroConstants.SORT_BY_AREA).get(0), index.sort(CadastroConstants.SORT_BY_AREA).get(0),
+                "A permutação deve ser reutilizada");
+        assertEquals(original, cadastros, "A lista original não deve ser alterada");
+        Cadastro.sortCadastros(cadastros, CadastroConstants.SORT_BY_AREA);
+        assertEquals(original, cadastros, "sortCadastros não deve alterar a lista original");
+        assertThrows(IllegalArgumentException.class, () -> index.sort(7), "Critérios inválidos devem ser rejeitados");
+        CadastroTestLogger.logSuccess("Teste sortIndex concluído com sucesso");
+        CadastroTestLogger.logTestEnd("sortIndex");
+    }
+
+    @Test
+    void cadastroIndex() throws Exception {
+        CadastroTestLogger.logTestStart("cadastroIndex");
+        List<Cadastro> cadastros = Cadastro.getCadastros(CSV_PATH, 2);
+        CadastroIndex index = CadastroIndex.of(cadastros);
+
+        int indexedRows = 0;
+        for (int owner : index.getOwners()) {
+            int[] rows = index.getRowsByOwner(owner);
+            assertEquals(rows.length, index.getOwnerCount(owner), "A contagem deve coincidir com as linhas");
+            for (int i = 0; i < rows.length; i++) {
+                assertEquals(owner, cadastros.get(rows[i]).getOwner(), "A linha deve ser do proprietário");
+                assertTrue(i == 0 || rows[i - 1] < rows[i], "As linhas devem estar por ordem crescente");
+            }
+            indexedRows += rows.length;
+        }
+        assertEquals(cadastros.size(), indexedRows, "Todas as linhas devem estar indexadas por proprietário");
+        assertEquals(0, index.getRowsByOwner(-5).length, "Proprietários inexistentes não devem ter linhas");
+
+        for (int level = CadastroConstants.LOCATION_FREGUESIA; level <= CadastroConstants.LOCATION_ILHA; level++) {
+            for (int code : index.getLocationCodes(level)) {
+                List<Integer> expected = new ArrayList<>();
+                for (int row = 0; row < cadastros.size(); row++) {
+                    if (cadastros.get(row).getLocationCode(level) == code) {
+                        expected.add(row);
+                    }
+                }
+                String location = index.getLocationDictionary().decode(code);
+                assertEquals(expected, Arrays.stream(index.getRowsByLocation(level, location)).boxed().toList(),
+                        "As linhas da localização devem coincidir com uma pesquisa linear");
+            }
+        }
+        assertEquals(0, index.getRowsByLocation(CadastroConstants.LOCATION_FREGUESIA, "Inexistente").length,
+                "Localizações inexistentes não devem ter linhas");
+        CadastroTestLogger.logSuccess("Teste cadastroIndex concluído com sucesso");
+        CadastroTestLogger.logTestEnd("cadastroIndex");
+    }
+
+    @Test
+    void decodeMultiPolygon() throws Exception {
+        CadastroTestLogger.logTestStart("decodeMultiPolygon");
+        List<String> shapes = new ArrayList<>(List.of(
+                "MULTIPOLYGON (((0 0, 0 1, 1 1, 1 0, 0 0)))",
+                "multipolygon(((-1.5 2.25,-1.5 3,0.125 3,-1.5 2.25)),((10 10, 10 20, 20 20, 10 10), (12 12, 12 13, 13 13, 12 12)))",
+                "MULTIPOLYGON (((1e2 0, 1e2 1, 101 1, 1e2 0)))",
+                "MULTIPOLYGON (((0.1234567890123456789 0, 0 1, 1 1, 0.1234567890123456789 0)))",
+                "MULTIPOLYGON EMPTY",
+                "MULTIPOLYGON Z (((0 0 1, 0 1 1, 1 1 1, 0 0 1)))",
+                "MULTIPOLYGON (((0 0, 0 1, 1 1, 1 0)))",
+                "MULTIPOLYGON (((0 0, 0 1, 1 1, 0 0))",
+                "MULTIPOLYGON (((0 0, 0 1, 1 1, 0 0))) extra",
+                "MULTIPOLYGON (((0 0, 0 a, 1 1, 0 0)))",
+                "POLYGON ((0 0, 0 1, 1 1, 0 0))",
+                ""));
+        try (CSVParser parser = CSVFormat.newFormat(';').parse(new FileReader(CSV_PATH))) {
+            for (CSVRecord record : parser) {
+                if (record.getRecordNumber() > 1 && record.isSet(CadastroConstants.SHAPE_INDEX)) {
+                    shapes.add(record.get(CadastroConstants.SHAPE_INDEX));
+                }
+            }
+        }
+
+        for (String shape : shapes) {
+            Object expected;
+            try {
+                expected = new WKTReader().read(shape);
+            } catch (Exception e) {
+                expected = e.getClass();
+            }
+            Object actual;
+            try {
+                actual = MultiPolygonWktDecoder.decode(shape);
+            } catch (Exception e) {
+                actual = e.getClass();
+            }
+            if (expected instanceof MultiPolygon multiPolygon) {
+                assertTrue(actual instanceof MultiPolygon decoded && decoded.equalsExact(multiPolygon),
+                        "A forma descodificada deve ser igual à do WKTReader: " + shape);
+            } else if (expected instanceof Class) {
+                assertEquals(expected, actual, "O erro deve ser o mesmo do WKTReader: " + shape);
+            } else {
+                assertEquals(IllegalArgumentException.class, actual, "Geometrias que não são MultiPolygon devem ser rejeitadas: " + shape);
+            }
+        }
+        CadastroTestLogger.logSuccess("Teste decodeMultiPolygon concluído com sucesso");
+        CadastroTestLogger.logTestEnd("decodeMultiPolygon");
+    }
+
+    @Test
+    void streamCadastros() throws Exception {
+        CadastroTestLogger.logTestStart("streamCadastros");
+        File csv = File.createTempFile("cadastros", ".csv");
+        csv.deleteOnExit();
+        Files.writeString(csv.toPath(), String.join("\n",
+                "OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha",
+                "1;1;1;4.0;1.0;MULTIPOLYGON(((0 0, 0 1, 1 1, 1 0, 0 0)));1;Sé;Funchal;NA",
+                "2;1;1;a;1.0;MULTIPOLYGON(((0 0, 0 1, 1 1, 1 0, 0 0)));1;Sé;Funchal;NA",
+                "3;1;1;4.0;1.0;MULTIPOLYGON(((1 0, 1 1, 2 1, 2 0, 1 0)));2;Sé;Funchal;NA"));
+
+        List<Long> skipped = new ArrayList<>();
+        try (Stream<Cadastro> stream = Cadastro.streamCadastros(csv.getPath(),
+                (e, recordNumber) -> skipped.add(recordNumber))) {
+            List<Integer> ids = stream.map(Cadastro::getId).toList();
+            assertEquals(List.of(1, 3), ids, "Devem ser lidos apenas os cadastros válidos");
+        }
+        assertEquals(List.of(3L), skipped, "O registo inválido deve ser comunicado ao callback");
+        CadastroTestLogger.logSuccess("Teste streamCadastros concluído com sucesso");
+        CadastroTestLogger.logTestEnd("streamCadastros");
+    }
+
+    @Test
+    void aggregation() throws Exception {
+        CadastroTestLogger.logTestStart("aggregation");
+        List<Cadastro> cadastros = Cadastro.getCadastros(CSV_PATH);
+        List<Cadastro> repeated = new ArrayList<>();
+        while (repeated.size() <= CadastroConstants.AGGREGATION_CHUNK_ROWS) {
+            repeated.addAll(cadastros);
+        }
+        CadastroTable table = CadastroTable.of(repeated);
+        CadastroAggregation areas = table.getAggregation(CadastroConstants.AGGREGATE_AREA, 4);
+        CadastroAggregation sequential = CadastroTable.of(repeated).getAggregation(CadastroConstants.AGGREGATE_AREA, 1);
+        assertSame(areas, table.getAggregation(CadastroConstants.AGGREGATE_AREA, 1), "Os agregados devem ficar em cache");
+
+        for (int level = 0; level < table.getLocationColumns(); level++) {
+            Map<Integer, List<Double>> expected = new TreeMap<>();
+            for (int row = 0; row < table.size(); row++) {
+                int code = table.getLocationCode(row, level);
+                if (code != LocationDictionary.NO_LOCATION) {
+                    expected.computeIfAbsent(code, key -> new ArrayList<>()).add(table.getArea(row));
+                }
+            }
+            assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(), areas.getCodes(level),
+                    "As localizações devem ser as mesmas");
+            for (Map.Entry<Integer, List<Double>> entry : expected.entrySet()) {
+                int code = entry.getKey();
+                double[] values = entry.getValue().stream().mapToDouble(Double::doubleValue).sorted().toArray();
+                double sum = Arrays.stream(values).sum();
+                assertEquals(values.length, areas.getCount(level, code), "A contagem deve coincidir");
+                assertEquals(sum, areas.getSum(level, code), 1e-6 * Math.max(1.0, sum), "A soma deve coincidir");
+                assertEquals(sum / values.length, areas.getAverage(level, code), 1e-6 * Math.max(1.0, sum), "A média deve coincidir");
+                assertEquals(values[0], areas.getMin(level, code), "O mínimo deve coincidir");
+                assertEquals(values[values.length - 1], areas.getMax(level, code), "O máximo deve coincidir");
+                assertEquals(values[(values.length - 1) / 2], areas.getPercentile(level, code, (values.length - 1) / 2 * 100.0 / Math.max(1, values.length - 1)), 1e-9,
+                        "O percentil deve coincidir");
+                assertEquals(values[values.length - 1], areas.getPercentile(level, code, 100.0), "O percentil 100 deve ser o máximo");
+                assertEquals(areas.getSum(level, code), sequential.getSum(level, code), "O resultado não deve depender do paralelismo");
+            }
+        }
+        assertEquals(0, areas.getCount(CadastroConstants.LOCATION_FREGUESIA, Integer.MAX_VALUE), "Localizações sem cadastros têm contagem 0");
+        assertTrue(Double.isNaN(areas.getAverage(CadastroConstants.LOCATION_FREGUESIA, Integer.MAX_VALUE)), "Sem cadastros a média é NaN");
+        assertThrows(IllegalArgumentException.class, () -> areas.getCount(table.getLocationColumns(), 0), "Níveis inexistentes devem ser rejeitados");
+        assertThrows(IllegalArgumentException.class, () -> areas.getPercentile(0, areas.getCodes(0)[0], 101), "Percentis inválidos devem ser rejeitados");
+        assertThrows(IllegalArgumentException.class, () -> table.getAggregation(-1, 1), "Medidas inválidas devem ser rejeitadas");
+        CadastroTestLogger.logSuccess("Teste aggregation concluído com sucesso");
+        CadastroTestLogger.logTestEnd("aggregation");
+    }
+}